@@ -179,6 +179,40 @@ public class SettingsManager {
 	 * Flag for the verbose console output
 	 */
 	private boolean verboseConsoleOutput = false;
+	/**
+	 * Flag to parse the values of the VCD-File with the memory mapped lexer
+	 */
+	private boolean mappedValueLexer = true;
+	/**
+	 * Flag to parse the values of the VCD-File on all processors
+	 */
+	private boolean parallelValueLexer = true;
+	/**
+	 * Flag to open the VCD-Files without values and load the values of a
+	 * signal when it is shown
+	 */
+	private boolean lazyValueLoading = false;
+	/**
+	 * Flag to store the parsed VCD-Files in a binary cache next to the file
+	 */
+	private boolean waveformCache = true;
+	/**
+	 * Flag to merge the bits of a bus into one dump, when the bus is shown
+	 */
+	private boolean mergedBuses = true;
+	/**
+	 * Flag to show the signals of a VCD-File while its values are parsed
+	 */
+	private boolean progressiveOpen = false;
+	/**
+	 * Flag to load only the values around the visible time range of the
+	 * VCD-Files opened without values
+	 */
+	private boolean windowedValueLoading = false;
+	/**
+	 * Flag to show the simulated VCD-File while the simulation is running
+	 */
+	private boolean followSimulation = true;
 
 	/*
 	 * ======================= Getters / Setters =============================
@@ -893,6 +927,175 @@ public class SettingsManager {
 		Boolean verboseConsoleOutput ) {
 		this.verboseConsoleOutput = verboseConsoleOutput;
 	}
+
+	/**
+	 * Getter for mappedValueLexer
+	 * 
+	 * @return true, if the values are parsed with the memory mapped lexer
+	 */
+	@Export( tagName = "MappedValueLexer", type = "Boolean" )
+	public boolean getMappedValueLexer() {
+		return mappedValueLexer;
+	}
+
+	/**
+	 * Setter for mappedValueLexer
+	 * 
+	 * @param mappedValueLexer
+	 *        true to parse the values with the memory mapped lexer
+	 */
+	@Import( tagName = "MappedValueLexer" )
+	public void setMappedValueLexer( Boolean mappedValueLexer ) {
+		this.mappedValueLexer = mappedValueLexer;
+	}
+
+	/**
+	 * Getter for parallelValueLexer
+	 * 
+	 * @return true, if the values are parsed on all processors
+	 */
+	@Export( tagName = "ParallelValueLexer", type = "Boolean" )
+	public boolean getParallelValueLexer() {
+		return parallelValueLexer;
+	}
+
+	/**
+	 * Setter for parallelValueLexer
+	 * 
+	 * @param parallelValueLexer
+	 *        true to parse the values on all processors
+	 */
+	@Import( tagName = "ParallelValueLexer" )
+	public void setParallelValueLexer( Boolean parallelValueLexer ) {
+		this.parallelValueLexer = parallelValueLexer;
+	}
+
+	/**
+	 * Getter for lazyValueLoading
+	 * 
+	 * @return true, if the values are loaded when a signal is shown
+	 */
+	@Export( tagName = "LazyValueLoading", type = "Boolean" )
+	public boolean getLazyValueLoading() {
+		return lazyValueLoading;
+	}
+
+	/**
+	 * Setter for lazyValueLoading
+	 * 
+	 * @param lazyValueLoading
+	 *        true to load the values when a signal is shown
+	 */
+	@Import( tagName = "LazyValueLoading" )
+	public void setLazyValueLoading( Boolean lazyValueLoading ) {
+		this.lazyValueLoading = lazyValueLoading;
+	}
+
+	/**
+	 * Getter for waveformCache
+	 * 
+	 * @return true, if the parsed VCD-Files are cached
+	 */
+	@Export( tagName = "WaveformCache", type = "Boolean" )
+	public boolean getWaveformCache() {
+		return waveformCache;
+	}
+
+	/**
+	 * Setter for waveformCache
+	 * 
+	 * @param waveformCache
+	 *        true to cache the parsed VCD-Files
+	 */
+	@Import( tagName = "WaveformCache" )
+	public void setWaveformCache( Boolean waveformCache ) {
+		this.waveformCache = waveformCache;
+	}
+
+	/**
+	 * Getter for mergedBuses
+	 * 
+	 * @return true, if the bits of a bus are merged into one dump
+	 */
+	@Export( tagName = "MergedBuses", type = "Boolean" )
+	public boolean getMergedBuses() {
+		return mergedBuses;
+	}
+
+	/**
+	 * Setter for mergedBuses
+	 * 
+	 * @param mergedBuses
+	 *        true to merge the bits of a bus into one dump
+	 */
+	@Import( tagName = "MergedBuses" )
+	public void setMergedBuses( Boolean mergedBuses ) {
+		this.mergedBuses = mergedBuses;
+	}
+
+	/**
+	 * Getter for progressiveOpen
+	 * 
+	 * @return true, if the signals are shown while the values are parsed
+	 */
+	@Export( tagName = "ProgressiveOpen", type = "Boolean" )
+	public boolean getProgressiveOpen() {
+		return progressiveOpen;
+	}
+
+	/**
+	 * Setter for progressiveOpen
+	 * 
+	 * @param progressiveOpen
+	 *        true to show the signals while the values are parsed
+	 */
+	@Import( tagName = "ProgressiveOpen" )
+	public void setProgressiveOpen( Boolean progressiveOpen ) {
+		this.progressiveOpen = progressiveOpen;
+	}
+
+	/**
+	 * Getter for windowedValueLoading
+	 * 
+	 * @return true, if only the values around the visible time range are
+	 *         loaded
+	 */
+	@Export( tagName = "WindowedValueLoading", type = "Boolean" )
+	public boolean getWindowedValueLoading() {
+		return windowedValueLoading;
+	}
+
+	/**
+	 * Setter for windowedValueLoading
+	 * 
+	 * @param windowedValueLoading
+	 *        true to load only the values around the visible time range
+	 */
+	@Import( tagName = "WindowedValueLoading" )
+	public void setWindowedValueLoading( Boolean windowedValueLoading ) {
+		this.windowedValueLoading = windowedValueLoading;
+	}
+
+	/**
+	 * Getter for followSimulation
+	 * 
+	 * @return true, if the simulated file is shown while it is written
+	 */
+	@Export( tagName = "FollowSimulation", type = "Boolean" )
+	public boolean getFollowSimulation() {
+		return followSimulation;
+	}
+
+	/**
+	 * Setter for followSimulation
+	 * 
+	 * @param followSimulation
+	 *        true to show the simulated file while it is written
+	 */
+	@Import( tagName = "FollowSimulation" )
+	public void setFollowSimulation( Boolean followSimulation ) {
+		this.followSimulation = followSimulation;
+	}
 	/*
 	 * ============================ Methods ==================================
 	 */
@@ -29,8 +29,12 @@ package vvide;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import vvide.parser.AbstractParser;
+import vvide.parser.SignalValueLoader;
 import vvide.signal.AbstractSignal;
+import vvide.signal.DumpStorage;
 import vvide.signal.NumeralSystem;
 import vvide.signal.Scope;
 import vvide.signal.SignalValueDump;
@@ -68,6 +72,18 @@ public class SignalManager {
 	 * Changing the numeralSystem for signal
 	 */
 	public static String NUMERAL_SYSTEM_CHANGED = "NumeralSystemChanged";
+	/**
+	 * Property name for loading the values of signals
+	 */
+	public static String SIGNAL_VALUES_LOADED = "SignalValuesLoaded";
+	/**
+	 * Property name for growing the simulation length
+	 */
+	public static String SIGNAL_LENGTH_CHANGED = "SignalLengthChanged";
+	/**
+	 * Property name for the start and the end of the loading of the values
+	 */
+	public static String SIGNAL_LOADING_CHANGED = "SignalLoadingChanged";
 
 	/*
 	 * =========================== Attributes ================================
@@ -88,6 +104,11 @@ public class SignalManager {
 	 * Length of the simulation
 	 */
 	private long signalLength;
+	/**
+	 * Flag for the values, which are parsed while the signals are shown. The
+	 * values are loaded up to the signal length
+	 */
+	private boolean loading = false;
 	/**
 	 * A main Scope
 	 */
@@ -100,10 +121,28 @@ public class SignalManager {
 	 * A collection of SignalDumps
 	 */
 	private SignalValueDump[] signalDumps;
+	/**
+	 * Version of the dumps set to the signals, incremented by every
+	 * replaced dump
+	 */
+	private final AtomicInteger dumpVersion = new AtomicInteger();
 	/**
 	 * Index of the selected signal
 	 */
 	private int selectedSignalIndex = -1;
+	/**
+	 * Loader for the values of the signals, if the file was opened without
+	 * values
+	 */
+	private SignalValueLoader valueLoader = null;
+	/**
+	 * Parser writing the signals, stopped when the signals are removed
+	 */
+	private AbstractParser parser = null;
+	/**
+	 * Storage for the chunks of the dumps
+	 */
+	private DumpStorage dumpStorage = DumpStorage.HEAP;
 
 	/*
 	 * ====================== Getters and setters ============================
@@ -166,6 +205,26 @@ public class SignalManager {
 		return this.signalLength;
 	}
 
+	/**
+	 * Return true, if the values are parsed while the signals are shown
+	 */
+	public boolean isLoading() {
+		return loading;
+	}
+
+	/**
+	 * Set the flag for the values, which are parsed while the signals are
+	 * shown. Notify the listeners about the change
+	 * 
+	 * @param value
+	 *        true while the values are parsed
+	 */
+	public void setLoading( boolean value ) {
+		boolean oldValue = this.loading;
+		this.loading = value;
+		pcs.firePropertyChange( SIGNAL_LOADING_CHANGED, oldValue, value );
+	}
+
 	/**
 	 * Return a main Scope object
 	 * 
@@ -229,9 +288,65 @@ public class SignalManager {
 	 * @return a ValueDump
 	 */
 	public SignalValueDump getDump( int id ) {
+		if ( signalDumps == null || id < 0 || id >= signalDumps.length )
+			return null;
 		return signalDumps[id];
 	}
 
+	/**
+	 * Return the size of the dump buffer
+	 * 
+	 * @return count of dumps, including the not used ones
+	 */
+	public int getCountDumps() {
+		return (signalDumps == null) ? 0 : signalDumps.length;
+	}
+
+	/**
+	 * Setter for valueLoader
+	 * 
+	 * @param valueLoader
+	 *        loader for the values of the signals or null if the values are
+	 *        already loaded
+	 */
+	public void setValueLoader( SignalValueLoader valueLoader ) {
+		if ( this.valueLoader != null ) this.valueLoader.close();
+		this.valueLoader = valueLoader;
+	}
+
+	/**
+	 * Setter for parser. The previous parser is stopped, so it does not
+	 * write into the new signals
+	 * 
+	 * @param parser
+	 *        parser of the new signals or null
+	 */
+	public void setParser( AbstractParser parser ) {
+		if ( this.parser != null && this.parser != parser )
+			this.parser.stopParse();
+		this.parser = parser;
+	}
+
+	/**
+	 * Getter for dumpStorage
+	 * 
+	 * @return storage for the chunks of the dumps
+	 */
+	public DumpStorage getDumpStorage() {
+		return dumpStorage;
+	}
+
+	/**
+	 * Setter for dumpStorage. The previous storage is released
+	 * 
+	 * @param dumpStorage
+	 *        storage for the chunks of the dumps
+	 */
+	public void setDumpStorage( DumpStorage dumpStorage ) {
+		if ( this.dumpStorage != dumpStorage ) this.dumpStorage.close();
+		this.dumpStorage = dumpStorage;
+	}
+
 	/*
 	 * ============================ Methods ==================================
 	 */
@@ -239,12 +354,16 @@ public class SignalManager {
 	 * Clear the Signal's Collection
 	 */
 	public void removeAll() {
+		setParser( null );
 		this.mainScope = new Scope( "" );
 		this.visibleSignals.clear();
 		this.setSignalLength( 0 );
+		this.loading = false;
 		this.setScale( 1 );
 		this.setScaleUnit( 0 );
 		this.signalDumps = null;
+		setValueLoader( null );
+		setDumpStorage( DumpStorage.HEAP );
 		pcs.firePropertyChange( SIGNALS_CLEARED, null, null );
 	}
 
@@ -298,6 +417,7 @@ public class SignalManager {
 			visibleSignals.add( signal );
 			abstractSignals.add( signal.getSignal() );
 		}
+		loadValues( abstractSignals );
 		if ( signals != null && signals.size() > 0 )
 			pcs.firePropertyChange( VISIBLE_SIGNAL_ADDED, null, signals );
 	}
@@ -312,6 +432,7 @@ public class SignalManager {
 		for ( AbstractSignal signal : signals ) {
 			visibleSignals.add( new VisibleSignal( signal ) );
 		}
+		loadValues( signals );
 		if ( signals != null && signals.size() > 0 )
 			pcs.firePropertyChange( VISIBLE_SIGNAL_ADDED, null, signals );
 	}
@@ -382,6 +503,7 @@ public class SignalManager {
 				visibleSignals.insertElementAt( new VisibleSignal( signal ),
 					index++ );
 			}
+			loadValues( signals );
 			if ( signals.size() > 0 )
 				pcs.firePropertyChange( VISIBLE_SIGNAL_ADDED, null, signals );
 		}
@@ -434,6 +556,50 @@ public class SignalManager {
 			selectedSignalIndex );
 	}
 
+	/**
+	 * Start loading the values of the signals, if they are not loaded yet
+	 * 
+	 * @param signals
+	 *        signals to load
+	 */
+	private void loadValues( Vector<AbstractSignal> signals ) {
+		if ( valueLoader != null && signals != null )
+			valueLoader.load( signals );
+	}
+
+	/**
+	 * Show a time range, the values of a window around the range are loaded,
+	 * if the loader loads windows
+	 * 
+	 * @param start
+	 *        start time of the range
+	 * @param end
+	 *        end time of the range
+	 */
+	public void showTimes( long start, long end ) {
+		if ( valueLoader != null ) valueLoader.showTimes( start, end );
+	}
+
+	/**
+	 * Notify the listeners, that the values of some signals were loaded
+	 */
+	public void valuesLoaded() {
+		pcs.firePropertyChange( SIGNAL_VALUES_LOADED, null, null );
+	}
+
+	/**
+	 * Set a new simulation length, after new values were appended to the
+	 * dumps of a running simulation. Notify the listeners about the change
+	 * 
+	 * @param value
+	 *        the new simulation length
+	 */
+	public void growSignalLength( long value ) {
+		long oldValue = this.signalLength;
+		this.signalLength = value;
+		pcs.firePropertyChange( SIGNAL_LENGTH_CHANGED, oldValue, value );
+	}
+
 	/**
 	 * Create a buffer for signal dumps
 	 * 
@@ -456,6 +622,21 @@ public class SignalManager {
 		signalDumps[varID] = dump;
 	}
 
+	/**
+	 * Return the version of the dumps set to the signals. The version
+	 * changes, when the dump of a signal is replaced
+	 */
+	public int getDumpVersion() {
+		return dumpVersion.get();
+	}
+
+	/**
+	 * Mark the dump of a signal as replaced
+	 */
+	public void dumpReplaced() {
+		dumpVersion.incrementAndGet();
+	}
+
 	/**
 	 * Add a listener to a specified property
 	 * 
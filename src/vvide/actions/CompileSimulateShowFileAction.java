@@ -22,16 +22,20 @@ package vvide.actions;
 import java.awt.event.ActionEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.File;
 import java.util.Vector;
 
 import javax.swing.AbstractAction;
 import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
 
 import vvide.Application;
 import vvide.ProjectManager;
 import vvide.ViewManager;
+import vvide.parser.VCDParser;
 import vvide.project.AbstractFile;
 import vvide.project.Project;
+import vvide.simulator.AbstractSimulator;
 import vvide.ui.views.ProjectView;
 
 /**
@@ -176,15 +180,56 @@ public class CompileSimulateShowFileAction extends AbstractAction {
 	 */
 	private class SimulationListener implements PropertyChangeListener {
 
+		/**
+		 * Parser following the simulated file or null, if the file is shown
+		 * after the simulation
+		 */
+		private VCDParser followParser = null;
+
 		@Override
 		public void propertyChange( PropertyChangeEvent evt ) {
+			if ( evt.getPropertyName().equals(
+				SimulateFileAction.SIMULATION_STARTED ) ) {
+				if ( Application.settingsManager.getFollowSimulation() )
+					startFollow();
+				return;
+			}
 			((SimulateFileAction) (evt.getSource()))
 				.removePropertyChangeListener( this );
-			if ( evt.getPropertyName().equals(
-				SimulateFileAction.SIMULATION_FINISHED ) ) {
-				Application.actionManager.getAction( "ShowVCDFileAction" )
-					.actionPerformed( null );
+			if ( followParser != null ) {
+				followParser.finishFollow();
+				followParser = null;
 			}
+			else
+				if ( evt.getPropertyName().equals(
+					SimulateFileAction.SIMULATION_FINISHED ) ) {
+					Application.actionManager.getAction( "ShowVCDFileAction" )
+						.actionPerformed( null );
+				}
+		}
+
+		/**
+		 * Show the simulated file while it is written. Called before the
+		 * simulator process is created
+		 */
+		private void startFollow() {
+			// The file of the previous simulation must not be shown
+			final File vcdFile =
+				new File( Application.projectManager.getCurrentProject()
+					.getTemporaryFolder(), AbstractSimulator.VCDFILE_NAME );
+			if ( vcdFile.exists() && !vcdFile.delete() ) return;
+
+			final VCDParser parser = new VCDParser();
+			followParser = parser;
+			SwingUtilities.invokeLater( new Runnable() {
+
+				@Override
+				public void run() {
+					((ShowVCDFileAction) Application.actionManager
+						.getAction( "ShowVCDFileAction" )).follow( vcdFile,
+						parser );
+				}
+			} );
 		}
 	}
 }
@@ -71,13 +71,14 @@ public class OpenVCDFileAction extends AbstractAction {
 
 			@Override
 			public String getDescription() {
-				return "Value Change Dump File (*.vcd)";
+				return "Value Change Dump File (*.vcd, *.vcd.gz)";
 			}
 
 			@Override
 			public boolean accept( File f ) {
-				return (f.isDirectory() || (f.isFile() && f.getName().toLowerCase().endsWith(
-					".vcd" )));
+				String name = f.getName().toLowerCase();
+				return (f.isDirectory() || (f.isFile() && (name.endsWith(
+					".vcd" ) || name.endsWith( ".vcd.gz" ))));
 			}
 		} );
 
@@ -90,6 +91,7 @@ public class OpenVCDFileAction extends AbstractAction {
 
 			// Creating a parser
 			VCDParser parser = new VCDParser();
+			Application.signalManager.setParser( parser );
 
 			// Show the process window
 			ParsingProgressDialog ppd = new ParsingProgressDialog();
@@ -118,6 +118,35 @@ public class ShowVCDFileAction extends AbstractAction {
 			return;
 		}
 
+		// Start
+		VCDParser parser = new VCDParser();
+		prepareParser( parser );
+		parser.startParse( vcdFile );
+	}
+
+	/**
+	 * Show a VCD-File, which is written by a running simulation. The signals
+	 * are shown after the header is written and grow with the simulation
+	 * 
+	 * @param vcdFile
+	 *        the file written by the simulation
+	 * @param parser
+	 *        the parser to follow the file
+	 */
+	public void follow( File vcdFile, VCDParser parser ) {
+		prepareParser( parser );
+		parser.startFollow( vcdFile );
+	}
+
+	/**
+	 * Reset the signals and show the signals parsed by the parser, when the
+	 * parser is finished
+	 * 
+	 * @param parser
+	 *        the parser of the new file
+	 */
+	private void prepareParser( VCDParser parser ) {
+		Project currentProject = Application.projectManager.getCurrentProject();
 		List<AbstractSourceFile> lastSimulations =
 			currentProject.getLastSimulatedFile();
 		if ( (lastSimulations.size() == 2 && lastSimulations.get( 0 ) == lastSimulations
@@ -150,9 +179,7 @@ public class ShowVCDFileAction extends AbstractAction {
 			Application.markerManager.removeAll();
 			backup = null;
 		}
-
-		// Creating a parser
-		VCDParser parser = new VCDParser();
+		Application.signalManager.setParser( parser );
 
 		// Show the process window
 		ParsingProgressDialog ppd = new ParsingProgressDialog();
@@ -206,9 +233,6 @@ public class ShowVCDFileAction extends AbstractAction {
 					}
 				}
 			} );
-
-		// Start
-		parser.startParse( vcdFile );
 	}
 
 	/*
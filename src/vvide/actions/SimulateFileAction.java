@@ -52,6 +52,10 @@ public class SimulateFileAction extends AbstractAction {
 	 * Version UID
 	 */
 	private static final long serialVersionUID = 7712162474540953523L;
+	/**
+	 * Property for the start of the simulation
+	 */
+	public static String SIMULATION_STARTED = "SimulationStarted";
 	/**
 	 * Property for top level entity
 	 */
@@ -188,6 +192,11 @@ public class SimulateFileAction extends AbstractAction {
 
 		@Override
 		public void propertyChange( PropertyChangeEvent evt ) {
+			if ( evt.getPropertyName().equals(
+				AbstractSimulator.SIMULATION_STARTED ) ) {
+				changeSupport.firePropertyChange( SIMULATION_STARTED, null, null );
+				return;
+			}
 			((AbstractSimulator) (evt.getSource()))
 				.removePropertyChangeListener( this );
 			if ( evt.getPropertyName().equals(
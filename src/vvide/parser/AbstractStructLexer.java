@@ -20,6 +20,7 @@
 package vvide.parser;
 
 import java.util.HashMap;
+import java.util.HashSet;
 
 import vvide.Application;
 import vvide.signal.AbstractSignal;
@@ -27,7 +28,6 @@ import vvide.signal.CompoundSignal;
 import vvide.signal.Scope;
 import vvide.signal.SignalFactory;
 import vvide.ui.views.ConsoleView;
-import vvide.utils.CommonMethods;
 
 /**
  * Abstract class for Structure parser
@@ -37,15 +37,15 @@ public abstract class AbstractStructLexer {
 	/*
 	 * =========================== Attributes ================================
 	 */
-	/**
-	 * An array with amount of changes each signal
-	 */
-	protected int[] changesBuffer = null;
 	/**
 	 * An array with BitWidth of each signal
 	 */
 	protected HashMap<Integer, Integer> bitWidthMap =
 			new HashMap<Integer, Integer>();
+	/**
+	 * Ids of the real vars, their values are stored as text
+	 */
+	protected HashSet<Integer> realVars = new HashSet<Integer>();
 	/**
 	 * A parser
 	 */
@@ -82,6 +82,10 @@ public abstract class AbstractStructLexer {
 	 * Max value for signal id
 	 */
 	protected int maxVarID = 0;
+	/**
+	 * Table with the signal ids of the identifier codes
+	 */
+	protected VCDIdTable idTable = new VCDIdTable();
 	/**
 	 * Signal Factory
 	 */
@@ -98,6 +102,11 @@ public abstract class AbstractStructLexer {
 	 * count of added changes
 	 */
 	protected int countChangesAdded = 0;
+	/**
+	 * Offset of the first character after the "$enddefinitions" command,
+	 * counted in characters and not in bytes
+	 */
+	protected long valueSectionOffset = -1;
 	/**
 	 * Console
 	 */
@@ -111,12 +120,14 @@ public abstract class AbstractStructLexer {
 	 * ======================= Getters / Setters =============================
 	 */
 	/**
-	 * Getter for changesMap
+	 * Getter for valueSectionOffset
 	 * 
-	 * @return the changesMap
+	 * @return offset of the value section in characters or -1 if the end of
+	 *         the definitions was not found. The offset differs from the byte
+	 *         offset, if the header contains multi-byte characters
 	 */
-	public int[] getChangesMap() {
-		return changesBuffer;
+	public long getValueSectionOffset() {
+		return valueSectionOffset;
 	}
 
 	/**
@@ -195,6 +206,15 @@ public abstract class AbstractStructLexer {
 		return currentScope;
 	}
 
+	/**
+	 * Getter for idTable
+	 * 
+	 * @return the table with the signal ids of the identifier codes
+	 */
+	public VCDIdTable getIdTable() {
+		return idTable;
+	}
+
 	/**
 	 * Setter for lastTimestamp
 	 * 
@@ -258,11 +278,12 @@ public abstract class AbstractStructLexer {
 	 */
 	protected void endVar() {
 		if ( var != null ) {
-			int id = var.getId();
+			int id =
+					declareVar( var.getId(), var.getBitWidth(), "real"
+							.equals( var.getType() ) );
+			if ( id < 0 ) return;
 			currentScope.addChild( signalFactory.createVectorSignal( id, var
 					.getReference(), var.getBitWidth() ) );
-			maxVarID = Math.max( maxVarID, id );
-			bitWidthMap.put( id, var.getBitWidth() );
 		}
 	}
 
@@ -270,6 +291,11 @@ public abstract class AbstractStructLexer {
 	 * Append a var info to compound var info
 	 */
 	protected void appendToCompoundVar() {
+		int id = declareVar( var.getId(), 1, false );
+		if ( id < 0 ) {
+			var = null;
+			return;
+		}
 		CompoundSignal compound = findCompound( var.getReference() );
 		if ( compound == null ) {
 			compound =
@@ -277,15 +303,56 @@ public abstract class AbstractStructLexer {
 							.getReference(), var.getBitNr() );
 			currentScope.addChild( compound );
 		}
-		int id = var.getId();
 		compound.addChild( signalFactory.createScalarSignal( id, var
 				.getReference(), var.getBitNr() ) );
-		maxVarID = Math.max( maxVarID, id );
-		// if needed increment the vector size
-		bitWidthMap.put( id, 1 );
 		var = null;
 	}
 
+	/**
+	 * Return the id for a declared var. A code declared before is an alias:
+	 * all aliases get the same id and share one dump, so the values are
+	 * parsed and stored once. An alias with another width than the first
+	 * declaration would show the values of the other width and an alias
+	 * with another type would decode them in the wrong format, so both are
+	 * rejected
+	 * 
+	 * @param code
+	 *        identifier code of the var
+	 * @param bitWidth
+	 *        bit width of the declaration
+	 * @param real
+	 *        true if the var is declared as real
+	 * @return the id of the var or -1 if the declaration is rejected
+	 */
+	private int declareVar( String code, int bitWidth, boolean real ) {
+		int countIds = idTable.getCount();
+		int id = idTable.add( code );
+		if ( id > countIds ) {
+			maxVarID = Math.max( maxVarID, id );
+			bitWidthMap.put( id, bitWidth );
+			if ( real ) realVars.add( id );
+		}
+		else
+			if ( bitWidthMap.get( id ) != bitWidth ) {
+				if ( console != null )
+					console.appendErrorText( "Signal " + var.getReference()
+						+ " is ignored: the identifier code " + code
+						+ " is declared with " + bitWidthMap.get( id )
+						+ " bits before, not with " + bitWidth + " bits" );
+				return -1;
+			}
+			else
+				if ( realVars.contains( id ) != real ) {
+					if ( console != null )
+						console.appendErrorText( "Signal " + var.getReference()
+							+ " is ignored: the identifier code " + code
+							+ " is declared as " + (real ? "a vector" : "real")
+							+ " before, not as " + (real ? "real" : "a vector") );
+					return -1;
+				}
+		return id;
+	}
+
 	private CompoundSignal findCompound( String reference ) {
 		for ( AbstractSignal signal : currentScope.getSignals() ) {
 			if ( signal.isCompound() && signal.getName().equals( reference ) )
@@ -295,19 +362,20 @@ public abstract class AbstractStructLexer {
 	}
 
 	/**
-	 * Create a changesMap
+	 * Store the end of the definitions. The lexer stops here, the value
+	 * changes are read by a value lexer
+	 * 
+	 * @param offset
+	 *        offset of the first character after the definitions
 	 */
-	protected void createChangesMap() {
-		changesBuffer = new int[maxVarID + 1];
+	protected void endDefinitions( long offset ) {
+		valueSectionOffset = offset;
 	}
 
 	/**
-	 * Add a new change of the signal
+	 * Value changes are read by a value lexer, nothing to do here
 	 */
-	protected void addVarChange( String varID ) {
-		int ID = CommonMethods.getIDFormString( varID );
-		changesBuffer[ID]++;
-	}
+	protected void addVarChange( String varID ) {}
 
 	/**
 	 * Print a founded comment
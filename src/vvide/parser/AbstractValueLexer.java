@@ -20,7 +20,7 @@
 package vvide.parser;
 
 import vvide.Application;
-import vvide.utils.CommonMethods;
+import vvide.signal.SignalValueDump;
 
 /**
  * Abstract class for Structure parser
@@ -47,21 +47,33 @@ public abstract class AbstractValueLexer {
 	 */
 	protected long timestamp;
 	/**
-	 * Value of the signal
+	 * Bytes of the current value of the signal
 	 */
-	protected String value;
+	protected byte[] valueBytes = new byte[64];
 	/**
-	 * A divide for time
+	 * Length of the current value
 	 */
-	protected long timeDivide;
+	protected int valueLength;
 	/**
-	 * A time ratio
+	 * Offset of the first character read by the lexer in the file
 	 */
-	protected int timeRatio = Application.settingsManager.getTimeRatio();
+	protected long startOffset = 0;
+	/**
+	 * Minimal interval between changes
+	 */
+	protected long minInterval = Long.MAX_VALUE;
+	/**
+	 * Store a last signal time
+	 */
+	protected long lastTimestamp = Long.MIN_VALUE + 100;
 	/**
 	 * A flag to cancel the work
 	 */
 	protected boolean interrupted = false;
+	/**
+	 * Table with the signal ids of the identifier codes
+	 */
+	protected VCDIdTable idTable;
 
 	/*
 	 * ======================= Getters / Setters =============================
@@ -87,25 +99,107 @@ public abstract class AbstractValueLexer {
 	}
 
 	/**
-	 * Setter for timeDivide
+	 * Setter for idTable
+	 * 
+	 * @param idTable
+	 *        table with the signal ids of the identifier codes
+	 */
+	public void setIdTable( VCDIdTable idTable ) {
+		this.idTable = idTable;
+	}
+
+	/**
+	 * Setter for startOffset
+	 * 
+	 * @param startOffset
+	 *        offset of the first character read by the lexer in the file
+	 */
+	public void setStartOffset( long startOffset ) {
+		this.startOffset = startOffset;
+	}
+
+	/**
+	 * Getter for minInterval
+	 * 
+	 * @return the minInterval
+	 */
+	public long getMinInterval() {
+		return minInterval;
+	}
+
+	/**
+	 * Getter for lastTimestamp
 	 * 
-	 * @param timeDivide
-	 *        the timeDivide to set
+	 * @return the lastTimestamp
 	 */
-	public void setTimeDivide( long timeDivide ) {
-		this.timeDivide = timeDivide;
+	public long getLastTimestamp() {
+		return lastTimestamp;
 	}
 
 	/*
 	 * ============================ Methods ==================================
 	 */
 	/**
-	 * Add a new change of the signal
+	 * Store a new timestamp
+	 * 
+	 * @param timestamp
+	 *        the timestamp
+	 */
+	protected void storeTimeStamp( long timestamp ) {
+		minInterval = Math.min( minInterval, (timestamp - lastTimestamp) );
+		lastTimestamp = timestamp;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Update the progress of the parser
+	 * 
+	 * @param position
+	 *        position in the file reached by the lexer
+	 */
+	protected void updateProgress( long position ) {
+		parser.setProgress( (int) (position * 100 / fileSize) );
+	}
+
+	/**
+	 * Append a character to the current value
+	 * 
+	 * @param c
+	 *        the character
+	 */
+	protected void appendValue( int c ) {
+		if ( valueLength == valueBytes.length ) {
+			byte[] newBytes = new byte[valueBytes.length * 2];
+			System.arraycopy( valueBytes, 0, newBytes, 0, valueLength );
+			valueBytes = newBytes;
+		}
+		valueBytes[valueLength++] = (byte) c;
+	}
+
+	/**
+	 * Add a new change of the signal with the value given as ASCII bytes
+	 * 
+	 * @param varID
+	 *        id of the signal
+	 * @param value
+	 *        buffer with the value
+	 * @param length
+	 *        length of the value in the buffer
+	 */
+	protected void addVarChange( int varID, byte[] value, int length ) {
+		SignalValueDump dump = getDump( varID );
+		if ( dump != null ) dump.addRecord( timestamp, value, 0, length );
+	}
+
+	/**
+	 * Return the dump, which receives the changes of the signal
+	 * 
+	 * @param varID
+	 *        id of the signal
+	 * @return the dump or null if the signal is unknown
 	 */
-	protected void addVarChange( String varID ) {
-		int ID = CommonMethods.getIDFormString( varID );
-		Application.signalManager.getDump( ID ).addRecord(
-				timestamp / timeDivide * timeRatio, value );
+	protected SignalValueDump getDump( int varID ) {
+		return Application.signalManager.getDump( varID );
 	}
 	
 	/**
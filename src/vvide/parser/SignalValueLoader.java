@@ -0,0 +1,612 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import vvide.Application;
+import vvide.logger.Logger;
+import vvide.signal.AbstractSignal;
+import vvide.signal.DumpStorage;
+import vvide.signal.SignalValueDump;
+import vvide.signal.VectorSignal;
+
+/**
+ * Loader for the values of a VCD-File opened without values. The values of
+ * a signal are extracted in the background, when the signal is shown the
+ * first time. If the index of the file has checkpoints, only the values of a
+ * window around the visible time range are extracted, starting at the last
+ * checkpoint before the window. The window is replaced, when the visible
+ * range leaves it, so the dumps keep the values of one window only
+ */
+public class SignalValueLoader {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * The VCD-File
+	 */
+	private final File file;
+	/**
+	 * Offset of the value section
+	 */
+	private final long valueSectionOffset;
+	/**
+	 * Index of the time blocks
+	 */
+	private final VCDBlockIndex blockIndex;
+	/**
+	 * Signal ids of the identifier codes
+	 */
+	private final VCDIdTable idTable;
+	/**
+	 * Bit width of each signal
+	 */
+	private final HashMap<Integer, Integer> bitWidthMap;
+	/**
+	 * Ids of the real vars
+	 */
+	private final HashSet<Integer> realVars;
+	/**
+	 * Divide for the timestamps
+	 */
+	private final long timeDivide;
+	/**
+	 * Multiply for the timestamps
+	 */
+	private final int timeRatio;
+	/**
+	 * Signals waiting for the values. Accessed in the event dispatch thread
+	 * only
+	 */
+	private final HashMap<Integer, Vector<VectorSignal>> waitingSignals =
+			new HashMap<Integer, Vector<VectorSignal>>();
+	/**
+	 * Signals with the values of the window, which are updated when the
+	 * window is replaced. Accessed in the event dispatch thread only
+	 */
+	private final HashMap<Integer, Vector<VectorSignal>> windowSignals =
+			new HashMap<Integer, Vector<VectorSignal>>();
+	/**
+	 * Flag to extract the values of a window only
+	 */
+	private final boolean windowed;
+	/**
+	 * Scaled start time of the window, accessed in the event dispatch thread
+	 * only
+	 */
+	private long windowStart = 0;
+	/**
+	 * Scaled end time of the window or -1 if no time range was shown yet
+	 */
+	private long windowEnd = -1;
+	/**
+	 * Version of the window, extractions of older windows are skipped
+	 */
+	private volatile int windowVersion = 0;
+	/**
+	 * Thread extracting the values
+	 */
+	private final ExecutorService executor =
+			Executors.newSingleThreadExecutor( new ThreadFactory() {
+
+				@Override
+				public Thread newThread( Runnable runnable ) {
+					Thread thread = new Thread( runnable, "SignalValueLoader" );
+					thread.setDaemon( true );
+					return thread;
+				}
+			} );
+	/**
+	 * Lexer running at the moment
+	 */
+	private AbstractValueLexer lexer = null;
+	/**
+	 * Flag to cancel the work
+	 */
+	private volatile boolean closed = false;
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Constructor
+	 *
+	 * @param file
+	 *        the VCD-File
+	 * @param valueSectionOffset
+	 *        offset of the value section
+	 * @param blockIndex
+	 *        index of the time blocks
+	 * @param idTable
+	 *        signal ids of the identifier codes
+	 * @param bitWidthMap
+	 *        bit width of each signal
+	 * @param realVars
+	 *        ids of the real vars
+	 * @param timeDivide
+	 *        divide for the timestamps
+	 * @param timeRatio
+	 *        multiply for the timestamps
+	 */
+	public SignalValueLoader( File file, long valueSectionOffset,
+			VCDBlockIndex blockIndex, VCDIdTable idTable,
+			HashMap<Integer, Integer> bitWidthMap, HashSet<Integer> realVars,
+			long timeDivide, int timeRatio ) {
+		this.file = file;
+		this.valueSectionOffset = valueSectionOffset;
+		this.blockIndex = blockIndex;
+		this.idTable = idTable;
+		this.bitWidthMap = bitWidthMap;
+		this.realVars = realVars;
+		this.timeDivide = timeDivide;
+		this.timeRatio = timeRatio;
+		this.windowed = blockIndex.hasCheckpoints();
+	}
+
+	/**
+	 * Load the values of the signals, which have no values yet
+	 *
+	 * @param signals
+	 *        signals to load
+	 */
+	public void load( Vector<AbstractSignal> signals ) {
+		Vector<Integer> ids = new Vector<Integer>();
+		collect( signals, ids );
+		if ( ids.isEmpty() ) return;
+
+		execute( ids );
+	}
+
+	/**
+	 * Show a time range. If the range leaves the window, the values of a new
+	 * window with the range and the adjacent ranges are extracted for all
+	 * signals of the window
+	 *
+	 * @param start
+	 *        scaled start time of the range
+	 * @param end
+	 *        scaled end time of the range
+	 */
+	public void showTimes( long start, long end ) {
+		if ( !windowed || (start >= windowStart && end <= windowEnd) ) return;
+		long width = end - start;
+		windowStart = Math.max( 0, start - width );
+		windowEnd = (end > Long.MAX_VALUE - width) ? Long.MAX_VALUE : end + width;
+		windowVersion++;
+
+		HashSet<Integer> idSet = new HashSet<Integer>( windowSignals.keySet() );
+		idSet.addAll( waitingSignals.keySet() );
+		Vector<Integer> ids = new Vector<Integer>( idSet );
+		if ( !ids.isEmpty() ) execute( ids );
+	}
+
+	/**
+	 * Extract the values of the signals in the loader thread. With windows
+	 * the signals wait for the first shown time range, the whole values of a
+	 * signal would be dropped with the first window
+	 *
+	 * @param ids
+	 *        identifiers of the signals
+	 */
+	private void execute( Vector<Integer> ids ) {
+		if ( windowed && windowEnd < 0 ) return;
+		final int[] idArray = new int[ids.size()];
+		for ( int i = 0; i < idArray.length; ++i ) {
+			idArray[i] = ids.get( i );
+		}
+		if ( windowed ) {
+			final int version = windowVersion;
+			final long start = windowStart;
+			final long end = windowEnd;
+			final long rawStart = windowStart / timeRatio * timeDivide;
+			final long rawEnd =
+					(windowEnd / timeRatio >= Long.MAX_VALUE / timeDivide)
+						? Long.MAX_VALUE : (windowEnd / timeRatio + 1)
+							* timeDivide - 1;
+			executor.execute( new Runnable() {
+
+				@Override
+				public void run() {
+					extractWindow( idArray, version, start, end, rawStart,
+							rawEnd );
+				}
+			} );
+			return;
+		}
+		executor.execute( new Runnable() {
+
+			@Override
+			public void run() {
+				extract( idArray );
+			}
+		} );
+	}
+
+	/**
+	 * Collect the identifiers of the signals without values
+	 *
+	 * @param signals
+	 *        signals to check
+	 * @param ids
+	 *        vector for the new identifiers
+	 */
+	private void collect( Vector<AbstractSignal> signals, Vector<Integer> ids ) {
+		for ( AbstractSignal signal : signals ) {
+			if ( signal.isCompound() ) {
+				collect( signal.getChildrens(), ids );
+				continue;
+			}
+			if ( !(signal instanceof VectorSignal) ) continue;
+			VectorSignal vectorSignal = (VectorSignal) signal;
+			if ( vectorSignal.getSignalDump() != null ) continue;
+
+			SignalValueDump dump =
+					Application.signalManager.getDump( signal.getId() );
+			if ( dump != null ) {
+				vectorSignal.setSignalDump( dump );
+				if ( windowed ) addSignal( windowSignals, vectorSignal );
+				continue;
+			}
+			if ( !waitingSignals.containsKey( signal.getId() ) )
+				ids.add( signal.getId() );
+			addSignal( waitingSignals, vectorSignal );
+		}
+	}
+
+	/**
+	 * Add a signal to the signals of its identifier
+	 *
+	 * @param map
+	 *        signals of the identifiers
+	 * @param signal
+	 *        signal to add
+	 */
+	private static void addSignal( HashMap<Integer, Vector<VectorSignal>> map,
+			VectorSignal signal ) {
+		Vector<VectorSignal> signals = map.get( signal.getId() );
+		if ( signals == null ) {
+			signals = new Vector<VectorSignal>();
+			map.put( signal.getId(), signals );
+		}
+		signals.add( signal );
+	}
+
+	/**
+	 * Create the dumps for the signals
+	 *
+	 * @param ids
+	 *        identifiers of the signals
+	 * @param storage
+	 *        storage for the chunks of the dumps
+	 * @return dumps indexed by the identifiers
+	 */
+	private SignalValueDump[] createDumps( int[] ids, DumpStorage storage ) {
+		SignalValueDump[] dumps =
+				new SignalValueDump[Application.signalManager.getCountDumps()];
+		for ( int id : ids ) {
+			Integer bitWidth = bitWidthMap.get( id );
+			if ( bitWidth != null )
+				dumps[id] =
+						new SignalValueDump( bitWidth, !realVars.contains( id ),
+								storage );
+		}
+		return dumps;
+	}
+
+	/**
+	 * Extract the values of the signals from the file. Running in the loader
+	 * thread
+	 *
+	 * @param ids
+	 *        identifiers of the signals
+	 */
+	private void extract( final int[] ids ) {
+		if ( closed ) return;
+		// the dumps are kept until the file is closed
+		final SignalValueDump[] dumps =
+				createDumps( ids, Application.signalManager.getDumpStorage() );
+
+		try {
+			RandomAccessFile input = new RandomAccessFile( file, "r" );
+			try {
+				VCDParallelValueLexer valueLexer = new VCDParallelValueLexer() {
+
+					@Override
+					protected SignalValueDump getDump( int varID ) {
+						return (varID >= 0 && varID < dumps.length)
+							? dumps[varID] : null;
+					}
+
+					@Override
+					protected void updateProgress( long position ) {}
+				};
+				valueLexer.setFileSize( file.length() );
+				valueLexer.setStartOffset( valueSectionOffset );
+				valueLexer.setBlockIndex( blockIndex );
+				valueLexer.setIdTable( idTable );
+				synchronized ( this ) {
+					if ( closed ) return;
+					lexer = valueLexer;
+				}
+				valueLexer.scan( input.getChannel(), valueSectionOffset );
+			}
+			finally {
+				synchronized ( this ) {
+					lexer = null;
+				}
+				input.close();
+			}
+		}
+		catch ( Exception e ) {
+			Logger.logError( this, e );
+			return;
+		}
+		if ( closed ) return;
+		finish( ids, dumps );
+	}
+
+	/**
+	 * Extract the values of a window of the signals from the file, starting at
+	 * the last checkpoint before the window. Running in the loader thread
+	 *
+	 * @param ids
+	 *        identifiers of the signals
+	 * @param version
+	 *        version of the window
+	 * @param scaledStart
+	 *        scaled start time of the window
+	 * @param scaledEnd
+	 *        scaled end time of the window
+	 * @param rawStart
+	 *        raw start time of the window
+	 * @param rawEnd
+	 *        raw end time of the window
+	 */
+	private void extractWindow( int[] ids, int version, long scaledStart,
+			long scaledEnd, long rawStart, long rawEnd ) {
+		if ( closed || version != windowVersion ) return;
+		// a window is small, the dumps are kept on the heap
+		SignalValueDump[] dumps = createDumps( ids, DumpStorage.HEAP );
+		int block = Math.max( 0, blockIndex.findBlock( rawStart ) );
+		VCDBlockIndex.Checkpoint checkpoint = blockIndex.findCheckpoint( block );
+		int endBlock = blockIndex.findBlock( rawEnd ) + 1;
+
+		try {
+			RandomAccessFile input = new RandomAccessFile( file, "r" );
+			try {
+				long end =
+						(endBlock < blockIndex.getCountBlocks()) ? blockIndex
+								.getOffset( endBlock ) : input.length();
+				long start =
+						(checkpoint != null) ? blockIndex.getOffset( checkpoint
+								.getBlock() ) : valueSectionOffset;
+				WindowLexer windowLexer =
+						new WindowLexer( dumps, checkpoint, rawStart );
+				windowLexer.setFileSize( file.length() );
+				windowLexer.setStartOffset( start );
+				windowLexer.setIdTable( idTable );
+				synchronized ( this ) {
+					if ( closed ) return;
+					lexer = windowLexer;
+				}
+				windowLexer.scan( input.getChannel(), start, end );
+				windowLexer.flush();
+			}
+			finally {
+				synchronized ( this ) {
+					lexer = null;
+				}
+				input.close();
+			}
+		}
+		catch ( Exception e ) {
+			Logger.logError( this, e );
+			return;
+		}
+		if ( closed || version != windowVersion ) return;
+		// the queries out of the window are not answered by the dumps
+		for ( int id : ids ) {
+			if ( dumps[id] != null ) dumps[id].setWindow( scaledStart, scaledEnd );
+		}
+		finish( ids, dumps );
+	}
+
+	/**
+	 * Seal the extracted dumps and publish them in the event dispatch thread
+	 *
+	 * @param ids
+	 *        identifiers of the signals
+	 * @param dumps
+	 *        extracted dumps
+	 */
+	private void finish( final int[] ids, final SignalValueDump[] dumps ) {
+		for ( int id : ids ) {
+			if ( dumps[id] == null ) continue;
+			dumps[id].setTimeScale( timeDivide, timeRatio );
+			dumps[id].seal();
+		}
+		SwingUtilities.invokeLater( new Runnable() {
+
+			@Override
+			public void run() {
+				publish( ids, dumps );
+			}
+		} );
+	}
+
+	/**
+	 * Set the extracted dumps to the signals. Running in the event dispatch
+	 * thread
+	 *
+	 * @param ids
+	 *        identifiers of the signals
+	 * @param dumps
+	 *        extracted dumps
+	 */
+	private void publish( int[] ids, SignalValueDump[] dumps ) {
+		if ( closed ) return;
+		for ( int id : ids ) {
+			Application.signalManager.setSignalDump( id, dumps[id] );
+			Vector<VectorSignal> waiting = waitingSignals.remove( id );
+			if ( windowed ) {
+				if ( waiting != null ) {
+					for ( VectorSignal signal : waiting ) {
+						addSignal( windowSignals, signal );
+					}
+				}
+				waiting = windowSignals.get( id );
+			}
+			if ( waiting == null ) continue;
+			for ( VectorSignal signal : waiting ) {
+				signal.setSignalDump( dumps[id] );
+			}
+		}
+		Application.signalManager.valuesLoaded();
+	}
+
+	/**
+	 * Stop the loader
+	 */
+	public void close() {
+		closed = true;
+		synchronized ( this ) {
+			if ( lexer != null ) lexer.interrupt();
+		}
+		executor.shutdown();
+	}
+
+	/*
+	 * ======================== Internal Classes ==============================
+	 */
+	/**
+	 * Lexer for a window. The changes before the window are not stored, only
+	 * the last change of every signal is kept in a buffer of the signal and
+	 * added to the dumps at the first timestamp of the window
+	 */
+	private class WindowLexer extends VCDMappedValueLexer {
+
+		/**
+		 * Dumps of the window
+		 */
+		private final SignalValueDump[] dumps;
+		/**
+		 * Raw start time of the window
+		 */
+		private final long windowStart;
+		/**
+		 * Raw timestamp of the last change of every signal before the window
+		 */
+		private final long[] changeTimes;
+		/**
+		 * Buffer with the ASCII value of the last change of every signal
+		 * before the window or null if the signal has no change yet
+		 */
+		private final byte[][] values;
+		/**
+		 * Length of the last value of every signal
+		 */
+		private final int[] valueLengths;
+		/**
+		 * Flag for the changes before the window added to the dumps
+		 */
+		private boolean flushed = false;
+
+		/**
+		 * Constructor
+		 *
+		 * @param dumps
+		 *        dumps of the window
+		 * @param checkpoint
+		 *        checkpoint, the scan starts at, or null
+		 * @param windowStart
+		 *        raw start time of the window
+		 */
+		public WindowLexer( SignalValueDump[] dumps,
+				VCDBlockIndex.Checkpoint checkpoint, long windowStart ) {
+			this.dumps = dumps;
+			this.windowStart = windowStart;
+			this.changeTimes = new long[dumps.length];
+			this.values = new byte[dumps.length][];
+			this.valueLengths = new int[dumps.length];
+			for ( int id = 0; id < dumps.length; ++id ) {
+				if ( dumps[id] == null ) continue;
+				// the last change is in the latest checkpoint with the signal
+				for ( VCDBlockIndex.Checkpoint c = checkpoint; c != null; c =
+						c.getPrevious() ) {
+					int entry = c.findEntry( id );
+					if ( entry < 0 ) continue;
+					values[id] = new byte[c.getValueLength( entry )];
+					c.copyValue( entry, values[id] );
+					valueLengths[id] = values[id].length;
+					changeTimes[id] = c.getChangeTime( entry );
+					break;
+				}
+			}
+		}
+
+		@Override
+		protected void storeTimeStamp( long timestamp ) {
+			super.storeTimeStamp( timestamp );
+			if ( !flushed && timestamp >= windowStart ) flush();
+		}
+
+		@Override
+		protected void addVarChange( int varID, byte[] value, int length ) {
+			if ( varID < 0 || varID >= dumps.length || dumps[varID] == null )
+				return;
+			if ( flushed ) {
+				dumps[varID].addRecord( timestamp, value, 0, length );
+				return;
+			}
+			if ( values[varID] == null || values[varID].length < length )
+				values[varID] = new byte[Math.max( length, 8 )];
+			System.arraycopy( value, 0, values[varID], 0, length );
+			valueLengths[varID] = length;
+			changeTimes[varID] = timestamp;
+		}
+
+		@Override
+		protected void updateProgress( long position ) {}
+
+		/**
+		 * Add the last change of every signal before the window to the dumps
+		 */
+		public void flush() {
+			if ( flushed ) return;
+			flushed = true;
+			for ( int id = 0; id < dumps.length; ++id ) {
+				if ( values[id] != null )
+					dumps[id].addRecord( changeTimes[id], values[id], 0,
+							valueLengths[id] );
+			}
+		}
+	}
+}
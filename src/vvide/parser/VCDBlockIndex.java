@@ -0,0 +1,329 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+import java.util.Vector;
+
+/**
+ * Index of the time blocks in the value section of a VCD-File. Every block
+ * starts at a line with a timestamp, the blocks are ordered by offset and
+ * time. Some blocks can have a checkpoint with the last changes of the
+ * signals before the block, so the values of a time range are parsed from the
+ * checkpoint before the range instead of the start of the section. A
+ * checkpoint holds only the signals changed since the previous checkpoint,
+ * the other signals are found in the earlier checkpoints
+ */
+public class VCDBlockIndex {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Offsets of the blocks in the file
+	 */
+	private long[] offsets = new long[64];
+	/**
+	 * Raw timestamps at the start of the blocks
+	 */
+	private long[] times = new long[64];
+	/**
+	 * Count of the blocks
+	 */
+	private int countBlocks = 0;
+	/**
+	 * Checkpoints ordered by the blocks
+	 */
+	private final Vector<Checkpoint> checkpoints = new Vector<Checkpoint>();
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Getter for countBlocks
+	 *
+	 * @return count of the blocks
+	 */
+	public int getCountBlocks() {
+		return countBlocks;
+	}
+
+	/**
+	 * Return the offset of the block
+	 *
+	 * @param index
+	 *        index of the block
+	 * @return offset of the block in the file
+	 */
+	public long getOffset( int index ) {
+		return offsets[index];
+	}
+
+	/**
+	 * Return the start time of the block
+	 *
+	 * @param index
+	 *        index of the block
+	 * @return raw timestamp at the start of the block
+	 */
+	public long getTime( int index ) {
+		return times[index];
+	}
+
+	/**
+	 * Return true if the index has checkpoints
+	 */
+	public boolean hasCheckpoints() {
+		return !checkpoints.isEmpty();
+	}
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Add a new block
+	 *
+	 * @param offset
+	 *        offset of the timestamp starting the block
+	 * @param time
+	 *        raw timestamp
+	 */
+	public void addBlock( long offset, long time ) {
+		if ( countBlocks == offsets.length ) {
+			long[] newOffsets = new long[countBlocks * 2];
+			long[] newTimes = new long[countBlocks * 2];
+			System.arraycopy( offsets, 0, newOffsets, 0, countBlocks );
+			System.arraycopy( times, 0, newTimes, 0, countBlocks );
+			offsets = newOffsets;
+			times = newTimes;
+		}
+		offsets[countBlocks] = offset;
+		times[countBlocks] = time;
+		countBlocks++;
+	}
+
+	/**
+	 * Return the offset of the first block at or after the position
+	 *
+	 * @param position
+	 *        position in the file
+	 * @param end
+	 *        value to return if there is no such block
+	 * @return offset of the block or end
+	 */
+	public long getNextOffset( long position, long end ) {
+		int left = 0;
+		int right = countBlocks;
+		while ( left < right ) {
+			int center = (left + right) >>> 1;
+			if ( offsets[center] < position )
+				left = center + 1;
+			else
+				right = center;
+		}
+		return (left < countBlocks) ? offsets[left] : end;
+	}
+
+	/**
+	 * Add a checkpoint to the last block
+	 *
+	 * @param ids
+	 *        ascending ids of the signals changed since the previous
+	 *        checkpoint
+	 * @param changeTimes
+	 *        raw timestamp of the last change of each signal
+	 * @param valueOffsets
+	 *        offset of the value of each signal in the values, followed by
+	 *        the length of the values
+	 * @param values
+	 *        ASCII values of the last change of the signals
+	 */
+	public void addCheckpoint( int[] ids, long[] changeTimes,
+			int[] valueOffsets, byte[] values ) {
+		Checkpoint previous =
+				checkpoints.isEmpty() ? null : checkpoints.lastElement();
+		checkpoints.add( new Checkpoint( countBlocks - 1, previous, ids,
+				changeTimes, valueOffsets, values ) );
+	}
+
+	/**
+	 * Return the index of the last block starting not after the time
+	 *
+	 * @param time
+	 *        raw timestamp
+	 * @return index of the block or -1 if the time is before the first block
+	 */
+	public int findBlock( long time ) {
+		int left = 0;
+		int right = countBlocks;
+		while ( left < right ) {
+			int center = (left + right) >>> 1;
+			if ( times[center] <= time )
+				left = center + 1;
+			else
+				right = center;
+		}
+		return left - 1;
+	}
+
+	/**
+	 * Return the last checkpoint not after the block
+	 *
+	 * @param block
+	 *        index of the block
+	 * @return the checkpoint or null if there is no such checkpoint
+	 */
+	public Checkpoint findCheckpoint( int block ) {
+		Checkpoint result = null;
+		int left = 0;
+		int right = checkpoints.size();
+		while ( left < right ) {
+			int center = (left + right) >>> 1;
+			Checkpoint checkpoint = checkpoints.get( center );
+			if ( checkpoint.block <= block ) {
+				result = checkpoint;
+				left = center + 1;
+			}
+			else
+				right = center;
+		}
+		return result;
+	}
+
+	/*
+	 * ======================== Internal Classes ==============================
+	 */
+	/**
+	 * Last changes of the signals changed between the previous checkpoint and
+	 * the start of a block
+	 */
+	public static class Checkpoint {
+
+		/**
+		 * Index of the block
+		 */
+		private final int block;
+		/**
+		 * The previous checkpoint or null
+		 */
+		private final Checkpoint previous;
+		/**
+		 * Ascending ids of the changed signals
+		 */
+		private final int[] ids;
+		/**
+		 * Raw timestamp of the last change of each signal
+		 */
+		private final long[] changeTimes;
+		/**
+		 * Offset of the value of each signal, followed by the length of the
+		 * values
+		 */
+		private final int[] valueOffsets;
+		/**
+		 * ASCII values of the last change of the signals
+		 */
+		private final byte[] values;
+
+		/**
+		 * Constructor
+		 */
+		private Checkpoint( int block, Checkpoint previous, int[] ids,
+				long[] changeTimes, int[] valueOffsets, byte[] values ) {
+			this.block = block;
+			this.previous = previous;
+			this.ids = ids;
+			this.changeTimes = changeTimes;
+			this.valueOffsets = valueOffsets;
+			this.values = values;
+		}
+
+		/**
+		 * Return the index of the block
+		 */
+		public int getBlock() {
+			return block;
+		}
+
+		/**
+		 * Return the previous checkpoint
+		 *
+		 * @return the checkpoint or null for the first checkpoint
+		 */
+		public Checkpoint getPrevious() {
+			return previous;
+		}
+
+		/**
+		 * Return the entry of the signal
+		 *
+		 * @param id
+		 *        id of the signal
+		 * @return index of the entry or -1 if the signal has no change
+		 *         between the previous checkpoint and the block
+		 */
+		public int findEntry( int id ) {
+			int left = 0;
+			int right = ids.length;
+			while ( left < right ) {
+				int center = (left + right) >>> 1;
+				if ( ids[center] < id )
+					left = center + 1;
+				else
+					right = center;
+			}
+			return (left < ids.length && ids[left] == id) ? left : -1;
+		}
+
+		/**
+		 * Return the time of the last change of the signal of the entry
+		 *
+		 * @param entry
+		 *        index of the entry
+		 * @return raw timestamp of the change
+		 */
+		public long getChangeTime( int entry ) {
+			return changeTimes[entry];
+		}
+
+		/**
+		 * Return the length of the value of the entry
+		 *
+		 * @param entry
+		 *        index of the entry
+		 * @return count of ASCII characters
+		 */
+		public int getValueLength( int entry ) {
+			return valueOffsets[entry + 1] - valueOffsets[entry];
+		}
+
+		/**
+		 * Copy the value of the entry
+		 *
+		 * @param entry
+		 *        index of the entry
+		 * @param buffer
+		 *        buffer for the ASCII value, at least as long as the value
+		 */
+		public void copyValue( int entry, byte[] buffer ) {
+			System.arraycopy( values, valueOffsets[entry], buffer, 0,
+					getValueLength( entry ) );
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+/**
+ * Table mapping the identifier codes of a VCD-File to dense signal ids. The
+ * ids are given in the order the codes are added, starting with 1. The codes
+ * are stored as bytes in one pool and found by an open addressing hash
+ * table, so the memory depends on the count of codes only. The table is
+ * built by the header lexer and read by the value lexers
+ */
+public class VCDIdTable {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Start value of the FNV-1a hash
+	 */
+	private static final int HASH_START = 0x811C9DC5;
+	/**
+	 * Prime of the FNV-1a hash
+	 */
+	private static final int HASH_PRIME = 0x01000193;
+	/**
+	 * Slots of the hash table with the ids, 0 for an empty slot
+	 */
+	private int[] slots = new int[64];
+	/**
+	 * Hash of the code of every id
+	 */
+	private int[] hashes = new int[33];
+	/**
+	 * Offset of the code of every id in the pool, the code of an id ends at
+	 * the offset of the next id
+	 */
+	private int[] offsets = new int[33];
+	/**
+	 * Bytes of all codes
+	 */
+	private byte[] pool = new byte[256];
+	/**
+	 * Count of the codes
+	 */
+	private int count = 0;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the count of the codes
+	 *
+	 * @return count of the codes, equal to the largest id
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Return the id of the code
+	 *
+	 * @param code
+	 *        buffer with the code
+	 * @param offset
+	 *        offset of the code in the buffer
+	 * @param length
+	 *        length of the code
+	 * @return the id or -1 if the code is unknown
+	 */
+	public int get( byte[] code, int offset, int length ) {
+		int hash = hash( code, offset, length );
+		int mask = slots.length - 1;
+		for ( int slot = hash & mask;; slot = (slot + 1) & mask ) {
+			int id = slots[slot];
+			if ( id == 0 ) return -1;
+			if ( hashes[id] == hash && equals( id, code, offset, length ) )
+				return id;
+		}
+	}
+
+	/**
+	 * Return the id of the code
+	 *
+	 * @param code
+	 *        the code
+	 * @return the id or -1 if the code is unknown
+	 */
+	public int get( String code ) {
+		return get( code.toCharArray(), 0, code.length() );
+	}
+
+	/**
+	 * Return the id of the code
+	 *
+	 * @param code
+	 *        buffer with the code
+	 * @param offset
+	 *        offset of the code in the buffer
+	 * @param length
+	 *        length of the code
+	 * @return the id or -1 if the code is unknown
+	 */
+	public int get( char[] code, int offset, int length ) {
+		int hash = HASH_START;
+		for ( int i = offset; i < offset + length; ++i ) {
+			hash = (hash ^ (code[i] & 0xFF)) * HASH_PRIME;
+		}
+		hash ^= hash >>> 16;
+		int mask = slots.length - 1;
+		for ( int slot = hash & mask;; slot = (slot + 1) & mask ) {
+			int id = slots[slot];
+			if ( id == 0 ) return -1;
+			if ( hashes[id] != hash
+				|| offsets[id + 1] - offsets[id] != length ) continue;
+			int start = offsets[id];
+			int i = 0;
+			while ( i < length && pool[start + i] == (byte) code[offset + i] ) {
+				++i;
+			}
+			if ( i == length ) return id;
+		}
+	}
+
+	/**
+	 * Add a code to the table. A code, which is already in the table, keeps
+	 * its id
+	 *
+	 * @param code
+	 *        the code
+	 * @return the id of the code
+	 */
+	public int add( String code ) {
+		int id = get( code );
+		if ( id != -1 ) return id;
+
+		byte[] bytes = new byte[code.length()];
+		for ( int i = 0; i < bytes.length; ++i ) {
+			bytes[i] = (byte) code.charAt( i );
+		}
+		return add( bytes, 0, bytes.length );
+	}
+
+	/**
+	 * Add a new code
+	 *
+	 * @return the id of the code
+	 */
+	private int add( byte[] code, int offset, int length ) {
+		if ( (count + 1) * 2 > slots.length ) rehash( slots.length * 2 );
+		if ( count + 2 >= offsets.length ) {
+			int[] newOffsets = new int[offsets.length * 2];
+			System.arraycopy( offsets, 0, newOffsets, 0, offsets.length );
+			offsets = newOffsets;
+			int[] newHashes = new int[offsets.length];
+			System.arraycopy( hashes, 0, newHashes, 0, hashes.length );
+			hashes = newHashes;
+		}
+		int start = offsets[count + 1];
+		if ( start + length > pool.length ) {
+			byte[] newPool =
+					new byte[Math.max( pool.length * 2, start + length )];
+			System.arraycopy( pool, 0, newPool, 0, start );
+			pool = newPool;
+		}
+
+		int id = ++count;
+		System.arraycopy( code, offset, pool, start, length );
+		offsets[id] = start;
+		offsets[id + 1] = start + length;
+		hashes[id] = hash( code, offset, length );
+		insert( id );
+		return id;
+	}
+
+	/**
+	 * Put the id into a free slot
+	 */
+	private void insert( int id ) {
+		int mask = slots.length - 1;
+		int slot = hashes[id] & mask;
+		while ( slots[slot] != 0 ) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = id;
+	}
+
+	/**
+	 * Create a bigger hash table
+	 */
+	private void rehash( int size ) {
+		slots = new int[size];
+		for ( int id = 1; id <= count; ++id ) {
+			insert( id );
+		}
+	}
+
+	/**
+	 * Compare the code of an id with the code
+	 */
+	private boolean equals( int id, byte[] code, int offset, int length ) {
+		int start = offsets[id];
+		if ( offsets[id + 1] - start != length ) return false;
+		for ( int i = 0; i < length; ++i ) {
+			if ( pool[start + i] != code[offset + i] ) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * FNV-1a hash of the code, the high bits are mixed into the low bits
+	 * used by the table
+	 */
+	private static int hash( byte[] code, int offset, int length ) {
+		int hash = HASH_START;
+		for ( int i = offset; i < offset + length; ++i ) {
+			hash = (hash ^ (code[i] & 0xFF)) * HASH_PRIME;
+		}
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+import java.util.Arrays;
+
+import vvide.signal.SignalValueDump;
+
+/**
+ * Lexer scanning the value section without storing the values. Collects the
+ * time range of the file and builds the index of the time blocks. With
+ * checkpoints the last value of every signal is kept in a buffer of the
+ * signal, and every CHECKPOINT_BLOCKS blocks the values changed since the
+ * previous checkpoint are copied to the index
+ */
+public class VCDIndexLexer extends VCDMappedValueLexer {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Minimal size of a block
+	 */
+	private static final long BLOCK_SIZE = 1L << 20;
+	/**
+	 * Count of blocks between two checkpoints
+	 */
+	private static final int CHECKPOINT_BLOCKS = 16;
+	/**
+	 * The index
+	 */
+	private final VCDBlockIndex blockIndex = new VCDBlockIndex();
+	/**
+	 * Offset of the last block
+	 */
+	private long lastBlockOffset = -BLOCK_SIZE;
+	/**
+	 * Flag to add checkpoints to the index
+	 */
+	private boolean checkpoints = false;
+	/**
+	 * Raw timestamp of the last change of every signal
+	 */
+	private long[] changeTimes = new long[0];
+	/**
+	 * Buffer with the ASCII value of the last change of every signal, reused
+	 * for the next changes
+	 */
+	private byte[][] values = new byte[0][];
+	/**
+	 * Length of the last value of every signal
+	 */
+	private int[] valueLengths = new int[0];
+	/**
+	 * Flag of every signal changed since the last checkpoint
+	 */
+	private boolean[] changed = new boolean[0];
+	/**
+	 * Ids of the signals changed since the last checkpoint
+	 */
+	private int[] changedIds = new int[0];
+	/**
+	 * Count of the signals changed since the last checkpoint
+	 */
+	private int countChanged = 0;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Getter for blockIndex
+	 *
+	 * @return the index of the time blocks
+	 */
+	public VCDBlockIndex getBlockIndex() {
+		return blockIndex;
+	}
+
+	/**
+	 * Setter for checkpoints
+	 *
+	 * @param checkpoints
+	 *        true to add the values of all signals to the index every
+	 *        CHECKPOINT_BLOCKS blocks
+	 */
+	public void setCheckpoints( boolean checkpoints ) {
+		this.checkpoints = checkpoints;
+	}
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	@Override
+	protected void storeTimeStamp( long timestamp ) {
+		super.storeTimeStamp( timestamp );
+		long offset = getTimestampOffset();
+		if ( offset - lastBlockOffset >= BLOCK_SIZE ) {
+			blockIndex.addBlock( offset, timestamp );
+			lastBlockOffset = offset;
+			if ( checkpoints
+				&& (blockIndex.getCountBlocks() - 1) % CHECKPOINT_BLOCKS == 0 ) {
+				addCheckpoint();
+			}
+		}
+	}
+
+	/**
+	 * Copy the values of the signals changed since the last checkpoint to a
+	 * new checkpoint
+	 */
+	private void addCheckpoint() {
+		int[] ids = new int[countChanged];
+		System.arraycopy( changedIds, 0, ids, 0, countChanged );
+		Arrays.sort( ids );
+		long[] times = new long[countChanged];
+		int[] valueOffsets = new int[countChanged + 1];
+		for ( int i = 0; i < countChanged; ++i ) {
+			times[i] = changeTimes[ids[i]];
+			valueOffsets[i + 1] = valueOffsets[i] + valueLengths[ids[i]];
+			changed[ids[i]] = false;
+		}
+		byte[] checkpointValues = new byte[valueOffsets[countChanged]];
+		for ( int i = 0; i < countChanged; ++i ) {
+			System.arraycopy( values[ids[i]], 0, checkpointValues,
+					valueOffsets[i], valueLengths[ids[i]] );
+		}
+		blockIndex.addCheckpoint( ids, times, valueOffsets, checkpointValues );
+		countChanged = 0;
+	}
+
+	@Override
+	protected void addVarChange( int varID, byte[] value, int length ) {
+		if ( !checkpoints || varID < 0 ) return;
+		if ( varID >= values.length ) grow( varID + 1 );
+		if ( values[varID] == null || values[varID].length < length )
+			values[varID] = new byte[Math.max( length, 8 )];
+		System.arraycopy( value, 0, values[varID], 0, length );
+		valueLengths[varID] = length;
+		changeTimes[varID] = timestamp;
+		if ( !changed[varID] ) {
+			changed[varID] = true;
+			changedIds[countChanged++] = varID;
+		}
+	}
+
+	/**
+	 * Grow the arrays of the signals
+	 *
+	 * @param count
+	 *        minimal count of signals
+	 */
+	private void grow( int count ) {
+		int capacity = Math.max( count, values.length * 2 );
+		long[] newTimes = new long[capacity];
+		byte[][] newValues = new byte[capacity][];
+		int[] newLengths = new int[capacity];
+		boolean[] newChanged = new boolean[capacity];
+		int[] newChangedIds = new int[capacity];
+		System.arraycopy( changeTimes, 0, newTimes, 0, values.length );
+		System.arraycopy( values, 0, newValues, 0, values.length );
+		System.arraycopy( valueLengths, 0, newLengths, 0, values.length );
+		System.arraycopy( changed, 0, newChanged, 0, values.length );
+		System.arraycopy( changedIds, 0, newChangedIds, 0, countChanged );
+		changeTimes = newTimes;
+		values = newValues;
+		valueLengths = newLengths;
+		changed = newChanged;
+		changedIds = newChangedIds;
+	}
+
+	@Override
+	protected SignalValueDump getDump( int varID ) {
+		return null;
+	}
+}
@@ -0,0 +1,409 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Value lexer working directly on the bytes of the VCD-File. Recognizes the
+ * same tokens as the VCDValueLexer, but decodes timestamps, values and
+ * identifiers without creating any objects. The state is kept between the
+ * calls of scan, so a token can be split between two buffers
+ */
+public class VCDMappedValueLexer extends AbstractValueLexer {
+
+	/*
+	 * ============================ Constants ================================
+	 */
+	/**
+	 * Size of the file window mapped at once
+	 */
+	private static final long WINDOW_SIZE = 64L << 20;
+	/**
+	 * Keyword closing an ignored command
+	 */
+	private static final byte[] END = { '$', 'e', 'n', 'd' };
+	/**
+	 * Keyword of the dumpvars command
+	 */
+	private static final byte[] DUMPVARS =
+			{ 'd', 'u', 'm', 'p', 'v', 'a', 'r', 's' };
+
+	/*
+	 * ============================== States =================================
+	 */
+	private static final int INITIAL = 0;
+	private static final int DOLLAR = 1;
+	private static final int COMMAND = 2;
+	private static final int HASH = 3;
+	private static final int TIMESTAMP = 4;
+	private static final int REAL_PREFIX = 5;
+	private static final int REAL = 6;
+	private static final int VECTOR_PREFIX = 7;
+	private static final int VECTOR = 8;
+	private static final int VALUE_CHANGE_ID = 9;
+	private static final int IDENTIFIER = 10;
+	private static final int IGNORED = 11;
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Current state of the lexer
+	 */
+	private int state = INITIAL;
+	/**
+	 * Offset of the current buffer from the start offset
+	 */
+	private long bufferOffset = 0;
+	/**
+	 * Value of the current timestamp token
+	 */
+	private long number;
+	/**
+	 * Offset of the current timestamp token in the file
+	 */
+	private long timestampOffset;
+	/**
+	 * Bytes of the current identifier code
+	 */
+	private byte[] idBytes = new byte[16];
+	/**
+	 * Length of the current identifier code
+	 */
+	private int idLength;
+	/**
+	 * First letters of the current command
+	 */
+	private byte[] command = new byte[DUMPVARS.length];
+	/**
+	 * Length of the current command
+	 */
+	private int commandLength;
+	/**
+	 * Count of matched characters of the "$end" keyword
+	 */
+	private int endMatch;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the offset of the last timestamp
+	 *
+	 * @return offset of the '#' character of the last timestamp in the file
+	 */
+	protected long getTimestampOffset() {
+		return timestampOffset;
+	}
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Scan the file from the specified position to the end. The file is
+	 * mapped window by window
+	 *
+	 * @param channel
+	 *        channel of the file
+	 * @param start
+	 *        position of the first byte to scan
+	 * @throws IOException
+	 */
+	public void scan( FileChannel channel, long start ) throws IOException {
+		scan( channel, start, channel.size() );
+	}
+
+	/**
+	 * Scan the file from the start position to the end position. The file is
+	 * mapped window by window
+	 *
+	 * @param channel
+	 *        channel of the file
+	 * @param start
+	 *        position of the first byte to scan
+	 * @param end
+	 *        position after the last byte to scan
+	 * @throws IOException
+	 */
+	public void scan( FileChannel channel, long start, long end )
+			throws IOException {
+		if ( scanWindows( channel, start, end ) ) finish();
+	}
+
+	/**
+	 * Scan the file from the start position to the end position without
+	 * finishing the pending token, so the scan can be continued after the end
+	 * position
+	 *
+	 * @param channel
+	 *        channel of the file
+	 * @param start
+	 *        position of the first byte to scan
+	 * @param end
+	 *        position after the last byte to scan
+	 * @return false if the lexer was interrupted
+	 * @throws IOException
+	 */
+	protected boolean scanWindows( FileChannel channel, long start, long end )
+			throws IOException {
+		long position = start;
+		while ( position < end ) {
+			long length = Math.min( WINDOW_SIZE, end - position );
+			if ( !scan( channel.map( FileChannel.MapMode.READ_ONLY, position,
+					length ) ) ) return false;
+			position += length;
+		}
+		return true;
+	}
+
+	/**
+	 * Scan the bytes between the position and the limit of the buffer
+	 *
+	 * @param buffer
+	 *        buffer to scan
+	 * @return false if the lexer was interrupted
+	 */
+	public boolean scan( ByteBuffer buffer ) {
+		int i = buffer.position();
+		int limit = buffer.limit();
+		int start = i;
+
+		while ( i < limit ) {
+			int c = buffer.get( i );
+			switch ( state ) {
+				case INITIAL:
+					switch ( c ) {
+						case '$':
+							state = DOLLAR;
+							break;
+						case '#':
+							timestampOffset =
+									startOffset + bufferOffset + i - start;
+							state = HASH;
+							break;
+						case 'r':
+						case 'R':
+							state = REAL_PREFIX;
+							break;
+						case 'b':
+						case 'B':
+							state = VECTOR_PREFIX;
+							break;
+						case '0':
+						case '1':
+						case 'x':
+						case 'X':
+						case 'z':
+						case 'Z':
+							valueBytes[0] = (byte) c;
+							valueLength = 1;
+							state = VALUE_CHANGE_ID;
+							break;
+					}
+					++i;
+					break;
+				case DOLLAR:
+					if ( isLetter( c ) ) {
+						commandLength = 0;
+						state = COMMAND;
+					}
+					else
+						state = INITIAL;
+					break;
+				case COMMAND:
+					if ( isLetter( c ) ) {
+						if ( commandLength < command.length )
+							command[commandLength] = (byte) c;
+						++commandLength;
+						++i;
+					}
+					else
+						state = isKnownCommand() ? INITIAL : IGNORED;
+					endMatch = 0;
+					break;
+				case HASH:
+					if ( isDigit( c ) ) {
+						number = 0;
+						state = TIMESTAMP;
+					}
+					else
+						state = INITIAL;
+					break;
+				case TIMESTAMP:
+					if ( isDigit( c ) ) {
+						number = number * 10 + (c - '0');
+						++i;
+					}
+					else {
+						state = INITIAL;
+						if ( !setTimeStamp( i - start ) ) return false;
+					}
+					break;
+				case REAL_PREFIX:
+					if ( isDigit( c ) || c == '.' ) {
+						valueLength = 0;
+						state = REAL;
+					}
+					else
+						state = INITIAL;
+					break;
+				case VECTOR_PREFIX:
+					if ( isVectorDigit( c ) ) {
+						valueLength = 0;
+						state = VECTOR;
+					}
+					else
+						state = INITIAL;
+					break;
+				case REAL:
+				case VECTOR:
+					if ( state == REAL ? (isDigit( c ) || c == '.')
+						: isVectorDigit( c ) ) {
+						appendValue( c );
+						++i;
+					}
+					else
+						state = VALUE_CHANGE_ID;
+					break;
+				case VALUE_CHANGE_ID:
+					if ( c == '\n' || c == '\r' )
+						state = INITIAL;
+					else
+						if ( c >= '!' && c <= '~' ) {
+							idLength = 0;
+							state = IDENTIFIER;
+							break;
+						}
+					++i;
+					break;
+				case IDENTIFIER:
+					if ( c >= '!' && c <= '~' ) {
+						if ( idLength == idBytes.length ) {
+							byte[] newBytes = new byte[idBytes.length * 2];
+							System.arraycopy( idBytes, 0, newBytes, 0, idLength );
+							idBytes = newBytes;
+						}
+						idBytes[idLength++] = (byte) c;
+						++i;
+					}
+					else {
+						addVarChange( idTable.get( idBytes, 0, idLength ),
+								valueBytes, valueLength );
+						state = VALUE_CHANGE_ID;
+					}
+					break;
+				case IGNORED:
+					if ( c == END[endMatch] ) {
+						if ( ++endMatch == END.length ) state = INITIAL;
+					}
+					else
+						endMatch = (c == '$') ? 1 : 0;
+					++i;
+					break;
+			}
+		}
+		bufferOffset += limit - start;
+		buffer.position( limit );
+		return true;
+	}
+
+	/**
+	 * Return true if the lexer is in a command, which is ignored up to its
+	 * "$end", like a comment
+	 */
+	protected boolean isIgnoring() {
+		return state == IGNORED;
+	}
+
+	/**
+	 * Finish the pending token at the end of the input
+	 */
+	public void finish() {
+		if ( state == TIMESTAMP ) {
+			storeTimeStamp( number );
+		}
+		else
+			if ( state == IDENTIFIER ) {
+				addVarChange( idTable.get( idBytes, 0, idLength ), valueBytes,
+						valueLength );
+			}
+		state = INITIAL;
+	}
+
+	/**
+	 * Store the decoded timestamp and update the progress
+	 *
+	 * @param position
+	 *        position of the timestamp end in the current buffer
+	 * @return false if the lexer was interrupted
+	 */
+	private boolean setTimeStamp( int position ) {
+		if ( interrupted ) return false;
+		countChangesAdded++;
+		storeTimeStamp( number );
+		if ( (countChangesAdded & 0x1FFF) == 0 ) {
+			countChangesAdded = 0;
+			updateProgress( startOffset + bufferOffset + position );
+		}
+		return true;
+	}
+
+	/**
+	 * Check if the current command does not start an ignored section
+	 *
+	 * @return true for "$dumpvars" and "$end"
+	 */
+	private boolean isKnownCommand() {
+		return isCommand( DUMPVARS, 0 ) || isCommand( END, 1 );
+	}
+
+	/**
+	 * Compare the current command with a keyword
+	 *
+	 * @param keyword
+	 *        keyword to compare
+	 * @param offset
+	 *        offset of the first letter in the keyword
+	 * @return true if the command is the keyword
+	 */
+	private boolean isCommand( byte[] keyword, int offset ) {
+		if ( commandLength != keyword.length - offset ) return false;
+		for ( int i = 0; i < commandLength; ++i ) {
+			if ( command[i] != keyword[offset + i] ) return false;
+		}
+		return true;
+	}
+
+	private static boolean isLetter( int c ) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit( int c ) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isVectorDigit( int c ) {
+		return c == '0' || c == '1' || c == 'x' || c == 'X' || c == 'z'
+			|| c == 'Z';
+	}
+}
@@ -0,0 +1,401 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import vvide.Application;
+import vvide.signal.DumpStorage;
+import vvide.signal.SignalValueDump;
+
+/**
+ * Value lexer parsing the value section on all processors. The section is
+ * split into chunks at the lines starting with a timestamp, every chunk is
+ * scanned by an own VCDMappedValueLexer into own dumps and the dumps are
+ * appended to the signal dumps in the order of the chunks. A line with a
+ * timestamp can be a part of a comment, so a chunk following a chunk, which
+ * ends in an ignored command, is scanned again by the lexer of the previous
+ * chunk
+ */
+public class VCDParallelValueLexer extends AbstractValueLexer {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Minimal size of a chunk
+	 */
+	private static final long MIN_CHUNK_SIZE = 4L << 20;
+	/**
+	 * Count of chunks for every thread
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	/**
+	 * Count of the threads
+	 */
+	private final int countThreads =
+			Runtime.getRuntime().availableProcessors();
+	/**
+	 * Lexers of the chunks
+	 */
+	private final Vector<ChunkLexer> lexers = new Vector<ChunkLexer>();
+	/**
+	 * Bytes scanned by all lexers
+	 */
+	private final AtomicLong scannedBytes = new AtomicLong();
+	/**
+	 * Index of the time blocks used to split the section
+	 */
+	private VCDBlockIndex blockIndex = null;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Setter for blockIndex
+	 *
+	 * @param blockIndex
+	 *        index of the time blocks, the chunks start at the blocks of the
+	 *        index instead of searching for a timestamp
+	 */
+	public void setBlockIndex( VCDBlockIndex blockIndex ) {
+		this.blockIndex = blockIndex;
+	}
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Scan the file from the specified position to the end
+	 *
+	 * @param channel
+	 *        channel of the file
+	 * @param start
+	 *        position of the first byte to scan
+	 * @throws IOException
+	 */
+	public void scan( FileChannel channel, long start ) throws IOException {
+		Vector<Long> bounds = split( channel, start );
+		for ( int i = 0; i < bounds.size() - 1; ++i ) {
+			ChunkLexer lexer = new ChunkLexer( channel, bounds.get( i ),
+					bounds.get( i + 1 ) );
+			synchronized ( this ) {
+				if ( interrupted ) return;
+				lexers.add( lexer );
+			}
+		}
+
+		try {
+			scanChunks();
+			if ( interrupted ) return;
+
+			// Stitching the chunks in the time order
+			ChunkLexer current = null;
+			for ( int i = 0; i < lexers.size(); ++i ) {
+				ChunkLexer lexer = lexers.get( i );
+				if ( current != null && current.isIgnoring() ) {
+					// the chunk started in the ignored command
+					lexer.release();
+					if ( !current.scanWindows( channel, lexer.start,
+							lexer.end ) ) return;
+					continue;
+				}
+				if ( current != null ) append( current );
+				current = lexer;
+			}
+			if ( current != null ) append( current );
+		}
+		finally {
+			for ( ChunkLexer lexer : lexers ) {
+				lexer.release();
+			}
+			lexers.clear();
+		}
+	}
+
+	/**
+	 * Scan the chunks on the thread pool
+	 *
+	 * @throws IOException
+	 */
+	private void scanChunks() throws IOException {
+		ExecutorService executor =
+				Executors.newFixedThreadPool( Math.min( countThreads,
+						lexers.size() ) );
+		try {
+			Vector<Future<Object>> results = new Vector<Future<Object>>();
+			for ( ChunkLexer lexer : lexers ) {
+				results.add( executor.submit( lexer ) );
+			}
+			for ( Future<Object> result : results ) {
+				result.get();
+			}
+		}
+		catch ( InterruptedException e ) {
+			interrupt();
+		}
+		catch ( ExecutionException e ) {
+			if ( e.getCause() instanceof IOException )
+				throw (IOException) e.getCause();
+			throw new RuntimeException( e.getCause() );
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Append the dumps of a chunk to the signal dumps. The dumps of the chunk
+	 * and their storage are released at once, so the parsed values are not
+	 * kept twice
+	 *
+	 * @param lexer
+	 *        lexer of the chunk
+	 */
+	private void append( ChunkLexer lexer ) {
+		lexer.finish();
+		SignalValueDump[] dumps = lexer.dumps;
+		if ( dumps != null ) {
+			for ( int id = 0; id < dumps.length; ++id ) {
+				if ( dumps[id] == null ) continue;
+				getDump( id ).addRecords( dumps[id] );
+				dumps[id] = null;
+			}
+		}
+		lexer.release();
+		if ( lexer.firstTimestamp != null ) {
+			minInterval =
+					Math.min( minInterval, Math.min( lexer.getMinInterval(),
+							lexer.firstTimestamp - lastTimestamp ) );
+			lastTimestamp = lexer.getLastTimestamp();
+		}
+	}
+
+	/**
+	 * Split the section into chunks. Every chunk except the first starts at a
+	 * line with a timestamp
+	 *
+	 * @param channel
+	 *        channel of the file
+	 * @param start
+	 *        position of the section
+	 * @return positions of the chunk borders, including start and end of the
+	 *         section
+	 * @throws IOException
+	 */
+	private Vector<Long> split( FileChannel channel, long start )
+			throws IOException {
+		long end = channel.size();
+		long chunkSize =
+				Math.max( MIN_CHUNK_SIZE, (end - start)
+					/ (countThreads * CHUNKS_PER_THREAD) );
+		Vector<Long> bounds = new Vector<Long>();
+		bounds.add( start );
+		long position = start + chunkSize;
+		while ( position < end ) {
+			position =
+					(blockIndex != null) ? blockIndex.getNextOffset( position,
+							end ) : findTimestampLine( channel, position, end );
+			if ( position < end ) bounds.add( position );
+			position += chunkSize;
+		}
+		bounds.add( end );
+		return bounds;
+	}
+
+	/**
+	 * Find the first line starting with a timestamp after the position
+	 *
+	 * @param channel
+	 *        channel of the file
+	 * @param position
+	 *        position to start the search
+	 * @param end
+	 *        end of the file
+	 * @return position of the '#' character or end if there is no timestamp
+	 * @throws IOException
+	 */
+	private long findTimestampLine( FileChannel channel, long position,
+			long end ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate( 64 << 10 );
+		// last characters of the previous buffer
+		int previous = 0;
+		int current = 0;
+		while ( position < end ) {
+			buffer.clear();
+			int count = channel.read( buffer, position );
+			if ( count <= 0 ) break;
+			for ( int i = 0; i < count; ++i ) {
+				int next = buffer.get( i );
+				if ( (previous == '\n' || previous == '\r') && current == '#'
+					&& next >= '0' && next <= '9' )
+					return position + i - 1;
+				previous = current;
+				current = next;
+			}
+			position += count;
+		}
+		return end;
+	}
+
+	/**
+	 * Report the progress of all chunks
+	 *
+	 * @param scanned
+	 *        bytes scanned by all lexers
+	 */
+	private synchronized void reportProgress( long scanned ) {
+		updateProgress( startOffset + scanned );
+	}
+
+	/**
+	 * Cancel the parsing
+	 */
+	@Override
+	public synchronized void interrupt() {
+		super.interrupt();
+		for ( ChunkLexer lexer : lexers ) {
+			lexer.interrupt();
+		}
+	}
+
+	/**
+	 * Lexer for one chunk. Collect the changes in own dumps
+	 */
+	private class ChunkLexer extends VCDMappedValueLexer implements
+			Callable<Object> {
+
+		/**
+		 * Channel of the file
+		 */
+		private final FileChannel channel;
+		/**
+		 * Start of the chunk
+		 */
+		private final long start;
+		/**
+		 * End of the chunk
+		 */
+		private final long end;
+		/**
+		 * Dumps of the chunk, null until the first change in the chunk
+		 */
+		private SignalValueDump[] dumps = null;
+		/**
+		 * Own storage for the chunks of the dumps, closed after the dumps
+		 * are appended
+		 */
+		private DumpStorage storage = null;
+		/**
+		 * Position reported to the progress
+		 */
+		private long reportedPosition;
+		/**
+		 * First timestamp of the chunk
+		 */
+		private Long firstTimestamp = null;
+
+		/**
+		 * Constructor
+		 */
+		public ChunkLexer( FileChannel channel, long start, long end ) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.reportedPosition = start;
+			setStartOffset( start );
+			setFileSize( VCDParallelValueLexer.this.fileSize );
+			setParser( VCDParallelValueLexer.this.parser );
+			setIdTable( VCDParallelValueLexer.this.idTable );
+		}
+
+		@Override
+		public Object call() throws IOException {
+			// the pending token is finished when the chunk is appended
+			scanWindows( channel, start, end );
+			updateProgress( end );
+			return null;
+		}
+
+		@Override
+		protected SignalValueDump getDump( int varID ) {
+			if ( dumps == null ) {
+				dumps =
+						new SignalValueDump[Application.signalManager
+								.getCountDumps()];
+				storage =
+						Application.signalManager.getDumpStorage()
+								.createTemporary();
+			}
+			if ( varID < 0 || varID >= dumps.length ) return null;
+			SignalValueDump dump = dumps[varID];
+			if ( dump == null ) {
+				SignalValueDump signalDump =
+						VCDParallelValueLexer.this.getDump( varID );
+				if ( signalDump == null ) return null;
+				dump =
+						new SignalValueDump( signalDump.getValueLength(),
+								signalDump.isPacked(), storage );
+				// the codes are given when the chunk is appended
+				dump.disableDictionary();
+				dumps[varID] = dump;
+			}
+			return dump;
+		}
+
+		@Override
+		protected void storeTimeStamp( long timestamp ) {
+			if ( firstTimestamp == null ) {
+				// interval to the previous chunk is added by the stitching
+				firstTimestamp = timestamp;
+				lastTimestamp = timestamp;
+				this.timestamp = timestamp;
+			}
+			else
+				super.storeTimeStamp( timestamp );
+		}
+
+		@Override
+		protected void updateProgress( long position ) {
+			long scanned =
+					scannedBytes.addAndGet( position - reportedPosition );
+			reportedPosition = position;
+			reportProgress( scanned );
+		}
+
+		/**
+		 * Drop the dumps of the chunk and close their storage
+		 */
+		private void release() {
+			dumps = null;
+			if ( storage != null ) storage.close();
+			storage = null;
+		}
+	}
+}
@@ -44,6 +44,10 @@ public class VCDParser extends AbstractParser {
 	 * A background thread for a parser
 	 */
 	private VCDParserThread	thread;
+	/**
+	 * Show, that the followed file is completely written
+	 */
+	private volatile boolean writeFinished = false;
 
 	/*
 	 * ============================ Methods ==================================
@@ -62,6 +66,39 @@ public class VCDParser extends AbstractParser {
 		return true;
 	}
 
+	/**
+	 * Start the parser for a file, which is written by a running simulation.
+	 * The parser waits for the header, shows the signals and appends the
+	 * values written to the file until finishFollow is called
+	 *
+	 * @param file
+	 *        file to follow
+	 * @return true, if the parser start correctly, false otherwise
+	 */
+	public boolean startFollow(File file) {
+		if (this.thread == null) {
+			this.thread = new VCDParserThread(this, file, true);
+		}
+		return startParse(file);
+	}
+
+	/**
+	 * Notify the parser, that the followed file is completely written. The
+	 * parser reads the rest of the file and stops
+	 */
+	public void finishFollow() {
+		writeFinished = true;
+	}
+
+	/**
+	 * Return if the followed file is completely written
+	 *
+	 * @return true after finishFollow was called
+	 */
+	/* package */boolean isWriteFinished() {
+		return writeFinished;
+	}
+
 	@Override
 	public boolean stopParse() {
 		if ((thread == null) || (!thread.isAlive())) return true;
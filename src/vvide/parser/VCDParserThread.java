@@ -25,13 +25,30 @@
 
 package vvide.parser;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.Thread;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Vector;
+import java.util.zip.GZIPInputStream;
+
+import javax.swing.SwingUtilities;
 
 import vvide.Application;
 import vvide.logger.Logger;
+import vvide.signal.AbstractSignal;
+import vvide.signal.DumpStorage;
+import vvide.signal.Scope;
 import vvide.signal.SignalValueDump;
 import vvide.signal.TimeMetric;
 import vvide.signal.visitors.DumpSetterVisitor;
@@ -44,6 +61,34 @@ public class VCDParserThread extends Thread {
 	/*
 	 * =========================== Attributes ================================
 	 */
+	/**
+	 * Interval to check a followed file for new data (ms)
+	 */
+	private static final long FOLLOW_INTERVAL = 250;
+	/**
+	 * Size of the buffer to read the new data of a followed file
+	 */
+	private static final int FOLLOW_BUFFER_SIZE = 1 << 20;
+	/**
+	 * Keyword closing the definitions in the header, without the '$'
+	 */
+	private static final byte[] ENDDEFINITIONS = "enddefinitions".getBytes();
+	/**
+	 * Keyword closing a command, without the '$'
+	 */
+	private static final byte[] END = "end".getBytes();
+	/**
+	 * Size of the buffer to decompress a compressed file
+	 */
+	private static final int GZIP_BUFFER_SIZE = 256 << 10;
+	/**
+	 * Bytes of the value section for one byte of the dumps, an estimate
+	 */
+	private static final int TEXT_PER_DUMP_BYTE = 3;
+	/**
+	 * Ratio of the gzip compression of a VCD-File, an estimate
+	 */
+	private static final int COMPRESSION_RATIO = 8;
 	/**
 	 * Store a parser object. Need to update progress value and finished flag
 	 */
@@ -80,11 +125,27 @@ public class VCDParserThread extends Thread {
 	/**
 	 * Value lexer
 	 */
-	private VCDValueLexer valueLexer;
+	private AbstractValueLexer valueLexer;
+	/**
+	 * Main scope of the signals, which are shown while the values are parsed
+	 */
+	private Scope shownScope;
+	/**
+	 * Signal ids of the identifier codes, filled by the structural lexer
+	 */
+	private VCDIdTable idTable;
 	/**
 	 * Flag to interrupt the process
 	 */
-	private boolean interrupted = false;
+	private volatile boolean interrupted = false;
+	/**
+	 * Flag for a file, which is written by a running simulation
+	 */
+	private final boolean follow;
+	/**
+	 * Flag for a gzip compressed file
+	 */
+	private boolean compressed = false;
 
 	/*
 	 * ====================== Getters and setters ============================
@@ -108,9 +169,24 @@ public class VCDParserThread extends Thread {
 	 *        - a VCD parser object
 	 */
 	public VCDParserThread( VCDParser parser, File file ) {
+		this( parser, file, false );
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param parser
+	 *        - a VCD parser object
+	 * @param file
+	 *        - the file to parse
+	 * @param follow
+	 *        - true if the file is written by a running simulation
+	 */
+	public VCDParserThread( VCDParser parser, File file, boolean follow ) {
 		this.parser = parser;
 		this.canStart = true;
 		this.fileToParse = file;
+		this.follow = follow;
 		fileSize = file.length();
 	}
 
@@ -128,59 +204,76 @@ public class VCDParserThread extends Thread {
 	}
 
 	/**
-	 * Start the parsing process
+	 * Start the parsing process. The file is read once: the header is parsed
+	 * by the structural lexer and the value section by the value lexer, which
+	 * starts at the end of the definitions
 	 */
 	@Override
 	public void run() {
 
-		// Getting amount of changes of each signal
+		// Waiting for the header of a followed file
+		if ( follow && !waitForHeader() ) {
+			parser.setFinished( true );
+			return;
+		}
+
+		// Reopening a file from the cache
+		if ( !follow && Application.settingsManager.getWaveformCache()
+			&& loadCache() ) {
+			parser.setFinished( true );
+			return;
+		}
+
+		// Parsing the header
 		// Set the current operation "Analyze the file"
 		parser.setCurrentOperation( "Analyze the file" );
 
+		long valueSectionOffset = -1;
 		try {
+			compressed = !follow && isCompressed();
 			structLexer =
-					new VCDStructLexer( new BufferedReader( new FileReader(
-							fileToParse ) ) );
-			structLexer.setFileSize( fileSize );
+					new VCDStructLexer( new BufferedReader( compressed
+						? new InputStreamReader( new GZIPInputStream(
+								new FileInputStream( fileToParse ),
+								GZIP_BUFFER_SIZE ) ) : new FileReader(
+								fileToParse ) ) );
+			// the lexer counts the decompressed characters, the progress of
+			// the short header is not shown for a compressed file
+			structLexer.setFileSize( compressed ? Long.MAX_VALUE : fileSize );
 			structLexer.setParser( parser );
 			structLexer.yylex();
+			structLexer.yyclose();
+			// the lexer counts characters, the value lexers need bytes
+			if ( structLexer.getValueSectionOffset() >= 0 )
+				valueSectionOffset = findValueSection();
 		}
 		catch ( Exception e ) {
 			Logger.logError( this, e );
 			return;
 		}
+		VCDStructLexer header = structLexer;
+		structLexer = null;
+		idTable = header.getIdTable();
 		if (interrupted) return;
 
-		// Calculating the time divide
-		long minInterval = structLexer.getMinInterval();
-		while ( minInterval > 0 && (minInterval % 1000) == 0 ) {
-			minInterval /= 1000;
-			timeDivide *= 1000;
-			timeScaleDelta += 3;
-		}
-
-		// Setup a signalManager
-		Application.signalManager.setScale( structLexer.getTimeScaleValue() );
-		Application.signalManager.setScaleUnit( TimeMetric
-				.fromString( structLexer.getTimeScaleUnit() )
-			+ timeScaleDelta );
-
+		// Choosing the storage for the dumps
 		parser.setCurrentOperation( "Memory allocation" );
-		// getting amount of bits needed for save time
-		long signalLength =
-				structLexer.getLastTimestamp() / timeDivide * timeRatio
-					+ timeRatio;
-		Application.signalManager.setSignalLength( signalLength );
-		Application.signalManager.createDumpBuffer( structLexer.maxVarID );
-
-		// allocation
-		for ( int i = 1; i <= structLexer.maxVarID; ++i ) {
-			Integer bitWidthObj = structLexer.bitWidthMap.get( i );
+		DumpStorage storage =
+				DumpStorage.create( estimateDumpSize( valueSectionOffset ) );
+		Application.signalManager.setDumpStorage( storage );
+
+		// Creating the dumps, they grow while the values are parsed
+		boolean lazy =
+				!follow && !compressed && Application.settingsManager.getLazyValueLoading()
+					&& Application.settingsManager.getMappedValueLexer();
+		Application.signalManager.createDumpBuffer( header.maxVarID );
+		for ( int i = 1; i <= header.maxVarID && !lazy; ++i ) {
+			Integer bitWidthObj = header.bitWidthMap.get( i );
 			if (bitWidthObj != null)
 			{
-				SignalValueDump dump =
-						new SignalValueDump( structLexer.changesBuffer[i], bitWidthObj );
-				Application.signalManager.setSignalDump( i, dump );
+				Application.signalManager.setSignalDump( i,
+						new SignalValueDump( bitWidthObj, !header.realVars
+								.contains( i ), storage ) );
 			}
 		}
 		
@@ -188,24 +281,672 @@ public class VCDParserThread extends Thread {
 		DumpSetterVisitor visitor = new DumpSetterVisitor();
 		Application.signalManager.getMainScope().accept( visitor );
 
+		boolean progressive =
+				!follow && !lazy && !compressed
+					&& Application.settingsManager.getProgressiveOpen();
+		if ( follow || progressive ) {
+			// The signals are shown at once, the values are appended later.
+			// The intervals are not known yet, so the time is not divided.
+			// A static file is divided after its last timestamp
+			setupTimeScale( header.getTimeScaleValue(), header
+					.getTimeScaleUnit(), 1, 0 );
+			shownScope = Application.signalManager.getMainScope();
+			SignalValueDump[] dumps = getDumps();
+			showLoading( true );
+			parser.setFinished( true );
+			if ( interrupted || valueSectionOffset < 0 ) {
+				showLoading( false );
+				return;
+			}
+			try {
+				followValues( valueSectionOffset );
+			}
+			catch ( InterruptedException e ) {}
+			catch ( Exception e ) {
+				Logger.logError( this, e );
+			}
+			AbstractValueLexer lexer = valueLexer;
+			valueLexer = null;
+			if ( progressive && !interrupted )
+				rescaleShownSignals( header.getTimeScaleValue(), header
+						.getTimeScaleUnit(), lexer.getMinInterval(), lexer
+						.getLastTimestamp() );
+			// the signal manager may hold the dumps of another file by now
+			sealDumps( dumps );
+			showLoading( false );
+			if ( progressive && !interrupted
+				&& Application.settingsManager.getWaveformCache() ) {
+				saveCache( shownScope, dumps, header, lexer.getMinInterval(),
+						lexer.getLastTimestamp() );
+			}
+			return;
+		}
+
 		parser.setCurrentOperation( "Value parse" );
-		structLexer = null;
-		if (interrupted) return;
+		if (interrupted || valueSectionOffset < 0) return;
 		try {
-			valueLexer =
-					new VCDValueLexer( new BufferedReader( new FileReader(
-							fileToParse ) ) );
-			valueLexer.setFileSize( fileSize );
-			valueLexer.setParser( parser );
-			valueLexer.setTimeDivide(timeDivide);
-			valueLexer.yylex();
+			if ( lazy )
+				indexValues( valueSectionOffset );
+			else
+				if ( compressed )
+					parseCompressedValues( valueSectionOffset );
+				else
+					if ( Application.settingsManager.getMappedValueLexer() )
+						parseMappedValues( valueSectionOffset );
+					else
+						parseValues( valueSectionOffset );
 		}
 		catch ( Exception e ) {
 			Logger.logError( this, e );
 			return;
 		}
+		if (interrupted) return;
+
+		setupTimeScale( header.getTimeScaleValue(), header.getTimeScaleUnit(),
+				valueLexer.getMinInterval(), valueLexer.getLastTimestamp() );
+		sealDumps( getDumps() );
+		if ( lazy ) {
+			Application.signalManager.setValueLoader( new SignalValueLoader(
+					fileToParse, valueSectionOffset, ((VCDIndexLexer) valueLexer)
+							.getBlockIndex(), idTable, header.bitWidthMap,
+					header.realVars, timeDivide, timeRatio ) );
+		}
+
+		// Storing the state for the cache before the signals are shown
+		Scope mainScope = Application.signalManager.getMainScope();
+		SignalValueDump[] dumps = getDumps();
+		long minInterval = valueLexer.getMinInterval();
+		long lastTimestamp = valueLexer.getLastTimestamp();
 		valueLexer = null;
 
-		if (!interrupted) parser.setFinished( true );
+		parser.setFinished( true );
+
+		if ( Application.settingsManager.getWaveformCache() && !lazy ) {
+			saveCache( mainScope, dumps, header, minInterval, lastTimestamp );
+		}
+	}
+
+	/**
+	 * Store the signals and the dumps in the cache of the file
+	 * 
+	 * @param mainScope
+	 *        main scope of the signals
+	 * @param dumps
+	 *        the dumps, indexed by the signal id
+	 * @param header
+	 *        the lexer of the header
+	 * @param minInterval
+	 *        minimal interval between two timestamps
+	 * @param lastTimestamp
+	 *        the last timestamp
+	 */
+	private void saveCache( Scope mainScope, SignalValueDump[] dumps,
+			VCDStructLexer header, long minInterval, long lastTimestamp ) {
+		try {
+			new WaveformCache( fileToParse ).save( mainScope, dumps, header
+					.getTimeScaleValue(), header.getTimeScaleUnit(),
+					minInterval, lastTimestamp );
+		}
+		catch ( Exception e ) {
+			Logger.logError( this, e );
+		}
+	}
+
+	/**
+	 * Wait until the running simulation has written the header of the file
+	 * 
+	 * @return true if the header is complete, false if the parsing was
+	 *         interrupted or the simulation finished without a header
+	 */
+	private boolean waitForHeader() {
+		parser.setCurrentOperation( "Wait for the simulation" );
+		try {
+			while ( !interrupted ) {
+				// the flag is read before the file, so the file is checked
+				// once more after the simulation is finished
+				boolean writeFinished = parser.isWriteFinished();
+				if ( isHeaderWritten() ) {
+					fileSize = fileToParse.length();
+					return true;
+				}
+				if ( writeFinished ) {
+					Logger.logError( getClass().getName(), "No VCD header in "
+						+ fileToParse.getName() );
+					return false;
+				}
+				Thread.sleep( FOLLOW_INTERVAL );
+			}
+		}
+		catch ( InterruptedException e ) {}
+		catch ( IOException e ) {
+			Logger.logError( this, e );
+		}
+		return false;
+	}
+
+	/**
+	 * Check if the file contains the end of the definitions
+	 * 
+	 * @return true if the "$enddefinitions $end" command is written
+	 * @throws IOException
+	 */
+	private boolean isHeaderWritten() throws IOException {
+		if ( !fileToParse.exists() ) return false;
+		InputStream stream =
+				new BufferedInputStream( new FileInputStream( fileToParse ) );
+		try {
+			return findValueSection( stream ) >= 0;
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Find the byte offset of the value section in the file
+	 * 
+	 * @return offset after the end of the definitions or -1 if the end is
+	 *         not written
+	 * @throws IOException
+	 */
+	private long findValueSection() throws IOException {
+		InputStream file = new FileInputStream( fileToParse );
+		try {
+			return findValueSection( new BufferedInputStream( compressed
+				? new GZIPInputStream( file, GZIP_BUFFER_SIZE ) : file ) );
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Find the byte offset of the value section in a header read as bytes.
+	 * Every command of the header ends with "$end", so the keywords in a
+	 * comment or in another command are skipped
+	 * 
+	 * @param stream
+	 *        stream at the start of the file
+	 * @return offset after the "$end" of the "$enddefinitions" command or -1
+	 *         if the command is not written
+	 * @throws IOException
+	 */
+	private static long findValueSection( InputStream stream )
+			throws IOException {
+		byte[] keyword = new byte[ENDDEFINITIONS.length + 1];
+		// length of the keyword read after a '$' or -1 outside a keyword
+		int keywordLength = -1;
+		boolean inCommand = false;
+		boolean definitionsEnded = false;
+		long position = 0;
+		int c;
+		do {
+			c = stream.read();
+			if ( keywordLength >= 0 ) {
+				if ( (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') ) {
+					if ( keywordLength < keyword.length )
+						keyword[keywordLength] = (byte) c;
+					keywordLength++;
+					position++;
+					continue;
+				}
+				boolean end = isKeyword( keyword, keywordLength, END );
+				if ( definitionsEnded ) {
+					if ( end ) return position;
+				}
+				else
+					if ( inCommand || !isKeyword( keyword, keywordLength,
+							ENDDEFINITIONS ) )
+						inCommand = !end;
+					else
+						definitionsEnded = true;
+				keywordLength = -1;
+			}
+			if ( c == '$' ) keywordLength = 0;
+			position++;
+		} while ( c != -1 );
+		return -1;
+	}
+
+	/**
+	 * Compare a keyword read from the file with a keyword
+	 * 
+	 * @param keyword
+	 *        buffer with the read keyword
+	 * @param length
+	 *        length of the read keyword
+	 * @param name
+	 *        the keyword to compare with
+	 * @return true if the keywords are equal
+	 */
+	private static boolean isKeyword( byte[] keyword, int length, byte[] name ) {
+		if ( length != name.length ) return false;
+		for ( int i = 0; i < length; ++i ) {
+			if ( keyword[i] != name[i] ) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Skip the bytes before the value section
+	 * 
+	 * @param stream
+	 *        stream at the start of the file
+	 * @param offset
+	 *        count of bytes to skip
+	 * @throws IOException
+	 *         if the stream ends before the offset
+	 */
+	private static void skip( InputStream stream, long offset )
+			throws IOException {
+		while ( offset > 0 ) {
+			long skipped = stream.skip( offset );
+			if ( skipped <= 0 ) throw new EOFException();
+			offset -= skipped;
+		}
+	}
+
+	/**
+	 * Parse the values appended to the file by the running simulation until
+	 * the simulation is finished. The signal length grows with the last
+	 * timestamp, the dumps are read by the views at the same time. A static
+	 * file opened progressively is parsed once up to its end
+	 * 
+	 * @param offset
+	 *        offset of the value section in the file
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void followValues( long offset ) throws IOException,
+			InterruptedException {
+		VCDMappedValueLexer lexer = new VCDMappedValueLexer() {
+
+			@Override
+			protected void updateProgress( long position ) {}
+		};
+		lexer.setStartOffset( offset );
+		lexer.setIdTable( idTable );
+		valueLexer = lexer;
+
+		RandomAccessFile file = new RandomAccessFile( fileToParse, "r" );
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate( FOLLOW_BUFFER_SIZE );
+			long position = offset;
+			long shownTimestamp = -1;
+			long showTime = System.currentTimeMillis() + FOLLOW_INTERVAL;
+			boolean writeFinished = false;
+			while ( !writeFinished ) {
+				// the flag is read before the file, so the data written
+				// before the end of the simulation is read completely. A
+				// static file is written completely
+				writeFinished = !follow || parser.isWriteFinished();
+				int count;
+				while ( (count = channel.read( buffer, position )) > 0 ) {
+					position += count;
+					buffer.flip();
+					if ( !lexer.scan( buffer ) ) return;
+					buffer.clear();
+
+					// the values of a large file are shown in batches
+					if ( System.currentTimeMillis() >= showTime
+						&& lexer.getLastTimestamp() > shownTimestamp ) {
+						shownTimestamp = lexer.getLastTimestamp();
+						showTimestamp( shownTimestamp );
+						showTime = System.currentTimeMillis() + FOLLOW_INTERVAL;
+					}
+				}
+				if ( writeFinished ) lexer.finish();
+
+				if ( lexer.getLastTimestamp() > shownTimestamp ) {
+					shownTimestamp = lexer.getLastTimestamp();
+					showTimestamp( shownTimestamp );
+				}
+				if ( !writeFinished ) Thread.sleep( FOLLOW_INTERVAL );
+			}
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Grow the shown signals up to the last parsed timestamp. Running in the
+	 * event dispatch thread later
+	 * 
+	 * @param timestamp
+	 *        the last parsed timestamp
+	 */
+	private void showTimestamp( long timestamp ) {
+		final long signalLength = timestamp / timeDivide * timeRatio + timeRatio;
+		SwingUtilities.invokeLater( new Runnable() {
+
+			@Override
+			public void run() {
+				// the signals were replaced by an other file
+				if ( Application.signalManager.getMainScope() != shownScope ) {
+					VCDParserThread.this.interrupt();
+					return;
+				}
+				Application.signalManager.growSignalLength( signalLength );
+			}
+		} );
+	}
+
+	/**
+	 * Divide the time of the shown signals by the minimal interval, which is
+	 * known after the last timestamp only. Running in the event dispatch
+	 * thread, so the views do not read the dumps while their scale changes
+	 * 
+	 * @param timeScaleValue
+	 *        value of the timescale
+	 * @param timeScaleUnit
+	 *        unit of the timescale
+	 * @param minInterval
+	 *        minimal interval between two timestamps
+	 * @param lastTimestamp
+	 *        the last timestamp
+	 */
+	private void rescaleShownSignals( final int timeScaleValue,
+			final String timeScaleUnit, final long minInterval,
+			final long lastTimestamp ) {
+		try {
+			SwingUtilities.invokeAndWait( new Runnable() {
+
+				@Override
+				public void run() {
+					// the signals were replaced by an other file
+					if ( Application.signalManager.getMainScope() != shownScope )
+						return;
+					long shownLength =
+							Application.signalManager.getSignalLength();
+					setupTimeScale( timeScaleValue, timeScaleUnit,
+							minInterval, lastTimestamp );
+					// the views follow the new length
+					long signalLength =
+							Application.signalManager.getSignalLength();
+					Application.signalManager.setSignalLength( shownLength );
+					Application.signalManager.growSignalLength( signalLength );
+				}
+			} );
+		}
+		catch ( InterruptedException e ) {}
+		catch ( InvocationTargetException e ) {
+			Logger.logError( this, e );
+		}
+	}
+
+	/**
+	 * Mark the start or the end of the parsing of the values of the shown
+	 * signals. Running in the event dispatch thread later
+	 * 
+	 * @param loading
+	 *        true at the start of the parsing
+	 */
+	private void showLoading( final boolean loading ) {
+		SwingUtilities.invokeLater( new Runnable() {
+
+			@Override
+			public void run() {
+				if ( Application.signalManager.getMainScope() == shownScope )
+					Application.signalManager.setLoading( loading );
+			}
+		} );
+	}
+
+	/**
+	 * Load the signals from the cache of the file
+	 * 
+	 * @return true if the cache was loaded
+	 */
+	private boolean loadCache() {
+		parser.setCurrentOperation( "Load the cache" );
+		WaveformCache cache = new WaveformCache( fileToParse );
+		try {
+			if ( !cache.load() ) return false;
+		}
+		catch ( Exception e ) {
+			Logger.logError( this, e );
+			return false;
+		}
+
+		Scope mainScope = Application.signalManager.getMainScope();
+		for ( AbstractSignal signal : new Vector<AbstractSignal>( cache
+				.getScope().getChildrens() ) ) {
+			mainScope.addChild( signal );
+		}
+		SignalValueDump[] dumps = cache.getDumps();
+		Application.signalManager.createDumpBuffer( dumps.length - 1 );
+		for ( int i = 0; i < dumps.length; ++i ) {
+			if ( dumps[i] != null )
+				Application.signalManager.setSignalDump( i, dumps[i] );
+		}
+		mainScope.accept( new DumpSetterVisitor() );
+
+		setupTimeScale( cache.getTimeScaleValue(), cache.getTimeScaleUnit(),
+				cache.getMinInterval(), cache.getLastTimestamp() );
+		sealDumps( dumps );
+		return true;
+	}
+
+	/**
+	 * Calculate the time divide and setup the signal manager and the dumps
+	 * 
+	 * @param timeScaleValue
+	 *        value of the timescale
+	 * @param timeScaleUnit
+	 *        unit of the timescale
+	 * @param minInterval
+	 *        minimal interval between two timestamps
+	 * @param lastTimestamp
+	 *        the last timestamp
+	 */
+	private void setupTimeScale( int timeScaleValue, String timeScaleUnit,
+			long minInterval, long lastTimestamp ) {
+		// Calculating the time divide
+		while ( minInterval > 0 && (minInterval % 1000) == 0 ) {
+			minInterval /= 1000;
+			timeDivide *= 1000;
+			timeScaleDelta += 3;
+		}
+
+		// Setup a signalManager
+		Application.signalManager.setScale( timeScaleValue );
+		Application.signalManager.setScaleUnit( TimeMetric
+				.fromString( timeScaleUnit )
+			+ timeScaleDelta );
+		Application.signalManager.setSignalLength( lastTimestamp / timeDivide
+			* timeRatio + timeRatio );
+		for ( SignalValueDump dump : getDumps() ) {
+			if ( dump != null ) dump.setTimeScale( timeDivide, timeRatio );
+		}
+	}
+
+	/**
+	 * Estimate the bytes of all dumps from the size of the value section
+	 * 
+	 * @param valueSectionOffset
+	 *        offset of the value section
+	 * @return estimated bytes of the dumps, 0 for a followed file, which
+	 *         starts empty
+	 */
+	private long estimateDumpSize( long valueSectionOffset ) {
+		if ( follow || valueSectionOffset < 0 ) return 0;
+		if ( compressed )
+			return fileSize * COMPRESSION_RATIO / TEXT_PER_DUMP_BYTE;
+		return (fileSize - valueSectionOffset) / TEXT_PER_DUMP_BYTE;
+	}
+
+	/**
+	 * Seal the dumps after the last record, the signals can be queried by
+	 * several threads then
+	 * 
+	 * @param dumps
+	 *        the dumps, some of them may be null
+	 */
+	private void sealDumps( SignalValueDump[] dumps ) {
+		for ( SignalValueDump dump : dumps ) {
+			if ( dump != null ) dump.seal();
+		}
+	}
+
+	/**
+	 * Return all dumps of the signal manager
+	 * 
+	 * @return the dumps, indexed by the signal id
+	 */
+	private SignalValueDump[] getDumps() {
+		SignalValueDump[] dumps =
+				new SignalValueDump[Application.signalManager.getCountDumps()];
+		for ( int i = 0; i < dumps.length; ++i ) {
+			dumps[i] = Application.signalManager.getDump( i );
+		}
+		return dumps;
+	}
+
+	/**
+	 * Parse the value section with the JFlex value lexer
+	 * 
+	 * @param offset
+	 *        offset of the value section in the file
+	 * @throws IOException
+	 */
+	private void parseValues( long offset ) throws IOException {
+		FileInputStream stream = new FileInputStream( fileToParse );
+		skip( stream, offset );
+		VCDValueLexer lexer =
+				new VCDValueLexer( new BufferedReader( new InputStreamReader(
+						stream ) ) );
+		lexer.setFileSize( fileSize );
+		lexer.setStartOffset( offset );
+		lexer.setIdTable( idTable );
+		lexer.setParser( parser );
+		valueLexer = lexer;
+		lexer.yylex();
+		lexer.yyclose();
+	}
+
+	/**
+	 * Check the magic number of a gzip compressed file
+	 * 
+	 * @return true if the file is compressed with gzip
+	 * @throws IOException
+	 */
+	private boolean isCompressed() throws IOException {
+		InputStream stream = new FileInputStream( fileToParse );
+		try {
+			return stream.read() == 0x1f && stream.read() == 0x8b;
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Parse the value section of a gzip compressed file. The file is
+	 * decompressed while it is parsed by the byte lexer, the progress is
+	 * based on the compressed bytes read
+	 * 
+	 * @param offset
+	 *        offset of the value section in the decompressed file
+	 * @throws IOException
+	 */
+	private void parseCompressedValues( long offset ) throws IOException {
+		FileInputStream file = new FileInputStream( fileToParse );
+		try {
+			final FileChannel channel = file.getChannel();
+			InputStream stream = new GZIPInputStream( file, GZIP_BUFFER_SIZE );
+			skip( stream, offset );
+
+			VCDMappedValueLexer lexer = new VCDMappedValueLexer() {
+
+				@Override
+				protected void updateProgress( long position ) {
+					try {
+						super.updateProgress( channel.position() );
+					}
+					catch ( IOException e ) {}
+				}
+			};
+			lexer.setFileSize( fileSize );
+			lexer.setParser( parser );
+			lexer.setIdTable( idTable );
+			valueLexer = lexer;
+
+			byte[] bytes = new byte[GZIP_BUFFER_SIZE];
+			ByteBuffer buffer = ByteBuffer.wrap( bytes );
+			int count;
+			while ( (count = stream.read( bytes )) != -1 ) {
+				buffer.limit( count );
+				buffer.position( 0 );
+				if ( !lexer.scan( buffer ) ) return;
+			}
+			lexer.finish();
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Scan the value section to get the time range and the index of the time
+	 * blocks, with checkpoints for the windowed loading. The values are loaded
+	 * later by a SignalValueLoader
+	 * 
+	 * @param offset
+	 *        offset of the value section in the file
+	 * @throws IOException
+	 */
+	private void indexValues( long offset ) throws IOException {
+		RandomAccessFile file = new RandomAccessFile( fileToParse, "r" );
+		try {
+			VCDIndexLexer lexer = new VCDIndexLexer();
+			lexer.setCheckpoints( Application.settingsManager
+					.getWindowedValueLoading() );
+			lexer.setFileSize( fileSize );
+			lexer.setStartOffset( offset );
+			lexer.setIdTable( idTable );
+			lexer.setParser( parser );
+			valueLexer = lexer;
+			lexer.scan( file.getChannel(), offset );
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Parse the value section with the lexer working on the memory mapped
+	 * file, on one or on all processors
+	 * 
+	 * @param offset
+	 *        offset of the value section in the file
+	 * @throws IOException
+	 */
+	private void parseMappedValues( long offset ) throws IOException {
+		RandomAccessFile file = new RandomAccessFile( fileToParse, "r" );
+		try {
+			if ( Application.settingsManager.getParallelValueLexer() ) {
+				VCDParallelValueLexer lexer = new VCDParallelValueLexer();
+				lexer.setFileSize( fileSize );
+				lexer.setStartOffset( offset );
+				lexer.setIdTable( idTable );
+				lexer.setParser( parser );
+				valueLexer = lexer;
+				lexer.scan( file.getChannel(), offset );
+			}
+			else {
+				VCDMappedValueLexer lexer = new VCDMappedValueLexer();
+				lexer.setFileSize( fileSize );
+				lexer.setStartOffset( offset );
+				lexer.setIdTable( idTable );
+				lexer.setParser( parser );
+				valueLexer = lexer;
+				lexer.scan( file.getChannel(), offset );
+			}
+		}
+		finally {
+			file.close();
+		}
 	}
 }
@@ -826,7 +826,7 @@ public class VCDStructLexer extends AbstractStructLexer {
 			case 45:
 				break;
 			case 27: {
-				createChangesMap();
+				endDefinitions( yychar + yylength() ); return null;
 			}
 			case 46:
 				break;
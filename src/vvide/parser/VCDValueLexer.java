@@ -268,15 +268,59 @@ public class VCDValueLexer extends AbstractValueLexer {
 	/**
 	 * Set a current timestamp
 	 */
-	protected void setTimeStamp( Long timestamp ) {
+	protected void setTimeStamp( long timestamp ) {
 		countChangesAdded++;
-		this.timestamp = timestamp;
+		storeTimeStamp( timestamp );
 		if ( (countChangesAdded & 0x1FFF) == 0)  {
 			countChangesAdded = 0;
-			parser.setProgress( (int) (((long)yychar)*100 / fileSize));
+			parser.setProgress( (int) ((startOffset + yychar)*100 / fileSize));
 		}
 	}
 
+	/**
+	 * Decode the digits of the current token from the buffer
+	 *
+	 * @param offset
+	 *        offset of the first digit in the token
+	 */
+	private long parseNumber( int offset ) {
+		long number = 0;
+		for ( int i = zzStartRead + offset; i < zzMarkedPos; ++i ) {
+			number = number * 10 + (zzBuffer[i] - '0');
+		}
+		return number;
+	}
+
+	/**
+	 * Copy the value of the current token from the buffer
+	 *
+	 * @param offset
+	 *        offset of the value in the token
+	 */
+	private void setValue( int offset ) {
+		valueLength = 0;
+		for ( int i = zzStartRead + offset; i < zzMarkedPos; ++i ) {
+			appendValue( zzBuffer[i] );
+		}
+	}
+
+	/**
+	 * Add a change of the var with the identifier code of the current token
+	 */
+	private void addCurrentVarChange() {
+		addVarChange( idTable.get( zzBuffer, zzStartRead, zzMarkedPos
+			- zzStartRead ), valueBytes, valueLength );
+	}
+
+	/**
+	 * Return true if the current command token is the "$end" keyword. The
+	 * buffer is compared directly, so no string is created for a command
+	 */
+	private boolean isEndCommand() {
+		return zzMarkedPos - zzStartRead == 4 && zzBuffer[zzStartRead + 1] == 'e'
+			&& zzBuffer[zzStartRead + 2] == 'n' && zzBuffer[zzStartRead + 3] == 'd';
+	}
+
 
   /**
    * Creates a new scanner
@@ -578,7 +622,7 @@ public class VCDValueLexer extends AbstractValueLexer {
 
       switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
         case 7: 
-          { yybegin(IGNORED);
+          { if (!isEndCommand()) yybegin(IGNORED);
           }
         case 8: break;
         case 3: 
@@ -586,19 +630,19 @@ public class VCDValueLexer extends AbstractValueLexer {
           }
         case 9: break;
         case 5: 
-          { if (interrupted) return null; setTimeStamp( Long.valueOf( yytext().substring(1) ) );
+          { if (interrupted) return null; setTimeStamp( parseNumber( 1 ) );
           }
         case 10: break;
         case 6: 
-          { value = yytext().substring(1); yybegin(VALUE_CHANGE_ID);
+          { setValue( 1 ); yybegin(VALUE_CHANGE_ID);
           }
         case 11: break;
         case 4: 
-          { addVarChange ( yytext() );
+          { addCurrentVarChange();
           }
         case 12: break;
         case 2: 
-          { value = yytext(); yybegin(VALUE_CHANGE_ID);
+          { setValue( 0 ); yybegin(VALUE_CHANGE_ID);
           }
         case 13: break;
         case 1: 
@@ -19,8 +19,6 @@
  */
 package vvide.parser;
 
-import vvide.utils.CommonMethods;
-
 /**
  * Abstract class for var info
  */
@@ -38,9 +36,9 @@ public class VarInfo {
 	 */
 	private int bitWidth = -1;
 	/**
-	 * ID if the var
+	 * Identifier code of the var
 	 */
-	private int id = -1;
+	private String id = null;
 	/**
 	 * Reference name
 	 */
@@ -102,9 +100,9 @@ public class VarInfo {
 	/**
 	 * Getter for id
 	 * 
-	 * @return the id
+	 * @return the identifier code
 	 */
-	public int getId() {
+	public String getId() {
 		return id;
 	}
 
@@ -112,20 +110,10 @@ public class VarInfo {
 	 * Setter for id
 	 * 
 	 * @param id
-	 *        the id to set
-	 */
-	public void setId( int id ) {
-		this.id = id;
-	}
-
-	/**
-	 * Setter for id
-	 * 
-	 * @param id
-	 *        the id to set
+	 *        the identifier code to set
 	 */
 	public void setId( String id ) {
-		this.id = CommonMethods.getIDFormString( id );
+		this.id = id.trim();
 	}
 	
 	/**
@@ -0,0 +1,647 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Vector;
+
+import vvide.signal.AbstractSignal;
+import vvide.signal.CompoundSignal;
+import vvide.signal.Scope;
+import vvide.signal.SignalValueDump;
+import vvide.signal.VectorSignal;
+
+/**
+ * Binary cache of a parsed VCD-File. The cache is stored next to the
+ * VCD-File and contains the hierarchy, the timescale and the records of all
+ * dumps. It is valid as long as the path, the size and the modification time
+ * of the VCD-File are not changed. The records are memory mapped on loading
+ */
+public class WaveformCache {
+
+	/*
+	 * ============================ Constants ================================
+	 */
+	/**
+	 * Extension of the cache file
+	 */
+	public static final String EXTENSION = ".vvc";
+	/**
+	 * Magic number at the start of the cache
+	 */
+	private static final long MAGIC = 0x5656494445574331L;
+	/**
+	 * Version of the format
+	 */
+	private static final int VERSION = 6;
+	/**
+	 * Size of the header: magic, version and the length of the description
+	 */
+	private static final int HEADER_SIZE = 16;
+	/**
+	 * Size of a mapped window of the records
+	 */
+	private static final long WINDOW_SIZE = 1L << 30;
+	/**
+	 * Tags of the hierarchy nodes
+	 */
+	private static final byte SCOPE = 'S';
+	private static final byte VECTOR = 'V';
+	private static final byte COMPOUND = 'C';
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * The VCD-File
+	 */
+	private final File vcdFile;
+	/**
+	 * The cache file
+	 */
+	private final File cacheFile;
+	/**
+	 * Timescale value
+	 */
+	private int timeScaleValue;
+	/**
+	 * Timescale unit
+	 */
+	private String timeScaleUnit;
+	/**
+	 * Minimal interval between two timestamps
+	 */
+	private long minInterval;
+	/**
+	 * Last timestamp of the file
+	 */
+	private long lastTimestamp;
+	/**
+	 * Loaded hierarchy. The children are the children of the main scope
+	 */
+	private Scope scope;
+	/**
+	 * Loaded dumps
+	 */
+	private SignalValueDump[] dumps;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Getter for timeScaleValue
+	 *
+	 * @return the timeScaleValue
+	 */
+	public int getTimeScaleValue() {
+		return timeScaleValue;
+	}
+
+	/**
+	 * Getter for timeScaleUnit
+	 *
+	 * @return the timeScaleUnit
+	 */
+	public String getTimeScaleUnit() {
+		return timeScaleUnit;
+	}
+
+	/**
+	 * Getter for minInterval
+	 *
+	 * @return the minInterval
+	 */
+	public long getMinInterval() {
+		return minInterval;
+	}
+
+	/**
+	 * Getter for lastTimestamp
+	 *
+	 * @return the lastTimestamp
+	 */
+	public long getLastTimestamp() {
+		return lastTimestamp;
+	}
+
+	/**
+	 * Getter for scope
+	 *
+	 * @return scope with the loaded hierarchy
+	 */
+	public Scope getScope() {
+		return scope;
+	}
+
+	/**
+	 * Getter for dumps
+	 *
+	 * @return loaded dumps, indexed by the signal id
+	 */
+	public SignalValueDump[] getDumps() {
+		return dumps;
+	}
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Constructor
+	 *
+	 * @param vcdFile
+	 *        the VCD-File
+	 */
+	public WaveformCache( File vcdFile ) {
+		this.vcdFile = vcdFile.getAbsoluteFile();
+		this.cacheFile = new File( this.vcdFile.getPath() + EXTENSION );
+	}
+
+	/**
+	 * Load the cache
+	 *
+	 * @return true if the cache is valid and was loaded
+	 * @throws IOException
+	 */
+	public boolean load() throws IOException {
+		if ( !cacheFile.isFile() ) return false;
+		RandomAccessFile file = new RandomAccessFile( cacheFile, "r" );
+		try {
+			if ( file.length() < HEADER_SIZE ) return false;
+			if ( file.readLong() != MAGIC || file.readInt() != VERSION )
+				return false;
+			byte[] description = new byte[file.readInt()];
+			file.readFully( description );
+			DataInputStream in =
+					new DataInputStream( new ByteArrayInputStream( description ) );
+
+			// Key
+			if ( !in.readUTF().equals( vcdFile.getPath() )
+				|| in.readLong() != vcdFile.length()
+				|| in.readLong() != vcdFile.lastModified() ) return false;
+
+			// Timescale
+			timeScaleValue = in.readInt();
+			timeScaleUnit = in.readUTF();
+			minInterval = in.readLong();
+			lastTimestamp = in.readLong();
+
+			// Hierarchy
+			scope = new Scope( "" );
+			readChildren( in, scope );
+
+			// Dumps
+			Windows windows =
+					new Windows( file.getChannel(), HEADER_SIZE
+						+ description.length );
+			dumps = new SignalValueDump[in.readInt()];
+			int countDumps = in.readInt();
+			for ( int i = 0; i < countDumps; ++i ) {
+				int id = in.readInt();
+				int valueLength = in.readInt();
+				boolean packed = in.readBoolean();
+				int countRecords = in.readInt();
+				int countCodes = in.readInt();
+				int countCodedChunks = in.readInt();
+				int countExceptions = in.readInt();
+				long[] runs = new long[in.readInt()];
+				for ( int j = 0; j < runs.length; ++j ) {
+					runs[j] = in.readLong();
+				}
+				long offset = in.readLong();
+				dumps[id] =
+						readDump( windows, offset, valueLength, packed, runs,
+								countRecords, countCodes, countCodedChunks,
+								countExceptions );
+			}
+			return true;
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Save the cache. The cache is written to a temporary file, which
+	 * replaces the old cache at the end
+	 *
+	 * @param mainScope
+	 *        the main scope
+	 * @param dumps
+	 *        the dumps, indexed by the signal id
+	 * @param timeScaleValue
+	 *        timescale value
+	 * @param timeScaleUnit
+	 *        timescale unit
+	 * @param minInterval
+	 *        minimal interval between two timestamps
+	 * @param lastTimestamp
+	 *        last timestamp of the file
+	 * @throws IOException
+	 */
+	public void save( Scope mainScope, SignalValueDump[] dumps,
+			int timeScaleValue, String timeScaleUnit, long minInterval,
+			long lastTimestamp ) throws IOException {
+		ByteArrayOutputStream description = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream( description );
+		out.writeUTF( vcdFile.getPath() );
+		out.writeLong( vcdFile.length() );
+		out.writeLong( vcdFile.lastModified() );
+		out.writeInt( timeScaleValue );
+		out.writeUTF( (timeScaleUnit != null) ? timeScaleUnit : "" );
+		out.writeLong( minInterval );
+		out.writeLong( lastTimestamp );
+		writeChildren( out, mainScope );
+
+		int countDumps = 0;
+		for ( SignalValueDump dump : dumps ) {
+			if ( dump != null ) countDumps++;
+		}
+		out.writeInt( dumps.length );
+		out.writeInt( countDumps );
+		long offset = 0;
+		ByteBuffer[][] records = new ByteBuffer[dumps.length][];
+		for ( int id = 0; id < dumps.length; ++id ) {
+			if ( dumps[id] == null ) continue;
+			ByteBuffer dictionary = dumps[id].getDictionary();
+			ByteBuffer[] codes = dumps[id].getCodeBuffers();
+			long[] exceptions = dumps[id].getExceptions();
+			records[id] = getRecords( dumps[id], dictionary, codes, exceptions );
+			out.writeInt( id );
+			out.writeInt( dumps[id].getValueLength() );
+			out.writeBoolean( dumps[id].isPacked() );
+			out.writeInt( dumps[id].getCountRecords() );
+			out.writeInt( (dictionary != null) ? dictionary.remaining()
+				/ dumps[id].getRecordLength() : 0 );
+			// the coded chunks are followed by the chunks storing the values
+			int countCodedChunks = 0;
+			while ( countCodedChunks < codes.length
+				&& codes[countCodedChunks] != null ) {
+				countCodedChunks++;
+			}
+			out.writeInt( countCodedChunks );
+			out.writeInt( (exceptions != null) ? exceptions.length : -1 );
+			long[] runs = dumps[id].getRuns();
+			out.writeInt( runs.length );
+			for ( long value : runs ) {
+				out.writeLong( value );
+			}
+			out.writeLong( offset );
+			for ( ByteBuffer buffer : records[id] ) {
+				offset += buffer.remaining();
+			}
+		}
+		out.close();
+
+		File tempFile = new File( cacheFile.getPath() + ".tmp" );
+		FileOutputStream stream = new FileOutputStream( tempFile );
+		try {
+			FileChannel channel = stream.getChannel();
+			ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+			header.putLong( MAGIC ).putInt( VERSION ).putInt(
+					description.size() );
+			header.flip();
+			writeFully( channel, header );
+			writeFully( channel, ByteBuffer.wrap( description.toByteArray() ) );
+			for ( ByteBuffer[] buffers : records ) {
+				if ( buffers == null ) continue;
+				for ( ByteBuffer buffer : buffers ) {
+					writeFully( channel, buffer );
+				}
+			}
+		}
+		finally {
+			stream.close();
+		}
+		cacheFile.delete();
+		if ( !tempFile.renameTo( cacheFile ) ) {
+			tempFile.delete();
+			throw new IOException( "Can not create the cache "
+				+ cacheFile.getPath() );
+		}
+	}
+
+	/**
+	 * Return the buffers with the records of a dump in the order of the
+	 * record section: the dictionary, the chunks with the codes, the chunks
+	 * with the values, the exceptions of the toggles, the block index with the
+	 * times and the positions of the time blocks, the lengths of the time
+	 * buffers and the time buffers. The values are kept in the coded or toggled
+	 * form, so a loaded dump is as small as the parsed one
+	 */
+	private ByteBuffer[] getRecords( SignalValueDump dump,
+			ByteBuffer dictionary, ByteBuffer[] codes, long[] exceptions ) {
+		ByteBuffer[] values = dump.getRecordBuffers();
+		ByteBuffer[] times = dump.getTimeBuffers();
+		long[] blockTimes = dump.getBlockTimes();
+		int[] blockPositions = dump.getBlockPositions();
+
+		Vector<ByteBuffer> buffers = new Vector<ByteBuffer>();
+		if ( dictionary != null ) buffers.add( dictionary );
+		for ( ByteBuffer buffer : codes ) {
+			if ( buffer != null ) buffers.add( buffer );
+		}
+		for ( ByteBuffer buffer : values ) {
+			if ( buffer != null ) buffers.add( buffer );
+		}
+		if ( exceptions != null ) {
+			ByteBuffer buffer = ByteBuffer.allocate( exceptions.length * 8 );
+			buffer.asLongBuffer().put( exceptions );
+			buffers.add( buffer );
+		}
+
+		ByteBuffer index =
+				ByteBuffer.allocate( blockTimes.length * 12 + times.length * 4 );
+		index.asLongBuffer().put( blockTimes );
+		index.position( blockTimes.length * 8 );
+		index.asIntBuffer().put( blockPositions );
+		index.position( blockTimes.length * 12 );
+		for ( ByteBuffer buffer : times ) {
+			index.putInt( buffer.remaining() );
+		}
+		index.clear();
+		buffers.add( index );
+		for ( ByteBuffer buffer : times ) {
+			buffers.add( buffer );
+		}
+		return buffers.toArray( new ByteBuffer[buffers.size()] );
+	}
+
+	/**
+	 * Create a dump from the record section
+	 *
+	 * @param windows
+	 *        windows of the record section
+	 * @param offset
+	 *        offset of the records of the dump
+	 * @param valueLength
+	 *        count of characters of the signal value
+	 * @param packed
+	 *        encoding of the values
+	 * @param runs
+	 *        runs of the dump
+	 * @param countRecords
+	 *        count of the records
+	 * @param countCodes
+	 *        count of the values in the dictionary
+	 * @param countCodedChunks
+	 *        count of the first chunks, which store codes
+	 * @param countExceptions
+	 *        count of the exceptions of the toggles, -1 if the values are
+	 *        stored
+	 * @return the dump
+	 * @throws IOException
+	 */
+	private SignalValueDump readDump( Windows windows, long offset,
+			int valueLength, boolean packed, long[] runs, int countRecords,
+			int countCodes, int countCodedChunks, int countExceptions )
+			throws IOException {
+		int recordLength = SignalValueDump.getRecordLength( valueLength, packed );
+		ByteBuffer dictionary = null;
+		if ( countCodes > 0 ) {
+			dictionary = windows.getChunk( offset, countCodes * recordLength );
+			offset += dictionary.capacity();
+		}
+		int chunkRecords = SignalValueDump.getChunkRecords();
+		int countChunks = (countRecords + chunkRecords - 1) / chunkRecords;
+		ByteBuffer[] chunks = new ByteBuffer[countChunks];
+		ByteBuffer[] codeChunks = new ByteBuffer[countChunks];
+		long[] exceptions = null;
+		if ( countExceptions >= 0 ) {
+			exceptions = new long[countExceptions];
+			ByteBuffer buffer = windows.getChunk( offset, countExceptions * 8 );
+			buffer.asLongBuffer().get( exceptions );
+			offset += buffer.capacity();
+		}
+		else
+			for ( int i = 0; i < countChunks; ++i ) {
+				int records =
+						Math.min( chunkRecords, countRecords - i * chunkRecords );
+				if ( i < countCodedChunks ) {
+					codeChunks[i] = windows.getChunk( offset, records );
+					offset += records;
+				}
+				else {
+					chunks[i] = windows.getChunk( offset, records * recordLength );
+					offset += records * recordLength;
+				}
+			}
+
+		// the time buffers hold the records, which are not in a run
+		int countStored = SignalValueDump.getCountStored( countRecords, runs );
+		int countTimeChunks = (countStored + chunkRecords - 1) / chunkRecords;
+		int blockRecords = SignalValueDump.getBlockRecords();
+		int countBlocks = (countStored + blockRecords - 1) / blockRecords;
+		long[] blockTimes = new long[countBlocks];
+		int[] blockPositions = new int[countBlocks];
+		int[] timeLengths = new int[countTimeChunks];
+		ByteBuffer index =
+				windows.getChunk( offset, countBlocks * 12 + countTimeChunks * 4 );
+		index.asLongBuffer().get( blockTimes );
+		index.position( countBlocks * 8 );
+		index.asIntBuffer().get( blockPositions );
+		index.position( countBlocks * 12 );
+		index.asIntBuffer().get( timeLengths );
+		offset += index.capacity();
+
+		ByteBuffer[] timeChunks = new ByteBuffer[countTimeChunks];
+		for ( int i = 0; i < timeChunks.length; ++i ) {
+			timeChunks[i] = windows.getChunk( offset, timeLengths[i] );
+			offset += timeLengths[i];
+		}
+		return new SignalValueDump( valueLength, packed, chunks, codeChunks,
+				dictionary, exceptions, timeChunks, blockTimes, blockPositions,
+				runs, countRecords );
+	}
+
+	/**
+	 * Write the whole buffer to the channel
+	 */
+	private void writeFully( FileChannel channel, ByteBuffer buffer )
+			throws IOException {
+		while ( buffer.hasRemaining() ) {
+			channel.write( buffer );
+		}
+	}
+
+	/**
+	 * Write the children of the signal
+	 */
+	private void writeChildren( DataOutputStream out, AbstractSignal parent )
+			throws IOException {
+		out.writeInt( parent.getChildrens().size() );
+		for ( AbstractSignal signal : parent.getChildrens() ) {
+			if ( signal instanceof Scope ) {
+				Scope child = (Scope) signal;
+				out.writeByte( SCOPE );
+				writeString( out, child.getName() );
+				writeString( out, child.getType() );
+				writeChildren( out, child );
+			}
+			else
+				if ( signal instanceof CompoundSignal ) {
+					out.writeByte( COMPOUND );
+					out.writeInt( signal.getId() );
+					writeString( out, signal.getName() );
+					out.writeInt( signal.getBitNr() );
+					out.writeInt( signal.getBitWidth() );
+					writeChildren( out, signal );
+				}
+				else {
+					out.writeByte( VECTOR );
+					out.writeInt( signal.getId() );
+					writeString( out, signal.getName() );
+					out.writeInt( signal.getBitNr() );
+					out.writeInt( signal.getBitWidth() );
+				}
+		}
+	}
+
+	/**
+	 * Read the children of the signal
+	 */
+	private void readChildren( DataInputStream in, AbstractSignal parent )
+			throws IOException {
+		int countChildren = in.readInt();
+		for ( int i = 0; i < countChildren; ++i ) {
+			byte tag = in.readByte();
+			if ( tag == SCOPE ) {
+				Scope child = new Scope( readString( in ) );
+				child.setType( readString( in ) );
+				parent.addChild( child );
+				readChildren( in, child );
+			}
+			else
+				if ( tag == COMPOUND ) {
+					int id = in.readInt();
+					String name = readString( in );
+					int bitNr = in.readInt();
+					CompoundSignal child =
+							new CompoundSignal( id, name, bitNr, in.readInt() );
+					parent.addChild( child );
+					readChildren( in, child );
+				}
+				else
+					if ( tag == VECTOR ) {
+						int id = in.readInt();
+						String name = readString( in );
+						int bitNr = in.readInt();
+						parent.addChild( new VectorSignal( id, name, bitNr, in
+								.readInt() ) );
+					}
+					else
+						throw new IOException( "Wrong cache file format" );
+		}
+	}
+
+	/**
+	 * Write a string, which can be null
+	 */
+	private void writeString( DataOutputStream out, String value )
+			throws IOException {
+		out.writeBoolean( value != null );
+		if ( value != null ) out.writeUTF( value );
+	}
+
+	/**
+	 * Read a string, which can be null
+	 */
+	private String readString( DataInputStream in ) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * Mapped windows of the record section
+	 */
+	private static class Windows {
+
+		/**
+		 * Channel of the cache
+		 */
+		private final FileChannel channel;
+		/**
+		 * Offset of the record section in the file
+		 */
+		private final long start;
+		/**
+		 * Mapped windows
+		 */
+		private ByteBuffer[] windows = new ByteBuffer[0];
+
+		/**
+		 * Constructor
+		 */
+		public Windows( FileChannel channel, long start ) {
+			this.channel = channel;
+			this.start = start;
+		}
+
+		/**
+		 * Return a buffer with the bytes of the record section. A buffer
+		 * lying in one window is a slice of the window, other buffers are
+		 * copied
+		 */
+		public ByteBuffer getChunk( long offset, int length )
+				throws IOException {
+			int window = (int) (offset / WINDOW_SIZE);
+			if ( window == (offset + length - 1) / WINDOW_SIZE ) {
+				ByteBuffer buffer = getWindow( window ).duplicate();
+				int position = (int) (offset - window * WINDOW_SIZE);
+				buffer.limit( position + length );
+				buffer.position( position );
+				return buffer.slice();
+			}
+			ByteBuffer buffer = ByteBuffer.allocate( length );
+			while ( buffer.hasRemaining() ) {
+				long position = start + offset + buffer.position();
+				if ( channel.read( buffer, position ) < 0 )
+					throw new IOException( "Wrong cache file format" );
+			}
+			buffer.clear();
+			return buffer;
+		}
+
+		/**
+		 * Map a window
+		 */
+		private ByteBuffer getWindow( int index ) throws IOException {
+			if ( index >= windows.length ) {
+				ByteBuffer[] newWindows = new ByteBuffer[index + 1];
+				System.arraycopy( windows, 0, newWindows, 0, windows.length );
+				windows = newWindows;
+			}
+			if ( windows[index] == null ) {
+				long position = start + index * WINDOW_SIZE;
+				windows[index] =
+						channel.map( FileChannel.MapMode.READ_ONLY, position, Math
+								.min( WINDOW_SIZE, channel.size() - position ) );
+			}
+			return windows[index];
+		}
+	}
+}
@@ -178,6 +178,42 @@ public abstract class AbstractSignal {
 	 */
 	public abstract String getValueAt( long time );
 
+	/**
+	 * Read the bits of the value of the Signal at the specified time into a
+	 * reusable buffer, without creating objects
+	 * 
+	 * @param time
+	 *        - time to get the Signal's value
+	 * @param value
+	 *        - buffer for the bits of the value
+	 * @return true if the buffer holds the value, false if the value has no
+	 *         bits, like a real var, and getValueAt( time ) has to be used
+	 */
+	public abstract boolean getValueAt( long time, BitVector value );
+
+	/**
+	 * Create a cursor for the sequential traversal of the changes
+	 * 
+	 * @return a new cursor, which has to be positioned by seek
+	 */
+	public abstract ChangeCursor createCursor();
+
+	/**
+	 * Summarize the changes in a time range without reading them. The range
+	 * is widened to the buckets of the activity summary
+	 * 
+	 * @param time1
+	 *        - start of the range
+	 * @param time2
+	 *        - end of the range, not included
+	 * @param activity
+	 *        - buffer for the summary
+	 * @return false if the range is narrower than the summary or the signal
+	 *         has no values, then the changes have to be read by a cursor
+	 */
+	public abstract boolean getActivity( long time1, long time2,
+		SignalActivity activity );
+
 	/**
 	 * Set the Signal's value at the specified time
 	 * 
@@ -247,6 +283,16 @@ public abstract class AbstractSignal {
 	 */
 	public abstract int getSumCountChanges( long time1, long time2 );
 
+	/**
+	 * Return an amount of bit changes of the signal up to a time. The
+	 * difference for two times is the switching activity between them
+	 * 
+	 * @param time
+	 *        - the time
+	 * @return an amount of bit changes or -1 if the signal has no values
+	 */
+	public abstract long getCountToggles( long time );
+
 	/**
 	 * Return a minimum interval in px without changes
 	 */
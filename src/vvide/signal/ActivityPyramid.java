@@ -0,0 +1,240 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+/**
+ * Summary of the records of a dump in buckets of 2^shift time units. Every
+ * bucket keeps the index of its first record, so the count and the first and
+ * last record of a range of buckets are known at once. The x and z flags of
+ * the buckets are kept in levels, a bucket of level k covers 2^k buckets of
+ * level 0. The buckets get wider while records are added, so there are about
+ * RECORDS_PER_BUCKET records in every bucket
+ */
+class ActivityPyramid {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Flag for a record with an x bit
+	 */
+	static final int FLAG_X = 1;
+	/**
+	 * Flag for a record with a z bit
+	 */
+	static final int FLAG_Z = 2;
+	/**
+	 * Count of buckets used for a dump with few records
+	 */
+	private static final int MIN_BUCKETS = 1024;
+	/**
+	 * Average count of records in a bucket of a large dump
+	 */
+	private static final int RECORDS_PER_BUCKET = 16;
+	/**
+	 * Divide of the summarized times
+	 */
+	private final long timeDivide;
+	/**
+	 * Multiply of the summarized times
+	 */
+	private final int timeRatio;
+	/**
+	 * log2 of the width of a bucket
+	 */
+	private int shift = 0;
+	/**
+	 * Index of the first record of every bucket. A bucket without records
+	 * has the index of the next record
+	 */
+	private int[] starts = new int[MIN_BUCKETS + 1];
+	/**
+	 * Flags of the buckets of every level
+	 */
+	private byte[][] flags;
+	/**
+	 * Count of the buckets up to the bucket of the last record
+	 */
+	private int countBuckets = 0;
+	/**
+	 * Count of the summarized records
+	 */
+	private int countRecords = 0;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the count of the summarized records
+	 */
+	public int getCountRecords() {
+		return countRecords;
+	}
+
+	/**
+	 * Return log2 of the width of a bucket
+	 */
+	public int getShift() {
+		return shift;
+	}
+
+	/**
+	 * Return true if the times are summarized with the specified scale
+	 */
+	public boolean hasScale( long divide, int ratio ) {
+		return timeDivide == divide && timeRatio == ratio;
+	}
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Constructor
+	 *
+	 * @param divide
+	 *        divide of the timestamps
+	 * @param ratio
+	 *        multiply of the timestamps
+	 */
+	public ActivityPyramid( long divide, int ratio ) {
+		this.timeDivide = divide;
+		this.timeRatio = ratio;
+		this.flags = createLevels( MIN_BUCKETS );
+	}
+
+	/**
+	 * Create empty levels for a count of buckets
+	 *
+	 * @param capacity
+	 *        count of buckets of level 0, a power of two
+	 */
+	private static byte[][] createLevels( int capacity ) {
+		int countLevels = Integer.numberOfTrailingZeros( capacity ) + 1;
+		byte[][] levels = new byte[countLevels][];
+		for ( int k = 0; k < countLevels; ++k ) {
+			levels[k] = new byte[capacity >>> k];
+		}
+		return levels;
+	}
+
+	/**
+	 * Add the next record
+	 *
+	 * @param time
+	 *        scaled time of the record, not before the previous record
+	 * @param recordFlags
+	 *        FLAG_X and FLAG_Z of the value of the record
+	 */
+	public void add( long time, int recordFlags ) {
+		if ( (time >>> shift) >= countBuckets ) {
+			int maxBuckets =
+					Math.max( MIN_BUCKETS, countRecords / RECORDS_PER_BUCKET );
+			while ( (time >>> shift) >= maxBuckets ) {
+				coarsen();
+			}
+			int bucket = (int) (time >>> shift);
+			if ( bucket >= flags[0].length ) grow( bucket + 1 );
+			for ( int b = countBuckets; b <= bucket; ++b ) {
+				starts[b] = countRecords;
+			}
+			countBuckets = bucket + 1;
+		}
+		countRecords++;
+		starts[countBuckets] = countRecords;
+		if ( recordFlags == 0 ) return;
+		int bucket = (int) (time >>> shift);
+		for ( int k = 0; k < flags.length; ++k ) {
+			flags[k][bucket >>> k] |= recordFlags;
+		}
+	}
+
+	/**
+	 * Join every two buckets to one bucket
+	 */
+	private void coarsen() {
+		shift++;
+		countBuckets = (countBuckets + 1) >>> 1;
+		for ( int b = 1; b < countBuckets; ++b ) {
+			starts[b] = starts[b << 1];
+		}
+		starts[countBuckets] = countRecords;
+		// level k + 1 is the new level k
+		if ( flags.length > 1 ) {
+			byte[][] levels = new byte[flags.length - 1][];
+			System.arraycopy( flags, 1, levels, 0, levels.length );
+			flags = levels;
+		}
+	}
+
+	/**
+	 * Grow the arrays for a count of buckets
+	 *
+	 * @param count
+	 *        count of buckets needed
+	 */
+	private void grow( int count ) {
+		int capacity = Integer.highestOneBit( count - 1 ) << 1;
+		int[] newStarts = new int[capacity + 1];
+		System.arraycopy( starts, 0, newStarts, 0, countBuckets + 1 );
+		starts = newStarts;
+		byte[][] levels = createLevels( capacity );
+		for ( int k = 0; k < flags.length; ++k ) {
+			System.arraycopy( flags[k], 0, levels[k], 0, flags[k].length );
+		}
+		for ( int k = flags.length; k < levels.length; ++k ) {
+			levels[k][0] = (byte) (levels[k - 1][0] | levels[k - 1][1]);
+		}
+		flags = levels;
+	}
+
+	/**
+	 * Return the index of the first record of a bucket
+	 *
+	 * @param bucket
+	 *        index of the bucket
+	 * @return the index or the count of the records after the last bucket
+	 */
+	public int getStart( long bucket ) {
+		return (bucket >= countBuckets) ? countRecords : starts[(int) bucket];
+	}
+
+	/**
+	 * Return the flags of a range of buckets. The range is split into the
+	 * largest buckets of the levels
+	 *
+	 * @param bucket1
+	 *        first bucket of the range
+	 * @param bucket2
+	 *        bucket after the range
+	 * @return FLAG_X and FLAG_Z of the records of the range
+	 */
+	public int getFlags( long bucket1, long bucket2 ) {
+		int b1 = (int) Math.min( bucket1, countBuckets );
+		int b2 = (int) Math.min( bucket2, countBuckets );
+		int result = 0;
+		for ( int k = 0; b1 < b2; ++k ) {
+			if ( (b1 & 1) != 0 ) result |= flags[k][b1++];
+			if ( (b2 & 1) != 0 ) result |= flags[k][--b2];
+			b1 >>>= 1;
+			b2 >>>= 1;
+		}
+		return result;
+	}
+}
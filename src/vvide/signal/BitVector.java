@@ -0,0 +1,215 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+/**
+ * Reusable four state value of a signal. The bits are kept in two planes of
+ * 64 bit words like in the packed dumps: a value plane and a mask plane. A
+ * bit with a clear mask is 0 or 1, a masked bit is z if its value bit is
+ * clear and x otherwise. Bit 0 is the lowest bit of the first word
+ */
+public class BitVector {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * State of a 0 bit
+	 */
+	public static final int BIT_0 = 0;
+	/**
+	 * State of a 1 bit
+	 */
+	public static final int BIT_1 = 1;
+	/**
+	 * State of a z bit
+	 */
+	public static final int BIT_Z = 2;
+	/**
+	 * State of an x bit
+	 */
+	public static final int BIT_X = 3;
+	/**
+	 * State of a value wider than one bit with 0 and 1 bits only
+	 */
+	public static final int KNOWN = 4;
+	/**
+	 * Words of the value plane
+	 */
+	long[] values = new long[1];
+	/**
+	 * Words of the mask plane
+	 */
+	long[] masks = new long[1];
+	/**
+	 * Count of the bits
+	 */
+	private int width = 0;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the count of the bits
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Return the count of the words of each plane
+	 */
+	public int getCountWords() {
+		return (width + 63) >>> 6;
+	}
+
+	/**
+	 * Return a word of the 1 bits
+	 *
+	 * @param word
+	 *        index of the word
+	 * @return the bits, which are 1
+	 */
+	public long getValueWord( int word ) {
+		return values[word] & ~masks[word];
+	}
+
+	/**
+	 * Return a word of the x bits
+	 *
+	 * @param word
+	 *        index of the word
+	 * @return the bits, which are x
+	 */
+	public long getXWord( int word ) {
+		return values[word] & masks[word];
+	}
+
+	/**
+	 * Return a word of the z bits
+	 *
+	 * @param word
+	 *        index of the word
+	 * @return the bits, which are z
+	 */
+	public long getZWord( int word ) {
+		return masks[word] & ~values[word];
+	}
+
+	/**
+	 * Return the state of a bit
+	 *
+	 * @param bit
+	 *        number of the bit
+	 * @return BIT_0, BIT_1, BIT_Z or BIT_X
+	 */
+	public int getBit( int bit ) {
+		int word = bit >>> 6;
+		int state = (int) (values[word] >>> bit) & 1;
+		return ((masks[word] & (1L << bit)) != 0) ? state | BIT_Z : state;
+	}
+
+	/**
+	 * Set the state of a bit
+	 *
+	 * @param bit
+	 *        number of the bit
+	 * @param state
+	 *        BIT_0, BIT_1, BIT_Z or BIT_X
+	 */
+	public void setBit( int bit, int state ) {
+		int word = bit >>> 6;
+		long mask = 1L << bit;
+		if ( (state & BIT_1) != 0 )
+			values[word] |= mask;
+		else values[word] &= ~mask;
+		if ( (state & BIT_Z) != 0 )
+			masks[word] |= mask;
+		else masks[word] &= ~mask;
+	}
+
+	/**
+	 * Return the state of the whole value. A value with an x bit is x, a
+	 * value with z bits only is z
+	 *
+	 * @return BIT_X, BIT_Z, the state of the bit of a one bit value or KNOWN
+	 */
+	public int getState() {
+		int state = KNOWN;
+		for ( int word = getCountWords() - 1; word >= 0; --word ) {
+			if ( masks[word] == 0 ) continue;
+			if ( (values[word] & masks[word]) != 0 ) return BIT_X;
+			state = BIT_Z;
+		}
+		return (state == KNOWN && width == 1) ? getBit( 0 ) : state;
+	}
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Set all bits to 0
+	 *
+	 * @param width
+	 *        new count of the bits
+	 */
+	public void clear( int width ) {
+		this.width = width;
+		int count = getCountWords();
+		if ( count > values.length ) {
+			values = new long[count];
+			masks = new long[count];
+			return;
+		}
+		for ( int word = 0; word < count; ++word ) {
+			values[word] = 0;
+			masks[word] = 0;
+		}
+	}
+
+	/**
+	 * Copy another value into this one
+	 *
+	 * @param other
+	 *        value to copy
+	 */
+	public void copy( BitVector other ) {
+		clear( other.width );
+		int count = getCountWords();
+		System.arraycopy( other.values, 0, values, 0, count );
+		System.arraycopy( other.masks, 0, masks, 0, count );
+	}
+
+	/**
+	 * Compare the bits with another value
+	 *
+	 * @param other
+	 *        value to compare
+	 * @return true if both values have the same width and bits
+	 */
+	public boolean sameBits( BitVector other ) {
+		if ( other.width != width ) return false;
+		for ( int word = getCountWords() - 1; word >= 0; --word ) {
+			if ( values[word] != other.values[word]
+				|| masks[word] != other.masks[word] ) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+/**
+ * Cursor for the sequential traversal of the changes of a signal. The cursor
+ * is positioned once by a search and then steps to the next or the previous
+ * change without searching again. Changes at the same time are one change
+ */
+public abstract class ChangeCursor {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Cursor of a signal without changes
+	 */
+	public static final ChangeCursor EMPTY = new ChangeCursor() {
+
+		@Override
+		public void seek( long time ) {}
+
+		@Override
+		public long getTime() {
+			return -1;
+		}
+
+		@Override
+		public long getNextTime() {
+			return -1;
+		}
+
+		@Override
+		public boolean next() {
+			return false;
+		}
+
+		@Override
+		public boolean previous() {
+			return false;
+		}
+
+		@Override
+		public boolean getValue( BitVector value ) {
+			value.clear( 0 );
+			return false;
+		}
+
+		@Override
+		public int getBit( int bit ) {
+			return -1;
+		}
+	};
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Move the cursor to the last change not after the time or to the first
+	 * change, if the time is before it
+	 *
+	 * @param time
+	 *        - the time
+	 */
+	public abstract void seek( long time );
+
+	/**
+	 * Return the time of the current change
+	 *
+	 * @return the time or -1 if the signal has no changes
+	 */
+	public abstract long getTime();
+
+	/**
+	 * Return the time of the next change
+	 *
+	 * @return the time or -1 if the current change is the last one
+	 */
+	public abstract long getNextTime();
+
+	/**
+	 * Move to the next change
+	 *
+	 * @return false if the current change is the last one
+	 */
+	public abstract boolean next();
+
+	/**
+	 * Move to the previous change
+	 *
+	 * @return false if the current change is the first one
+	 */
+	public abstract boolean previous();
+
+	/**
+	 * Read the bits of the value of the current change
+	 *
+	 * @param value
+	 *        - buffer for the bits
+	 * @return false if the value has no bits
+	 * @see AbstractSignal#getValueAt(long, BitVector)
+	 */
+	public abstract boolean getValue( BitVector value );
+
+	/**
+	 * Return the state of one bit of the current value
+	 *
+	 * @param bit
+	 *        - number of the bit
+	 * @return BitVector.BIT_0, BIT_1, BIT_Z, BIT_X or -1 without changes
+	 */
+	public abstract int getBit( int bit );
+
+	/**
+	 * Move the cursor to a time, stepping forward if the time is not after
+	 * the next change
+	 *
+	 * @param time
+	 *        - the time
+	 */
+	public void moveTo( long time ) {
+		if ( time < getTime() ) {
+			seek( time );
+			return;
+		}
+		long nextTime = getNextTime();
+		if ( nextTime == -1 || time < nextTime ) return;
+		if ( time == nextTime )
+			next();
+		else seek( time );
+	}
+}
@@ -28,17 +28,44 @@ package vvide.signal;
 import java.lang.reflect.Method;
 import java.util.Vector;
 
+import vvide.Application;
 import vvide.logger.Logger;
 import vvide.signal.visitors.AbstractVisitor;
 
 /**
- * ManyBit Signal Class. A Container for many One-Bit signals
+ * ManyBit Signal Class. A Container for many One-Bit signals. When all bits
+ * are loaded, the changes of the bits are merged into one dump of the bus,
+ * so the values and changes are read like the ones of a vector signal
  */
 public class CompoundSignal extends AbstractSignal {
 
 	/*
 	 * =========================== Attributes ================================
 	 */
+	/**
+	 * Characters of the bit states BitVector.BIT_0, BIT_1, BIT_Z and BIT_X
+	 */
+	private static final byte[] STATE_CHARS = { '0', '1', 'z', 'x' };
+	/**
+	 * Buffer for the activity of one bit
+	 */
+	private final SignalActivity bitActivity = new SignalActivity();
+	/**
+	 * Dump with the merged changes of the bits, null until the first query
+	 * after all bits are loaded
+	 */
+	private volatile SignalValueDump busDump = null;
+	/**
+	 * Dumps of the bits merged into the bus dump. The bus dump is built again,
+	 * when the dump of a bit is replaced
+	 */
+	private volatile SignalValueDump[] bitDumps = null;
+	/**
+	 * Version of the dumps of the signal manager, the dumps of the bits were
+	 * compared with the last time
+	 */
+	private volatile int mergedVersion = -1;
+
 	@Override
 	public boolean isCompound() {
 		return true;
@@ -46,6 +73,8 @@ public class CompoundSignal extends AbstractSignal {
 
 	@Override
 	public String getValueAt( long time ) {
+		SignalValueDump dump = getBusDump();
+		if ( dump != null ) return dump.getValueAt( time );
 
 		char[] value = new char[childrens.size()];
 		for ( AbstractSignal signal : childrens ) {
@@ -61,6 +90,56 @@ public class CompoundSignal extends AbstractSignal {
 		return String.valueOf( value );
 	}
 
+	@Override
+	public boolean getValueAt( long time, BitVector value ) {
+		SignalValueDump dump = getBusDump();
+		if ( dump != null ) return dump.getValueAt( time, value );
+		value.clear( bitWidth );
+		for ( AbstractSignal signal : childrens ) {
+			VectorSignal vSignal = (VectorSignal) signal;
+
+			int state = vSignal.getBitAt( time, vSignal.getBitWidth() - 1 );
+			if ( state < 0 ) {
+				value.clear( 0 );
+				return false;
+			}
+			value.setBit( vSignal.getBitNr(), state );
+		}
+		return true;
+	}
+
+	@Override
+	public ChangeCursor createCursor() {
+		SignalValueDump dump = getBusDump();
+		if ( dump != null ) return dump.createCursor();
+		return new MergeCursor();
+	}
+
+	@Override
+	public boolean getActivity( long time1, long time2,
+		SignalActivity activity ) {
+		SignalValueDump dump = getBusDump();
+		if ( dump != null ) return dump.getActivity( time1, time2, activity );
+		activity.count = 0;
+		activity.x = false;
+		activity.z = false;
+		activity.firstValue.clear( bitWidth );
+		activity.lastValue.clear( bitWidth );
+		for ( AbstractSignal signal : childrens ) {
+			if ( !signal.getActivity( time1, time2, bitActivity ) ) return false;
+			activity.count += bitActivity.count;
+			activity.x |= bitActivity.x;
+			activity.z |= bitActivity.z;
+			if ( bitActivity.lastValue.getWidth() == 0 ) continue;
+			int bit = signal.getBitWidth() - 1;
+			activity.firstValue.setBit( signal.getBitNr(),
+					bitActivity.firstValue.getBit( bit ) );
+			activity.lastValue.setBit( signal.getBitNr(),
+					bitActivity.lastValue.getBit( bit ) );
+		}
+		return true;
+	}
+
 	@Override
 	public boolean setValueAt( long time, String value ) {
 		return false;
@@ -68,6 +147,9 @@ public class CompoundSignal extends AbstractSignal {
 
 	@Override
 	public long getNextChangeTime( long time ) {
+		SignalValueDump dump = getBusDump();
+		if ( dump != null ) return dump.getNextChangeTime( time );
+		if ( !isLoaded( time, time ) ) return -1;
 		long nextTime = -1;
 		for ( AbstractSignal signal : childrens ) {
 			long tmpTime = ((VectorSignal)signal).getNextChangeTime( time );
@@ -85,6 +167,7 @@ public class CompoundSignal extends AbstractSignal {
 
 	@Override
 	public int getCountChanges( long time1, long time2 ) {
+		if ( !isLoaded( time1, time2 ) ) return -1;
 		int count = ((VectorSignal)childrens.get( 0 )).getCountChanges( time1, time2 );
 		for ( AbstractSignal signal : childrens ) {
 			count = Math.max( ((VectorSignal)signal).getCountChanges( time1, time2 ), count );
@@ -94,6 +177,7 @@ public class CompoundSignal extends AbstractSignal {
 
 	@Override
 	public int getSumCountChanges( long time1, long time2 ) {
+		if ( !isLoaded( time1, time2 ) ) return -1;
 		int count = 0;
 		for ( AbstractSignal signal : childrens ) {
 			count += ((VectorSignal)signal).getCountChanges( time1, time2 );
@@ -101,6 +185,17 @@ public class CompoundSignal extends AbstractSignal {
 		return count;
 	}
 
+	@Override
+	public long getCountToggles( long time ) {
+		long count = 0;
+		for ( AbstractSignal signal : childrens ) {
+			long toggles = signal.getCountToggles( time );
+			if ( toggles < 0 ) return -1;
+			count += toggles;
+		}
+		return count;
+	}
+
 	/**
 	 * Return a OneBitsignal with specified BitNr.
 	 * 
@@ -122,6 +217,9 @@ public class CompoundSignal extends AbstractSignal {
 
 	@Override
 	public long getPreviousChangeTime( long time ) {
+		SignalValueDump dump = getBusDump();
+		if ( dump != null ) return dump.getPreviousChangeTime( time );
+		if ( !isLoaded( time, time ) ) return -1;
 		long lastTime = -1;
 		for ( AbstractSignal signal : childrens ) {
 			long tmpTime = signal.getPreviousChangeTime( time );
@@ -139,6 +237,8 @@ public class CompoundSignal extends AbstractSignal {
 
 	@Override
 	public long getLastChangeTime( long time ) {
+		SignalValueDump dump = getBusDump();
+		if ( dump != null ) return dump.getLastChangeTime( time );
 		long nextTime = -1;
 		for ( AbstractSignal signal : childrens ) {
 			long tmpTime = signal.getLastChangeTime( time );
@@ -156,6 +256,8 @@ public class CompoundSignal extends AbstractSignal {
 
 	@Override
 	public long getNearestPreviousChangeTime( long time ) {
+		SignalValueDump dump = getBusDump();
+		if ( dump != null ) return dump.getNearestPreviousChangeTime( time );
 		long nextTime = -1;
 		for ( AbstractSignal signal : childrens ) {
 			long tmpTime = signal.getNearestPreviousChangeTime( time );
@@ -196,6 +298,113 @@ public class CompoundSignal extends AbstractSignal {
 		if ( signal == null ) return;
 		bitWidth = Math.max( bitWidth, (signal.bitNr + 1) );
 		childrens.add( signal );
+		busDump = null;
+		bitDumps = null;
+	}
+
+	/**
+	 * Return true if the values of a time range are in the dumps of all
+	 * bits. A bit out of its window would hide the changes of the others
+	 * 
+	 * @param time1
+	 *        start of the range
+	 * @param time2
+	 *        end of the range
+	 */
+	private boolean isLoaded( long time1, long time2 ) {
+		for ( AbstractSignal signal : childrens ) {
+			SignalValueDump dump = ((VectorSignal) signal).getSignalDump();
+			if ( dump != null && !dump.isLoaded( time1, time2 ) ) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the dump with the merged changes of the bits. The dump is built
+	 * by the first query after the dumps of all bits are sealed
+	 * 
+	 * @return the dump or null, if the bits are not merged
+	 */
+	private SignalValueDump getBusDump() {
+		if ( !Application.settingsManager.getMergedBuses() ) return null;
+		SignalValueDump dump = busDump;
+		if ( dump != null && isMerged() ) return dump;
+		for ( AbstractSignal signal : childrens ) {
+			SignalValueDump bitDump = ((VectorSignal) signal).getSignalDump();
+			if ( bitDump == null || !bitDump.isSealed()
+				|| bitDump.getCountRecords() == 0 ) return null;
+		}
+		synchronized ( this ) {
+			if ( busDump == null || !isMerged() ) {
+				int version = Application.signalManager.getDumpVersion();
+				SignalValueDump[] dumps = new SignalValueDump[childrens.size()];
+				for ( int i = 0; i < dumps.length; ++i ) {
+					dumps[i] = ((VectorSignal) childrens.get( i )).getSignalDump();
+				}
+				busDump = mergeBits();
+				bitDumps = dumps;
+				mergedVersion = version;
+			}
+			return busDump;
+		}
+	}
+
+	/**
+	 * Return true if the bus dump was merged from the current dumps of the
+	 * bits. The bits are compared only after a dump of any signal was
+	 * replaced
+	 */
+	private boolean isMerged() {
+		SignalValueDump[] dumps = bitDumps;
+		if ( dumps == null || dumps.length != childrens.size() ) return false;
+		int version = Application.signalManager.getDumpVersion();
+		if ( version == mergedVersion ) return true;
+		for ( int i = 0; i < dumps.length; ++i ) {
+			if ( dumps[i] != ((VectorSignal) childrens.get( i )).getSignalDump() )
+				return false;
+		}
+		mergedVersion = version;
+		return true;
+	}
+
+	/**
+	 * Merge the changes of the bits into one dump. The merge cursor steps to
+	 * every time, at which a bit changes, and only the changed bits are read
+	 * again. Before its first change a bit has the value of the first change,
+	 * like in its own dump
+	 * 
+	 * @return the sealed dump of the bus
+	 */
+	private SignalValueDump mergeBits() {
+		MergeCursor cursor = new MergeCursor();
+		cursor.start();
+
+		// the bus dump is dropped with the dumps of the bits, e.g. with a
+		// window of the values on the heap
+		DumpStorage storage =
+				((VectorSignal) childrens.get( 0 )).getSignalDump().getStorage();
+		SignalValueDump dump = new SignalValueDump( bitWidth, true, storage );
+		// the bus has the values of the window common to all bits
+		long windowStart = Long.MIN_VALUE;
+		long windowEnd = Long.MAX_VALUE;
+		for ( AbstractSignal signal : childrens ) {
+			SignalValueDump bitDump = ((VectorSignal) signal).getSignalDump();
+			windowStart = Math.max( windowStart, bitDump.getWindowStart() );
+			windowEnd = Math.min( windowEnd, bitDump.getWindowEnd() );
+		}
+		dump.setWindow( windowStart, windowEnd );
+		byte[] value = new byte[bitWidth];
+		do {
+			for ( int j = 0; j < cursor.countChanged; ++j ) {
+				int i = cursor.changed[j];
+				int state = cursor.cursors[i].getBit( cursor.valueBits[i] );
+				value[bitWidth - cursor.bitNrs[i] - 1] = STATE_CHARS[state];
+			}
+			dump.addRecord( cursor.getTime(), value, 0, bitWidth );
+		}
+		while ( cursor.next() );
+		dump.seal();
+		return dump;
 	}
 
 	/**
@@ -223,4 +432,234 @@ public class CompoundSignal extends AbstractSignal {
 			Logger.logError( this, e );
 		}
 	}
+
+	/*
+	 * ======================== Internal Classes ==============================
+	 */
+	/**
+	 * Cursor merging the changes of the bits. The cursors of the bits with a
+	 * next change are kept in a heap ordered by the time of the next change,
+	 * so a step costs the changed bits only
+	 */
+	private class MergeCursor extends ChangeCursor {
+
+		/**
+		 * Cursors of the bits
+		 */
+		private final ChangeCursor[] cursors;
+		/**
+		 * Numbers of the bits
+		 */
+		private final int[] bitNrs;
+		/**
+		 * Bit of the value of every bit signal
+		 */
+		private final int[] valueBits;
+		/**
+		 * Heap with the indexes of the cursors having a next change
+		 */
+		private final int[] heap;
+		/**
+		 * Count of the cursors in the heap
+		 */
+		private int heapSize = 0;
+		/**
+		 * Flags of the bits, which wait for their first change after the
+		 * start of a merge
+		 */
+		private final boolean[] waiting;
+		/**
+		 * Indexes of the cursors moved by the last step
+		 */
+		private final int[] changed;
+		/**
+		 * Count of the cursors moved by the last step
+		 */
+		private int countChanged = 0;
+		/**
+		 * Time of the current change
+		 */
+		private long time = -1;
+
+		/**
+		 * Constructor
+		 */
+		public MergeCursor() {
+			int count = childrens.size();
+			cursors = new ChangeCursor[count];
+			bitNrs = new int[count];
+			valueBits = new int[count];
+			heap = new int[count];
+			changed = new int[count];
+			waiting = new boolean[count];
+			for ( int i = 0; i < count; ++i ) {
+				VectorSignal vSignal = (VectorSignal) childrens.get( i );
+				cursors[i] = vSignal.createCursor();
+				bitNrs[i] = vSignal.getBitNr();
+				valueBits[i] = vSignal.getBitWidth() - 1;
+			}
+		}
+
+		@Override
+		public void seek( long time ) {
+			// the last change of any bit not after the time
+			this.time = -1;
+			long firstTime = Long.MAX_VALUE;
+			for ( ChangeCursor cursor : cursors ) {
+				cursor.seek( time );
+				long cursorTime = cursor.getTime();
+				if ( cursorTime == -1 ) continue;
+				if ( cursorTime <= time )
+					this.time = Math.max( this.time, cursorTime );
+				firstTime = Math.min( firstTime, cursorTime );
+			}
+			// before the first change of all bits the first change is current
+			if ( this.time == -1 && firstTime != Long.MAX_VALUE )
+				this.time = firstTime;
+			// bits starting later wait for their first change
+			for ( int i = 0; i < cursors.length; ++i ) {
+				waiting[i] = cursors[i].getTime() > this.time;
+			}
+			buildHeap();
+		}
+
+		/**
+		 * Move the cursors of the bits to their first change. The time is
+		 * the first change of any bit, a bit changing later keeps the value
+		 * of its first change until then. All bits count as changed
+		 */
+		public void start() {
+			time = Long.MAX_VALUE;
+			for ( ChangeCursor cursor : cursors ) {
+				cursor.seek( 0 );
+				time = Math.min( time, cursor.getTime() );
+			}
+			for ( int i = 0; i < cursors.length; ++i ) {
+				waiting[i] = cursors[i].getTime() > time;
+				changed[i] = i;
+			}
+			countChanged = cursors.length;
+			buildHeap();
+		}
+
+		@Override
+		public long getTime() {
+			return time;
+		}
+
+		@Override
+		public long getNextTime() {
+			return (heapSize > 0) ? getHeapTime( heap[0] ) : -1;
+		}
+
+		@Override
+		public boolean next() {
+			if ( heapSize == 0 ) return false;
+			time = getHeapTime( heap[0] );
+			countChanged = 0;
+			while ( heapSize > 0 && getHeapTime( heap[0] ) == time ) {
+				// a bit reaching its first change is at the change already
+				if ( waiting[heap[0]] )
+					waiting[heap[0]] = false;
+				else
+					cursors[heap[0]].next();
+				changed[countChanged++] = heap[0];
+				if ( getHeapTime( heap[0] ) == -1 ) heap[0] = heap[--heapSize];
+				if ( heapSize > 0 ) siftDown( 0 );
+			}
+			return true;
+		}
+
+		@Override
+		public boolean previous() {
+			// the bits changing at the time step back, a bit at its first
+			// change stays there and waits for it again
+			long previousTime = -1;
+			for ( int i = 0; i < cursors.length; ++i ) {
+				if ( !waiting[i] && cursors[i].getTime() == time )
+					cursors[i].previous();
+				long cursorTime = cursors[i].getTime();
+				if ( cursorTime != -1 && cursorTime < time )
+					previousTime = Math.max( previousTime, cursorTime );
+			}
+			// no bit changes before, so no cursor has moved
+			if ( previousTime == -1 ) return false;
+			time = previousTime;
+			for ( int i = 0; i < cursors.length; ++i ) {
+				waiting[i] = cursors[i].getTime() > time;
+			}
+			buildHeap();
+			return true;
+		}
+
+		@Override
+		public boolean getValue( BitVector value ) {
+			value.clear( bitWidth );
+			for ( int i = 0; i < cursors.length; ++i ) {
+				int state = cursors[i].getBit( valueBits[i] );
+				if ( state < 0 ) {
+					value.clear( 0 );
+					return false;
+				}
+				value.setBit( bitNrs[i], state );
+			}
+			return true;
+		}
+
+		@Override
+		public int getBit( int bit ) {
+			for ( int i = 0; i < cursors.length; ++i ) {
+				if ( bitNrs[i] == bit ) return cursors[i].getBit( valueBits[i] );
+			}
+			return -1;
+		}
+
+		/**
+		 * Return the time, at which a cursor moves next. A bit before its
+		 * first change moves to the change it is at
+		 * 
+		 * @param index
+		 *        index of the cursor
+		 * @return the time or -1 if the bit has no next change
+		 */
+		private long getHeapTime( int index ) {
+			return waiting[index] ? cursors[index].getTime() : cursors[index]
+					.getNextTime();
+		}
+
+		/**
+		 * Put the cursors with a next change into the heap
+		 */
+		private void buildHeap() {
+			heapSize = 0;
+			for ( int i = 0; i < cursors.length; ++i ) {
+				if ( getHeapTime( i ) != -1 ) heap[heapSize++] = i;
+			}
+			for ( int i = heapSize / 2 - 1; i >= 0; --i ) {
+				siftDown( i );
+			}
+		}
+
+		/**
+		 * Move a cursor down the heap to its place
+		 * 
+		 * @param position
+		 *        position of the cursor in the heap
+		 */
+		private void siftDown( int position ) {
+			int cursor = heap[position];
+			long nextTime = getHeapTime( cursor );
+			while ( true ) {
+				int child = 2 * position + 1;
+				if ( child >= heapSize ) break;
+				if ( child + 1 < heapSize
+					&& getHeapTime( heap[child + 1] ) < getHeapTime( heap[child] ) )
+					child++;
+				if ( getHeapTime( heap[child] ) >= nextTime ) break;
+				heap[position] = heap[child];
+				position = child;
+			}
+			heap[position] = cursor;
+		}
+	}
 }
@@ -0,0 +1,341 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+/**
+ * Runs of the periodic records of a dump. After MIN_RUN records with the
+ * same period, the following records with this period form a run, which
+ * stores the time of its first record, the period and the count of records
+ * only. The records outside of the runs are the stored records of the time
+ * index. The runs are appended by one thread and read by others, a run is
+ * visible after the count of records of the dump is updated
+ */
+class DumpRuns {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Count of stored records with the same period before a run is started
+	 */
+	private static final int MIN_RUN = 64;
+	/**
+	 * Count of the values of a run returned by toArray
+	 */
+	private static final int RUN_FIELDS = 4;
+	/**
+	 * Index of the first record of every run
+	 */
+	private int[] firsts = null;
+	/**
+	 * Time of the first record of every run
+	 */
+	private long[] times = null;
+	/**
+	 * Period of every run
+	 */
+	private long[] periods = null;
+	/**
+	 * Count of the records of every run, the count of the last run grows
+	 * while records are added
+	 */
+	private int[] counts = null;
+	/**
+	 * Count of the records in the runs before every run
+	 */
+	private int[] skipped = null;
+	/**
+	 * Count of the runs
+	 */
+	private int countRuns = 0;
+	/**
+	 * Period of the last stored records. Used by the writer only
+	 */
+	private long lastPeriod = 0;
+	/**
+	 * Count of the last stored records with the last period. Used by the
+	 * writer only
+	 */
+	private int countPeriods = 0;
+	/**
+	 * Flag for the last record being in the last run. Used by the writer only
+	 */
+	private boolean open = false;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the count of the runs
+	 */
+	public int getCount() {
+		return countRuns;
+	}
+
+	/**
+	 * Return the index of the first record of a run
+	 */
+	public int getFirst( int run ) {
+		return firsts[run];
+	}
+
+	/**
+	 * Return the period of a run
+	 */
+	public long getPeriod( int run ) {
+		return periods[run];
+	}
+
+	/**
+	 * Return the runs
+	 *
+	 * @return index of the first record, time of the first record, period and
+	 *         count of records of every run
+	 */
+	public long[] toArray() {
+		long[] runs = new long[countRuns * RUN_FIELDS];
+		for ( int run = 0; run < countRuns; ++run ) {
+			runs[run * RUN_FIELDS] = firsts[run];
+			runs[run * RUN_FIELDS + 1] = times[run];
+			runs[run * RUN_FIELDS + 2] = periods[run];
+			runs[run * RUN_FIELDS + 3] = counts[run];
+		}
+		return runs;
+	}
+
+	/**
+	 * Return the count of the stored records
+	 *
+	 * @param countRecords
+	 *        count of all records
+	 * @param runs
+	 *        the runs as returned by toArray
+	 * @return count of the records, which are not in a run
+	 */
+	public static int getCountStored( int countRecords, long[] runs ) {
+		for ( int i = 3; i < runs.length; i += RUN_FIELDS ) {
+			countRecords -= (int) runs[i];
+		}
+		return countRecords;
+	}
+
+	/*
+	 * ============================= Methods =================================
+	 */
+	/**
+	 * Constructor for a dump without records
+	 */
+	public DumpRuns() {}
+
+	/**
+	 * Constructor for a dump with existing records, e.g. mapped from a cache
+	 *
+	 * @param runs
+	 *        the runs as returned by toArray
+	 */
+	public DumpRuns( long[] runs ) {
+		for ( int i = 0; i < runs.length; i += RUN_FIELDS ) {
+			start( (int) runs[i], runs[i + 1], runs[i + 2] );
+			counts[countRuns - 1] = (int) runs[i + 3];
+		}
+		this.open = false;
+	}
+
+	/**
+	 * Add the time of a new record to the last run or start a new run
+	 *
+	 * @param index
+	 *        index of the record
+	 * @param time
+	 *        timestamp of the record
+	 * @param period
+	 *        difference to the timestamp of the previous record
+	 * @return false if the record is not in a run, its time has to be stored
+	 */
+	public boolean add( int index, long time, long period ) {
+		if ( index > 0 && period > 0 ) {
+			if ( open && period == periods[countRuns - 1] ) {
+				counts[countRuns - 1]++;
+				return true;
+			}
+			if ( !open && period == lastPeriod && countPeriods >= MIN_RUN ) {
+				start( index, time, period );
+				return true;
+			}
+		}
+		open = false;
+		if ( index > 0 && period == lastPeriod ) {
+			countPeriods++;
+		}
+		else {
+			lastPeriod = (index > 0) ? period : 0;
+			countPeriods = 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Start a new run
+	 *
+	 * @param index
+	 *        index of the first record
+	 * @param time
+	 *        time of the first record
+	 * @param period
+	 *        period of the run
+	 */
+	private void start( int index, long time, long period ) {
+		if ( firsts == null || countRuns == firsts.length ) {
+			int length = (firsts == null) ? 4 : firsts.length * 2;
+			int[] newFirsts = new int[length];
+			long[] newTimes = new long[length];
+			long[] newPeriods = new long[length];
+			int[] newCounts = new int[length];
+			int[] newSkipped = new int[length];
+			if ( firsts != null ) {
+				System.arraycopy( firsts, 0, newFirsts, 0, countRuns );
+				System.arraycopy( times, 0, newTimes, 0, countRuns );
+				System.arraycopy( periods, 0, newPeriods, 0, countRuns );
+				System.arraycopy( counts, 0, newCounts, 0, countRuns );
+				System.arraycopy( skipped, 0, newSkipped, 0, countRuns );
+			}
+			firsts = newFirsts;
+			times = newTimes;
+			periods = newPeriods;
+			counts = newCounts;
+			skipped = newSkipped;
+		}
+		int run = countRuns;
+		firsts[run] = index;
+		times[run] = time;
+		periods[run] = period;
+		counts[run] = 1;
+		skipped[run] = (run > 0) ? skipped[run - 1] + counts[run - 1] : 0;
+		countRuns++;
+		open = true;
+	}
+
+	/**
+	 * Return the last run starting not after a record
+	 *
+	 * @param index
+	 *        index of the record
+	 * @return index of the run or -1 if all runs start after the record
+	 */
+	public int find( int index ) {
+		int low = 0;
+		int high = countRuns - 1;
+		if ( high < 0 || firsts[0] > index ) return -1;
+		while ( low < high ) {
+			int center = (low + high + 1) >>> 1;
+			if ( firsts[center] > index ) {
+				high = center - 1;
+			}
+			else {
+				low = center;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Return true if a record is in a run
+	 *
+	 * @param run
+	 *        the run as returned by find, -1 for no run
+	 * @param index
+	 *        index of the record, not before the first record of the run
+	 */
+	public boolean contains( int run, int index ) {
+		return run >= 0 && index - firsts[run] < counts[run];
+	}
+
+	/**
+	 * Return the timestamp of a record in a run
+	 *
+	 * @param run
+	 *        the run containing the record
+	 * @param index
+	 *        index of the record
+	 * @return the timestamp computed from the period of the run
+	 */
+	public long getTimeAt( int run, int index ) {
+		return times[run] + (index - firsts[run]) * periods[run];
+	}
+
+	/**
+	 * Return the count of stored records before a record
+	 *
+	 * @param index
+	 *        index of the record
+	 * @return count of the records before the index, which are not in a run
+	 */
+	public int getStoredBefore( int index ) {
+		int run = find( index - 1 );
+		if ( run < 0 ) return index;
+		return index - skipped[run] - Math.min( counts[run], index - firsts[run] );
+	}
+
+	/**
+	 * Return the index of a stored record
+	 *
+	 * @param stored
+	 *        index of the record in the stored records
+	 * @return index of the record in all records
+	 */
+	public int getRecordIndex( int stored ) {
+		// the last run with not more stored records before it
+		int low = 0;
+		int high = countRuns - 1;
+		if ( high < 0 || firsts[0] > stored ) return stored;
+		while ( low < high ) {
+			int center = (low + high + 1) >>> 1;
+			if ( firsts[center] - skipped[center] > stored ) {
+				high = center - 1;
+			}
+			else {
+				low = center;
+			}
+		}
+		return stored + skipped[low] + counts[low];
+	}
+
+	/**
+	 * Return the first record of the runs after a time
+	 *
+	 * @param limit
+	 *        the timestamp
+	 * @param index
+	 *        first stored record after the timestamp
+	 * @return the first record after the timestamp, not after the index
+	 */
+	public int getIndexAfter( long limit, int index ) {
+		int count = countRuns;
+		int run = -1;
+		if ( count > 0 && times[0] <= limit ) {
+			run = DumpTimeIndex.searchTimes( times, 0, count - 1, limit );
+			long inRun = (limit - times[run]) / periods[run] + 1;
+			if ( inRun < counts[run] )
+				index = Math.min( index, firsts[run] + (int) inRun );
+		}
+		if ( run + 1 < count ) index = Math.min( index, firsts[run + 1] );
+		return index;
+	}
+}
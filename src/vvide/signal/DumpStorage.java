@@ -0,0 +1,256 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import vvide.logger.Logger;
+
+/**
+ * Storage for the chunks of the signal dumps. The chunks are allocated on
+ * the heap, as direct buffers outside of the heap or in a memory mapped
+ * temporary file for dumps larger than the memory
+ */
+public abstract class DumpStorage {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Storage on the heap
+	 */
+	public static final DumpStorage HEAP = new DumpStorage() {
+
+		@Override
+		public ByteBuffer allocate( int capacity ) {
+			return ByteBuffer.allocate( capacity );
+		}
+	};
+	/**
+	 * Part of the free heap, which can be used by the dumps on the heap
+	 */
+	private static final int HEAP_PART = 2;
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Choose the storage for the dumps of a file
+	 *
+	 * @param estimatedSize
+	 *        estimated bytes of all dumps
+	 * @return heap storage if the dumps fit in the free heap, direct storage
+	 *         if they fit in the maximal heap size, which is the default
+	 *         limit of the direct buffers, and a mapped file otherwise
+	 */
+	public static DumpStorage create( long estimatedSize ) {
+		Runtime runtime = Runtime.getRuntime();
+		long freeHeap =
+				runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+		if ( estimatedSize < freeHeap / HEAP_PART ) return HEAP;
+		if ( estimatedSize < runtime.maxMemory() / HEAP_PART )
+			return new DirectStorage();
+		try {
+			return new MappedStorage();
+		}
+		catch ( IOException e ) {
+			Logger.logError( DumpStorage.class, e );
+			return new DirectStorage();
+		}
+	}
+
+	/**
+	 * Allocate a buffer for a chunk
+	 *
+	 * @param capacity
+	 *        bytes of the chunk
+	 * @return a buffer filled with zeros
+	 */
+	public abstract ByteBuffer allocate( int capacity );
+
+	/**
+	 * Copy the used part of a buffer into a new buffer of the storage
+	 *
+	 * @param buffer
+	 *        the buffer
+	 * @param length
+	 *        count of the used bytes
+	 * @return the new buffer
+	 */
+	public ByteBuffer store( ByteBuffer buffer, int length ) {
+		ByteBuffer newBuffer = allocate( length );
+		ByteBuffer oldBuffer = buffer.duplicate();
+		oldBuffer.clear();
+		oldBuffer.limit( length );
+		newBuffer.put( oldBuffer );
+		return newBuffer;
+	}
+
+	/**
+	 * Release the storage. The allocated buffers stay readable
+	 */
+	public void close() {}
+
+	/**
+	 * Create an own storage of the same kind for dumps, which are dropped
+	 * before this storage. The chunks cut from a segment are not freed
+	 * before the whole segment is free, so the temporary dumps must not
+	 * share the segments of the kept dumps
+	 *
+	 * @return a new storage, which is closed after its dumps are dropped
+	 */
+	public DumpStorage createTemporary() {
+		// the chunks on the heap are freed one by one
+		return this;
+	}
+
+	/*
+	 * ======================== Internal Classes ==============================
+	 */
+	/**
+	 * Storage with direct buffers. Small chunks are cut from one direct
+	 * buffer, because every direct buffer has an overhead
+	 */
+	private static class DirectStorage extends DumpStorage {
+
+		/**
+		 * Size of a segment, the small chunks are cut from
+		 */
+		private static final int SEGMENT_SIZE = 1 << 20;
+		/**
+		 * Segment with free place
+		 */
+		private ByteBuffer segment = null;
+
+		@Override
+		public synchronized ByteBuffer allocate( int capacity ) {
+			if ( capacity > SEGMENT_SIZE / 16 )
+				return ByteBuffer.allocateDirect( capacity );
+			if ( segment == null || segment.remaining() < capacity )
+				segment = ByteBuffer.allocateDirect( SEGMENT_SIZE );
+			return cut( segment, capacity );
+		}
+
+		@Override
+		public DumpStorage createTemporary() {
+			return new DirectStorage();
+		}
+	}
+
+	/**
+	 * Storage in a temporary file. The file is mapped in segments and the
+	 * chunks are cut from the segments
+	 */
+	private static class MappedStorage extends DumpStorage {
+
+		/**
+		 * Size of a mapped segment
+		 */
+		private static final int SEGMENT_SIZE = 64 << 20;
+		/**
+		 * The temporary file
+		 */
+		private final File file;
+		/**
+		 * Channel of the file
+		 */
+		private final FileChannel channel;
+		/**
+		 * Segment with free place
+		 */
+		private ByteBuffer segment = null;
+		/**
+		 * Position of the next segment in the file
+		 */
+		private long segmentPosition = 0;
+
+		/**
+		 * Constructor
+		 *
+		 * @throws IOException
+		 */
+		public MappedStorage() throws IOException {
+			file = File.createTempFile( "vvide", ".dump" );
+			file.deleteOnExit();
+			channel = new RandomAccessFile( file, "rw" ).getChannel();
+		}
+
+		@Override
+		public synchronized ByteBuffer allocate( int capacity ) {
+			try {
+				if ( segment == null || segment.remaining() < capacity ) {
+					int size = Math.max( SEGMENT_SIZE, capacity );
+					segment =
+							channel.map( FileChannel.MapMode.READ_WRITE,
+									segmentPosition, size );
+					segmentPosition += size;
+				}
+				return cut( segment, capacity );
+			}
+			catch ( IOException e ) {
+				// the disk is full, the chunk is kept on the heap
+				Logger.logError( this, e );
+				return ByteBuffer.allocate( capacity );
+			}
+		}
+
+		@Override
+		public synchronized void close() {
+			try {
+				channel.close();
+			}
+			catch ( IOException e ) {
+				Logger.logError( this, e );
+			}
+			file.delete();
+		}
+
+		@Override
+		public DumpStorage createTemporary() {
+			try {
+				return new MappedStorage();
+			}
+			catch ( IOException e ) {
+				Logger.logError( this, e );
+				return new DirectStorage();
+			}
+		}
+	}
+
+	/**
+	 * Cut a chunk from the free place of a segment
+	 *
+	 * @param segment
+	 *        the segment, its position is moved behind the chunk
+	 * @param capacity
+	 *        bytes of the chunk
+	 * @return the chunk
+	 */
+	private static ByteBuffer cut( ByteBuffer segment, int capacity ) {
+		ByteBuffer chunk = segment.duplicate();
+		chunk.limit( segment.position() + capacity );
+		segment.position( segment.position() + capacity );
+		return chunk.slice();
+	}
+}
@@ -0,0 +1,546 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Timestamps of the stored records of a dump, the records outside of the
+ * runs. The times are stored in blocks of BLOCK_RECORDS records: the block
+ * index holds the time of the first record of every block, the other
+ * records store the difference to the previous record as a zigzag varint.
+ * The times are appended by one thread and read by others, a time is
+ * visible after the count of records of the dump is updated
+ */
+class DumpTimeIndex {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * log2 of the count of records in one time block
+	 */
+	static final int BLOCK_SHIFT = 5;
+	/**
+	 * Count of records in one time block
+	 */
+	static final int BLOCK_RECORDS = 1 << BLOCK_SHIFT;
+	/**
+	 * Mask to get the position of a record in the time block
+	 */
+	private static final int BLOCK_MASK = BLOCK_RECORDS - 1;
+	/**
+	 * log2 of the count of time blocks for one entry of the sampled index
+	 */
+	private static final int INDEX_SHIFT = 4;
+	/**
+	 * Count of time blocks for one entry of the sampled index
+	 */
+	private static final int INDEX_BLOCKS = 1 << INDEX_SHIFT;
+	/**
+	 * Mask to get the position of a time block in its index entry
+	 */
+	private static final int INDEX_MASK = INDEX_BLOCKS - 1;
+	/**
+	 * Maximal count of bytes of an encoded time difference
+	 */
+	private static final int MAX_DELTA_BYTES = 10;
+	/**
+	 * Storage for the full time chunks
+	 */
+	private final DumpStorage storage;
+	/**
+	 * Encoded time differences of the stored records,
+	 * SignalValueDump.CHUNK_RECORDS records in every chunk. A chunk grows
+	 * while records are added and is cut to its used size, when it is full
+	 */
+	private ByteBuffer[] timeChunks = new ByteBuffer[1];
+	/**
+	 * Time of the first stored record of every time block
+	 */
+	private long[] blockTimes = new long[1];
+	/**
+	 * Time of every INDEX_BLOCKS-th time block. The sampled index of a large
+	 * dump is small enough to stay in the cache, a search reads the block
+	 * times of one index entry only
+	 */
+	private long[] indexTimes = new long[1];
+	/**
+	 * Position of the difference of the second record of every time block in
+	 * its time chunk
+	 */
+	private int[] blockPositions = new int[1];
+	/**
+	 * Count of the stored records. Written before the count of records of
+	 * the dump
+	 */
+	private int countStored = 0;
+	/**
+	 * Position behind the last difference in the last time chunk. Used by
+	 * the writer only
+	 */
+	private int timePosition = 0;
+	/**
+	 * Timestamp of the last stored record. Used by the writer only
+	 */
+	private long lastStoredTime = 0;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the count of the stored records
+	 */
+	public int getCount() {
+		return countStored;
+	}
+
+	/**
+	 * Return the time of the first stored record
+	 */
+	public long getFirstTime() {
+		return blockTimes[0];
+	}
+
+	/**
+	 * Return the buffers with the encoded time differences of the stored
+	 * records, one for every SignalValueDump.CHUNK_RECORDS stored records.
+	 * The returned buffers can be read without changing the index
+	 *
+	 * @return the buffers with the time differences
+	 */
+	public ByteBuffer[] getTimeBuffers() {
+		int countChunks =
+				(countStored + SignalValueDump.CHUNK_RECORDS - 1)
+					>>> SignalValueDump.CHUNK_SHIFT;
+		ByteBuffer[] buffers = new ByteBuffer[countChunks];
+		for ( int i = 0; i < countChunks; ++i ) {
+			// the used part of a chunk ends at the next chunk or the last record
+			int length =
+					(i < countChunks - 1) ? timeChunks[i].capacity()
+						: timePosition;
+			buffers[i] = timeChunks[i].duplicate();
+			buffers[i].limit( length );
+			buffers[i].position( 0 );
+		}
+		return buffers;
+	}
+
+	/**
+	 * Return the block index
+	 *
+	 * @return time of the first stored record of every time block
+	 */
+	public long[] getBlockTimes() {
+		long[] times = new long[(countStored + BLOCK_MASK) >>> BLOCK_SHIFT];
+		System.arraycopy( blockTimes, 0, times, 0, times.length );
+		return times;
+	}
+
+	/**
+	 * Return the positions of the time blocks
+	 *
+	 * @return position of every time block in its time buffer
+	 */
+	public int[] getBlockPositions() {
+		int[] positions = new int[(countStored + BLOCK_MASK) >>> BLOCK_SHIFT];
+		System.arraycopy( blockPositions, 0, positions, 0, positions.length );
+		return positions;
+	}
+
+	/*
+	 * ============================= Methods =================================
+	 */
+	/**
+	 * Constructor for a dump without records
+	 *
+	 * @param storage
+	 *        storage for the full time chunks
+	 */
+	public DumpTimeIndex( DumpStorage storage ) {
+		this.storage = storage;
+	}
+
+	/**
+	 * Constructor for a dump with existing records, e.g. mapped from a cache
+	 *
+	 * @param storage
+	 *        storage for the full time chunks
+	 * @param timeChunks
+	 *        buffers with the encoded time differences as returned by
+	 *        getTimeBuffers
+	 * @param blockTimes
+	 *        time of the first stored record of every time block
+	 * @param blockPositions
+	 *        position of every time block in its time buffer
+	 * @param countStored
+	 *        count of the stored records
+	 */
+	public DumpTimeIndex( DumpStorage storage, ByteBuffer[] timeChunks,
+			long[] blockTimes, int[] blockPositions, int countStored ) {
+		this.storage = storage;
+		if ( countStored == 0 ) return;
+		this.timeChunks = new ByteBuffer[timeChunks.length];
+		System.arraycopy( timeChunks, 0, this.timeChunks, 0, timeChunks.length );
+		this.blockTimes = blockTimes;
+		this.blockPositions = blockPositions;
+		this.countStored = countStored;
+		int countBlocks = (countStored + BLOCK_MASK) >>> BLOCK_SHIFT;
+		for ( int block = 0; block < countBlocks; block += INDEX_BLOCKS ) {
+			appendIndexTime( block );
+		}
+		this.timePosition = timeChunks[timeChunks.length - 1].limit();
+		this.lastStoredTime = getTime( countStored - 1 );
+	}
+
+	/**
+	 * Store the time of a new record
+	 *
+	 * @param time
+	 *        timestamp of the record
+	 */
+	public void append( long time ) {
+		int index = countStored;
+		if ( (index & BLOCK_MASK) == 0 ) {
+			// the first record of a block is stored in the block index only
+			if ( (index & SignalValueDump.CHUNK_MASK) == 0 )
+				startTimeChunk( index >>> SignalValueDump.CHUNK_SHIFT );
+			int block = index >>> BLOCK_SHIFT;
+			if ( block == blockTimes.length ) {
+				long[] newTimes = new long[Math.max( 1, blockTimes.length * 2 )];
+				System.arraycopy( blockTimes, 0, newTimes, 0, block );
+				int[] newPositions = new int[newTimes.length];
+				System.arraycopy( blockPositions, 0, newPositions, 0, block );
+				blockTimes = newTimes;
+				blockPositions = newPositions;
+			}
+			blockTimes[block] = time;
+			blockPositions[block] = timePosition;
+			if ( (block & INDEX_MASK) == 0 ) appendIndexTime( block );
+		}
+		else {
+			ByteBuffer timeChunk =
+					timeChunkForAppend( index >>> SignalValueDump.CHUNK_SHIFT );
+			long delta = time - lastStoredTime;
+			long value = (delta << 1) ^ (delta >> 63);
+			while ( (value & ~0x7FL) != 0 ) {
+				timeChunk.put( timePosition++, (byte) (value | 0x80) );
+				value >>>= 7;
+			}
+			timeChunk.put( timePosition++, (byte) value );
+		}
+		lastStoredTime = time;
+		countStored++;
+	}
+
+	/**
+	 * Add a time block to the sampled index
+	 *
+	 * @param block
+	 *        index of the time block, a multiple of INDEX_BLOCKS
+	 */
+	private void appendIndexTime( int block ) {
+		int entry = block >>> INDEX_SHIFT;
+		if ( entry == indexTimes.length ) {
+			long[] newTimes = new long[indexTimes.length * 2];
+			System.arraycopy( indexTimes, 0, newTimes, 0, entry );
+			indexTimes = newTimes;
+		}
+		indexTimes[entry] = blockTimes[block];
+	}
+
+	/**
+	 * Create the time chunk for a new chunk. The previous time chunk is full
+	 * and moved into the storage at its used size. The time chunk of the last
+	 * records grows on the heap, so the storage holds the final chunks only
+	 *
+	 * @param chunkIndex
+	 *        index of the new chunk
+	 */
+	private void startTimeChunk( int chunkIndex ) {
+		if ( chunkIndex > 0 ) {
+			ByteBuffer previous = timeChunks[chunkIndex - 1];
+			if ( storage != DumpStorage.HEAP
+				|| previous.capacity() > timePosition )
+				timeChunks[chunkIndex - 1] = storage.store( previous, timePosition );
+		}
+		if ( chunkIndex == timeChunks.length ) {
+			ByteBuffer[] newChunks =
+					new ByteBuffer[Math.max( 1, timeChunks.length * 2 )];
+			System.arraycopy( timeChunks, 0, newChunks, 0, chunkIndex );
+			timeChunks = newChunks;
+		}
+		timeChunks[chunkIndex] =
+				ByteBuffer.allocate( (chunkIndex == 0)
+					? SignalValueDump.FIRST_CHUNK_RECORDS
+					: SignalValueDump.CHUNK_RECORDS );
+		timePosition = 0;
+	}
+
+	/**
+	 * Return the time chunk for the difference of the next record. Grow the
+	 * chunk on the heap if it is full
+	 *
+	 * @param chunkIndex
+	 *        index of the chunk
+	 * @return a time chunk with a free place for the difference
+	 */
+	private ByteBuffer timeChunkForAppend( int chunkIndex ) {
+		ByteBuffer timeChunk = timeChunks[chunkIndex];
+		if ( timeChunk.isReadOnly()
+			|| timePosition + MAX_DELTA_BYTES > timeChunk.capacity() ) {
+			// a mapped chunk is copied before the first change
+			ByteBuffer newChunk =
+					ByteBuffer.allocate( Math.max( timeChunk.capacity() * 2,
+							timePosition + MAX_DELTA_BYTES ) );
+			ByteBuffer oldChunk = timeChunk.duplicate();
+			oldChunk.clear();
+			oldChunk.limit( timePosition );
+			newChunk.put( oldChunk );
+			timeChunk = newChunk;
+			timeChunks[chunkIndex] = timeChunk;
+		}
+		return timeChunk;
+	}
+
+	/**
+	 * Seal the index after the last record. The growing time chunk is moved
+	 * from the heap at its final size and the chunks are replaced by
+	 * read-only views
+	 */
+	public void seal() {
+		if ( storage != DumpStorage.HEAP && countStored > 0 ) {
+			int last = (countStored - 1) >>> SignalValueDump.CHUNK_SHIFT;
+			timeChunks[last] = storage.store( timeChunks[last], timePosition );
+		}
+		timeChunks = SignalValueDump.asReadOnly( timeChunks );
+	}
+
+	/**
+	 * Return the timestamp of a stored record
+	 *
+	 * @param stored
+	 *        index of the record in the stored records
+	 * @return the timestamp as it was added
+	 */
+	public long getTime( int stored ) {
+		return new Reader( stored ).time;
+	}
+
+	/**
+	 * Create a reader for the stored timestamps
+	 *
+	 * @param stored
+	 *        index of the first stored record to read
+	 * @return the reader on the record
+	 */
+	public Reader createReader( int stored ) {
+		return new Reader( stored );
+	}
+
+	/**
+	 * Decode the timestamps of a time block
+	 *
+	 * @param block
+	 *        index of the block
+	 * @param times
+	 *        buffer for BLOCK_RECORDS timestamps
+	 * @return count of the decoded timestamps
+	 */
+	public int readBlock( int block, long[] times ) {
+		int count = Math.min( BLOCK_RECORDS, countStored - (block << BLOCK_SHIFT) );
+		Reader reader = new Reader( block << BLOCK_SHIFT );
+		times[0] = reader.time;
+		for ( int i = 1; i < count; ++i ) {
+			reader.next();
+			times[i] = reader.time;
+		}
+		return count;
+	}
+
+	/**
+	 * Search the last stored record not after a timestamp. The sampled index
+	 * narrows the search to one index entry, the block index to one block,
+	 * whose records are decoded
+	 *
+	 * @param limit
+	 *        the timestamp, not before the time of the first stored record
+	 * @param count
+	 *        count of the stored records to search
+	 * @return a reader on the last record not after the timestamp
+	 */
+	public Reader findLast( long limit, int count ) {
+		int low = 0;
+		int high = (count - 1) >>> BLOCK_SHIFT;
+		if ( high >= INDEX_BLOCKS ) {
+			low = searchTimes( indexTimes, 0, high >>> INDEX_SHIFT, limit )
+				<< INDEX_SHIFT;
+			high = Math.min( high, low + INDEX_MASK );
+		}
+		low = searchTimes( blockTimes, low, high, limit );
+
+		Reader reader = new Reader( low << BLOCK_SHIFT );
+		while ( reader.index + 1 < count && reader.getNextTime() <= limit ) {
+			reader.next();
+		}
+		return reader;
+	}
+
+	/**
+	 * Binary search the last time not after a limit
+	 *
+	 * @param times
+	 *        sorted times
+	 * @param low
+	 *        first index of the range, its time is not after the limit
+	 * @param high
+	 *        last index of the range
+	 * @param limit
+	 *        the limit
+	 * @return index of the last time in the range not after the limit
+	 */
+	static int searchTimes( long[] times, int low, int high, long limit ) {
+		while ( low < high ) {
+			int center = (low + high + 1) >>> 1;
+			if ( times[center] > limit ) {
+				high = center - 1;
+			}
+			else {
+				low = center;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * ======================== Internal Classes ==============================
+	 */
+	/**
+	 * Reader for the stored timestamps. Decode the records of a time block in
+	 * their order
+	 */
+	class Reader {
+
+		/**
+		 * Index of the current record in the stored records
+		 */
+		private int index;
+		/**
+		 * Stored timestamp of the current record
+		 */
+		private long time;
+		/**
+		 * Time chunk of the current record
+		 */
+		private ByteBuffer timeChunk;
+		/**
+		 * Position of the difference of the next record
+		 */
+		private int position;
+		/**
+		 * Timestamp of the next record, if it is decoded
+		 */
+		private long nextTime;
+		/**
+		 * Position behind the difference of the next record, -1 if it is not
+		 * decoded
+		 */
+		private int nextPosition = -1;
+
+		/**
+		 * Constructor
+		 *
+		 * @param index
+		 *        index of the first stored record to read
+		 */
+		public Reader( int index ) {
+			this.index = index & ~BLOCK_MASK;
+			startBlock();
+			while ( this.index < index ) {
+				next();
+			}
+		}
+
+		/**
+		 * Return the index of the current record in the stored records
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Return the timestamp of the current record
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * Return the timestamp of the next record without moving to it
+		 *
+		 * @return the timestamp, the next record has to exist
+		 */
+		public long getNextTime() {
+			int next = index + 1;
+			if ( (next & BLOCK_MASK) == 0 ) return blockTimes[next >>> BLOCK_SHIFT];
+			if ( nextPosition < 0 ) {
+				long value = 0;
+				int shift = 0;
+				int p = position;
+				byte b;
+				do {
+					b = timeChunk.get( p++ );
+					value |= (long) (b & 0x7F) << shift;
+					shift += 7;
+				}
+				while ( b < 0 );
+				nextTime = time + ((value >>> 1) ^ -(value & 1));
+				nextPosition = p;
+			}
+			return nextTime;
+		}
+
+		/**
+		 * Decode the time of the next stored record
+		 */
+		public void next() {
+			if ( ((index + 1) & BLOCK_MASK) == 0 ) {
+				index++;
+				startBlock();
+				return;
+			}
+			time = getNextTime();
+			position = nextPosition;
+			nextPosition = -1;
+			index++;
+		}
+
+		/**
+		 * Read the first record of the block of the current index
+		 */
+		private void startBlock() {
+			int block = index >>> BLOCK_SHIFT;
+			time = blockTimes[block];
+			position = blockPositions[block];
+			timeChunk = timeChunks[index >>> SignalValueDump.CHUNK_SHIFT];
+			nextPosition = -1;
+		}
+	}
+}
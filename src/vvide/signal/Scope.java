@@ -106,6 +106,23 @@ public class Scope extends AbstractSignal {
 		return null;
 	}
 
+	@Override
+	public boolean getValueAt( long time, BitVector value ) {
+		value.clear( 0 );
+		return false;
+	}
+
+	@Override
+	public ChangeCursor createCursor() {
+		return ChangeCursor.EMPTY;
+	}
+
+	@Override
+	public boolean getActivity( long time1, long time2,
+		SignalActivity activity ) {
+		return false;
+	}
+
 	@Override
 	public boolean setValueAt( long time, String value ) {
 		return false;
@@ -141,6 +158,11 @@ public class Scope extends AbstractSignal {
 		return -1;
 	}
 
+	@Override
+	public long getCountToggles( long time ) {
+		return -1;
+	}
+
 	@Override
 	public int getNoChangeWidth() {
 		return -1;
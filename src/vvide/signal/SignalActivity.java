@@ -0,0 +1,92 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+/**
+ * Reusable summary of the changes of a signal in a time range, answered by
+ * AbstractSignal.getActivity from the activity summary of the dumps
+ */
+public class SignalActivity {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Count of the changes in the range
+	 */
+	int count = 0;
+	/**
+	 * Flag for an x bit in a value of the range
+	 */
+	boolean x = false;
+	/**
+	 * Flag for a z bit in a value of the range
+	 */
+	boolean z = false;
+	/**
+	 * Value of the first change in the range
+	 */
+	final BitVector firstValue = new BitVector();
+	/**
+	 * Value at the end of the range
+	 */
+	final BitVector lastValue = new BitVector();
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the count of the changes in the range. For a compound signal
+	 * with bits, which are not merged, the changes of all bits are counted
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Return true if a value in the range has an x bit
+	 */
+	public boolean hasX() {
+		return x;
+	}
+
+	/**
+	 * Return true if a value in the range has a z bit
+	 */
+	public boolean hasZ() {
+		return z;
+	}
+
+	/**
+	 * Return the value of the first change in the range. Without changes it
+	 * is the value before the range, a compound signal with bits, which are
+	 * not merged, takes the first value of every bit
+	 */
+	public BitVector getFirstValue() {
+		return firstValue;
+	}
+
+	/**
+	 * Return the value at the end of the range
+	 */
+	public BitVector getLastValue() {
+		return lastValue;
+	}
+}
@@ -91,7 +91,8 @@ public class SignalRender {
 	 */
 	private int smallestChangeWidth = 5;
 	/**
-	 * A delta for the searching the are without changes
+	 * A delta for the searching the are without changes. A window without
+	 * changes is wider than smallestChangeWidth
 	 */
 	private long searchTimeDelta;
 	/**
@@ -106,6 +107,14 @@ public class SignalRender {
 	 * Zoom
 	 */
 	private long zoom;
+	/**
+	 * Buffer for the signal values
+	 */
+	private final BitVector bits = new BitVector();
+	/**
+	 * Buffer for the activity of the signals
+	 */
+	private final SignalActivity activity = new SignalActivity();
 
 	/*
 	 * ======================= Getters / Setters =============================
@@ -152,7 +161,7 @@ public class SignalRender {
 		signalNameFont = Application.settingsManager.getSignalNameFont();
 		bitNrFont = Application.settingsManager.getBitNrFont();
 		zoom = view.getZoom();
-		searchTimeDelta = (smallestChangeWidth - 1) * zoom;
+		searchTimeDelta = (smallestChangeWidth + 1) * zoom;
 	}
 
 	/**
@@ -302,11 +311,13 @@ public class SignalRender {
 		long startTime, long stopTime ) {
 
 		AbstractSignal signal = visibleSignal.getSignal();
+		ChangeCursor cursor = signal.createCursor();
+		cursor.seek( startTime );
 
 		long currentTime = startTime;
 		long nextTime;
-		String value = signal.getValueAt( startTime );
-		String nextValue;
+		int value = getState( cursor );
+		int nextValue;
 		long startX = infoWidth;
 		long stopX;
 		long startY;
@@ -314,9 +325,13 @@ public class SignalRender {
 
 		while ( currentTime < stopTime ) {
 			// Getting signal values and increment the current position
-			nextTime = signal.getLastChangeTime( currentTime );
-			if (nextTime > stopTime) nextTime = stopTime;
-			nextValue = signal.getValueAt( nextTime );
+			nextTime = cursor.getNextTime();
+			if ( nextTime == -1 )
+				nextTime = Application.signalManager.getSignalLength();
+			if ( nextTime > stopTime || nextTime <= currentTime )
+				nextTime = stopTime;
+			cursor.moveTo( nextTime );
+			nextValue = getState( cursor );
 
 			// Value line (horizontal)
 			startY = offsetY + getOffsetForValue( value );
@@ -327,18 +342,19 @@ public class SignalRender {
 					getColorForValue( value ) );
 
 				// Change line (vertical)
-				if ( !value.equals( nextValue )
-					|| !(value.charAt( 0 ) > '1' && nextValue.charAt( 0 ) > '1') ) {
+				if ( value != nextValue
+					|| (value != BitVector.BIT_Z && value != BitVector.BIT_X) ) {
 					stopY = offsetY + getOffsetForValue( nextValue );
 					backend.drawLine( stopX, startY, stopX, stopY,
 						getColorForValue( value, nextValue ) );
 				}
 			} else {
 				nextTime =
-					drawManyChanges( startX, startTime, currentTime, stopTime,
-						signal, offsetY );
+					drawManyChanges( startX, startTime, nextTime, stopTime,
+						signal, cursor, offsetY );
 				stopX = getXFromTime( startTime, nextTime, zoom );
-				nextValue = signal.getValueAt( nextTime );
+				cursor.moveTo( nextTime );
+				nextValue = getState( cursor );
 			}
 
 			// Move to the next position
@@ -349,19 +365,32 @@ public class SignalRender {
 
 	}
 
+	/**
+	 * Return the state of the current value of a cursor
+	 * 
+	 * @param cursor
+	 *        cursor of the signal
+	 * @return state of the value
+	 * @see BitVector#getState()
+	 */
+	private int getState( ChangeCursor cursor ) {
+		cursor.getValue( bits );
+		return bits.getState();
+	}
+
 	/**
 	 * Return an y offset of the line
 	 * 
 	 * @param value
-	 *        a value to get offset
+	 *        a state of the value to get offset
 	 * @return offset
 	 */
-	private int getOffsetForValue( String value ) {
-		if ( value.equals( "0" ) ) {
+	private int getOffsetForValue( int value ) {
+		if ( value == BitVector.BIT_0 ) {
 			return lowOffset;
 		}
 		else
-			if ( value.equals( "1" ) ) {
+			if ( value == BitVector.BIT_1 ) {
 				return highOffset;
 			}
 			else {
@@ -387,18 +416,22 @@ public class SignalRender {
 		long startTime, long stopTime ) {
 
 		AbstractSignal signal = visibleSignal.getSignal();
+		ChangeCursor cursor = signal.createCursor();
+		cursor.seek( startTime );
 
 		long currentTime = startTime;
-		long nextTime = signal.getNextChangeTime( startTime );
-		long firstChangeTime = signal.getNearestPreviousChangeTime( startTime );
+		long nextTime = cursor.getNextTime();
+		long firstChangeTime =
+			(nextTime != -1 && cursor.getTime() <= startTime) ? cursor
+				.getTime() : startTime;
 
 		long startX = infoWidth;
 		long stopX =
 			(nextTime == -1) ? getXFromTime( startTime, stopTime, zoom )
 				: getXFromTime( startTime, nextTime, zoom );
 
-		String value = visibleSignal.getFormattedValueAt( startTime );
-		Color color = getColorForValue( value );
+		String value = visibleSignal.getFormattedValue( cursor, bits );
+		Color color = getColorForValue( bits.getState() );
 		long maxWidth = stopX - startX - 4;
 
 		// Special cases
@@ -435,13 +468,14 @@ public class SignalRender {
 				+ middleOffset, maxWidth, TextAlign.CENTER, TextAlign.CENTER,
 				signalValueFont, Color.WHITE );
 			currentTime = nextTime;
+			cursor.moveTo( currentTime );
 		}
 
 		// Drawing signal
 		while ( currentTime < stopTime ) {
-			nextTime = signal.getNextChangeTime( currentTime );
-			value = visibleSignal.getFormattedValueAt( currentTime );
-			color = getColorForValue( value );
+			nextTime = cursor.getNextTime();
+			value = visibleSignal.getFormattedValue( cursor, bits );
+			color = getColorForValue( bits.getState() );
 
 			// Correct a time of the next change
 			if ( nextTime == -1 || nextTime > stopTime ) {
@@ -463,13 +497,14 @@ public class SignalRender {
 			}
 			else {
 				nextTime =
-					drawManyChanges( startX, startTime, currentTime, stopTime,
-						signal, offsetY );
+					drawManyChanges( startX, startTime, nextTime, stopTime,
+						signal, cursor, offsetY );
 				stopX = getXFromTime( startTime, nextTime, zoom );
 			}
 
 			// Move to the next position
 			currentTime = nextTime;
+			cursor.moveTo( currentTime );
 			startX = stopX;
 		}
 
@@ -515,47 +550,91 @@ public class SignalRender {
 	}
 
 	/**
-	 * Draw a rectangle that show that signal has to many changes here
+	 * Draw a rectangle that show that signal has to many changes here. The
+	 * rectangle ends before the first search window without changes and has
+	 * the color of an x or z value in the windows
 	 * 
 	 * @param startX
 	 * @param startTime
-	 * @param currentTime
+	 * @param nextTime
+	 *        time of the first change in the rectangle
 	 * @param stopTime
 	 * @param signal
+	 * @param cursor
+	 *        cursor of the signal
 	 * @param offsetY
 	 * @return the new value for current time
 	 */
-	private long drawManyChanges( long startX, long startTime, long currentTime,
-		long stopTime, AbstractSignal signal, int offsetY ) {
-		// Draw a rectangle
-		int countChanges = 10;
-		long startSearchTime = currentTime;
-		long stopSearchTime = currentTime;
-		while ( (countChanges != 0) && (stopSearchTime <= stopTime) ) {
-			stopSearchTime =
-				signal.getNearestPreviousChangeTime( startSearchTime
+	private long drawManyChanges( long startX, long startTime, long nextTime,
+		long stopTime, AbstractSignal signal, ChangeCursor cursor, int offsetY ) {
+		// Searching a window without changes
+		int state = BitVector.KNOWN;
+		long searchTime = nextTime + 1;
+		while ( searchTime < stopTime ) {
+			int windowState =
+				getWindowState( signal, cursor, searchTime, searchTime
 					+ searchTimeDelta );
-			if ( stopSearchTime == startSearchTime ) {
-				stopSearchTime = signal.getNextChangeTime( stopSearchTime );
-			}
-			if ( stopSearchTime == -1 ) {
-				stopSearchTime = stopTime;
-				break;
-			}
-			countChanges =
-				signal.getCountChanges( startSearchTime, stopSearchTime );
-			startSearchTime = stopSearchTime;
+			if ( windowState < 0 ) break;
+			if ( windowState == BitVector.BIT_X
+				|| (windowState == BitVector.BIT_Z && state != BitVector.BIT_X) )
+				state = windowState;
+			searchTime += searchTimeDelta;
+		}
+		long stopSearchTime = stopTime;
+		if ( searchTime < stopTime ) {
+			cursor.moveTo( searchTime - 1 );
+			stopSearchTime = Math.max( cursor.getTime(), nextTime );
 		}
 
 		// Draw a many changes
 		backend
 			.fillRectangle( startX, offsetY + highOffset, getXFromTime(
 				startTime, stopSearchTime, zoom ), offsetY + lowOffset,
-				Color.GREEN );
+				getColorForValue( state ) );
 
 		return stopSearchTime;
 	}
 
+	/**
+	 * Return the state of the changes in a search window. The activity of the
+	 * signal is used, if the window is not narrower than its summary,
+	 * otherwise the changes are read by the cursor
+	 * 
+	 * @param signal
+	 *        the signal
+	 * @param cursor
+	 *        cursor of the signal before the window
+	 * @param time1
+	 *        start of the window
+	 * @param time2
+	 *        end of the window, not included
+	 * @return -1 without changes, BitVector.BIT_X or BIT_Z for a change to an
+	 *         x or z value, otherwise BitVector.KNOWN
+	 */
+	private int getWindowState( AbstractSignal signal, ChangeCursor cursor,
+		long time1, long time2 ) {
+		if ( signal.getActivity( time1, time2, activity ) ) {
+			if ( activity.getCount() == 0 ) return -1;
+			return activity.hasX() ? BitVector.BIT_X : activity.hasZ()
+				? BitVector.BIT_Z : BitVector.KNOWN;
+		}
+
+		int state = -1;
+		cursor.moveTo( time1 - 1 );
+		long nextTime = cursor.getNextTime();
+		while ( nextTime != -1 && nextTime < time2 ) {
+			cursor.next();
+			int value = getState( cursor );
+			if ( value == BitVector.BIT_X
+				|| (value == BitVector.BIT_Z && state != BitVector.BIT_X) )
+				state = value;
+			else
+				if ( state < 0 ) state = BitVector.KNOWN;
+			nextTime = cursor.getNextTime();
+		}
+		return state;
+	}
+
 	/**
 	 * Convert the time to the coordinates
 	 * 
@@ -575,15 +654,15 @@ public class SignalRender {
 	 * Return a color for line
 	 * 
 	 * @param value
-	 *        a value of the signal to determine a color
+	 *        a state of the signal value to determine a color
 	 * @return color
 	 */
-	private Color getColorForValue( String value ) {
-		if ( value.equals( AbstractSignal.SIGNAL_VALUE_Z ) ) {
+	private Color getColorForValue( int value ) {
+		if ( value == BitVector.BIT_Z ) {
 			return Color.BLUE;
 		}
 		else
-			if ( value.equals( AbstractSignal.SIGNAL_VALUE_X ) ) {
+			if ( value == BitVector.BIT_X ) {
 				return Color.RED;
 			}
 			else {
@@ -595,19 +674,17 @@ public class SignalRender {
 	 * Return a color for line
 	 * 
 	 * @param value
-	 *        a value of the signal to determine a color
+	 *        a state of the signal value to determine a color
 	 * @param nextValue
-	 *        a next Value of the signal to determine a color
+	 *        a state of the next value to determine a color
 	 * @return String Color
 	 */
-	private Color getColorForValue( String value, String nextValue ) {
-		if ( value.equals( AbstractSignal.SIGNAL_VALUE_Z )
-			|| nextValue.equals( AbstractSignal.SIGNAL_VALUE_Z ) ) {
+	private Color getColorForValue( int value, int nextValue ) {
+		if ( value == BitVector.BIT_Z || nextValue == BitVector.BIT_Z ) {
 			return Color.BLUE;
 		}
 		else
-			if ( value.equals( AbstractSignal.SIGNAL_VALUE_X )
-				|| nextValue.equals( AbstractSignal.SIGNAL_VALUE_X ) ) {
+			if ( value == BitVector.BIT_X || nextValue == BitVector.BIT_X ) {
 				return Color.RED;
 			}
 			else {
@@ -30,7 +30,25 @@ import java.nio.ByteBuffer;
 import vvide.Application;
 
 /**
- * A SignalValueDump Class. Contains information about changes of the signal
+ * A SignalValueDump Class. Contains information about changes of the signal.
+ * The records are appended by one thread and can be read by other threads at
+ * the same time, a record is visible after the count of changes is updated.
+ * The timestamps are stored apart from the values: the periodic records
+ * form the runs of DumpRuns, the times of the other records are stored in
+ * the DumpTimeIndex. A four-state value is
+ * packed with two bits for every signal bit: the value plane holds bit i of
+ * the signal in bit i, the mask plane holds it in bit valueLength + i. The
+ * states are 0 = (0,0), 1 = (1,0), z = (0,1) and x = (1,1). Values of real
+ * vars are stored as ASCII text. While a signal has at most MAX_CODES
+ * distinct values, a record holds the one byte code of its value in the
+ * dictionary of the dump. The chunk with the next distinct value and all
+ * later chunks store the values directly. A scalar signal stores no values,
+ * but the exceptions of the toggles in a ToggleDump. When the exceptions
+ * need more bytes than the values, the values are stored directly. After
+ * the parsing the dump is sealed: the
+ * buffers become read-only and the records are read by absolute positions
+ * only, so a sealed dump can be shared by threads, which query it in
+ * parallel
  */
 public class SignalValueDump {
 
@@ -38,59 +56,1058 @@ public class SignalValueDump {
 	 * =========================== Attributes ================================
 	 */
 	/**
-	 * Controller for buffer
+	 * log2 of the count of records in one chunk
 	 */
-	ByteBuffer buffer;
+	static final int CHUNK_SHIFT = 12;
 	/**
-	 * Count changes in the signal
+	 * Count of records in one chunk
 	 */
-	private final int countChanges;
+	static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
 	/**
-	 * Bytes for signal value
+	 * Mask to get the position of a record in the chunk
+	 */
+	static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+	/**
+	 * Count of records the first chunk is created with
+	 */
+	static final int FIRST_CHUNK_RECORDS = 16;
+	/**
+	 * States of a packed value
+	 */
+	private static final int STATE_KNOWN = 0;
+	private static final int STATE_X = 1;
+	private static final int STATE_Z = 2;
+	/**
+	 * Maximal count of values in the dictionary
+	 */
+	private static final int MAX_CODES = 256;
+	/**
+	 * Count of values the dictionary is created with
+	 */
+	private static final int FIRST_CODES = 16;
+	/**
+	 * Chunks with the values of the records. Every chunk except the first has
+	 * a fixed size, the first chunk grows until it reaches the size of the
+	 * others
+	 */
+	private ByteBuffer[] chunks = new ByteBuffer[1];
+	/**
+	 * Chunks with the dictionary codes of the records. A chunk is null, if
+	 * the chunk with the same index stores the values
+	 */
+	private ByteBuffer[] codeChunks = new ByteBuffer[1];
+	/**
+	 * Values of the dictionary, one record length for every code
+	 */
+	private ByteBuffer dictionary = null;
+	/**
+	 * Formatted value of every code, filled by the readers
+	 */
+	private String[] dictionaryStrings = null;
+	/**
+	 * Hash table with the codes of the dictionary, code + 1 for every used
+	 * slot. Used by the writer only
+	 */
+	private int[] dictionarySlots = null;
+	/**
+	 * Count of values in the dictionary
+	 */
+	private int countCodes = 0;
+	/**
+	 * Flag for the new records to be stored as codes. Used by the writer only
+	 */
+	private boolean coding;
+	/**
+	 * Exceptions of a scalar dump storing the toggles, null if the values are
+	 * stored
+	 */
+	private volatile ToggleDump toggles = null;
+	/**
+	 * Runs of the periodic records
+	 */
+	private DumpRuns runs = new DumpRuns();
+	/**
+	 * Timestamps of the records, which are not in a run
+	 */
+	private DumpTimeIndex timeIndex;
+	/**
+	 * Timestamp of the last record. Used by the writer only
+	 */
+	private long lastTime = 0;
+	/**
+	 * Count changes in the signal. Written after the record, so a reader sees
+	 * only complete records
+	 */
+	private volatile int countChanges = 0;
+	/**
+	 * Bytes for the value of one record
 	 */
 	private final int recordLength;
 	/**
-	 * Bytes for signal value
+	 * Count of characters of the signal value, the bit width for a four-state
+	 * value
+	 */
+	private final int valueLength;
+	/**
+	 * Flag for the four-state encoding, otherwise the value is ASCII text
+	 */
+	private final boolean packed;
+	/**
+	 * Storage for the new chunks
+	 */
+	private final DumpStorage storage;
+	/**
+	 * Buffer to encode the value of a new record. Used by the writer only
+	 */
+	private final byte[] encodeBuffer;
+	/**
+	 * Divide for the stored timestamps
+	 */
+	private long timeDivide = 1;
+	/**
+	 * Multiply for the stored timestamps
+	 */
+	private int timeRatio = 1;
+	/**
+	 * Flag for a dump, which does not accept new records
+	 */
+	private volatile boolean sealed = false;
+	/**
+	 * Scaled start time of the window, the values are extracted for. The
+	 * queries reaching out of the window are not answered
+	 */
+	private long windowStart = Long.MIN_VALUE;
+	/**
+	 * Scaled end time of the window, the values are extracted for
+	 */
+	private long windowEnd = Long.MAX_VALUE;
+	/**
+	 * Summary of the records for the activity queries, null until the first
+	 * query. Built under the lock of the dump
+	 */
+	private ActivityPyramid pyramid = null;
+	/**
+	 * Count of the changed bits from the first record up to the first record
+	 * of every block. Built by the first query and extended by the later
+	 * queries under the lock of the dump
+	 */
+	private long[] blockToggles = new long[1];
+	/**
+	 * Count of the blocks with a known count of changed bits
+	 */
+	private int countToggleBlocks = 0;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the count of records in the dump
+	 * 
+	 * @return count of records
+	 */
+	public int getCountRecords() {
+		return countChanges;
+	}
+
+	/**
+	 * Return the count of records in one chunk
+	 * 
+	 * @return count of records in a full chunk
+	 */
+	public static int getChunkRecords() {
+		return CHUNK_RECORDS;
+	}
+
+	/**
+	 * Return the count of records in one time block
+	 * 
+	 * @return count of records in a full time block
+	 */
+	public static int getBlockRecords() {
+		return DumpTimeIndex.BLOCK_RECORDS;
+	}
+
+	/**
+	 * Return the buffers with the values of the records, which are stored
+	 * directly. The buffers contain the values in the order of the time, the
+	 * returned buffers can be read without changing the dump. A chunk stored
+	 * as codes and every chunk of a dump storing the toggles has no buffer
+	 * 
+	 * @return the buffers with the values, null for the chunks without values
+	 */
+	public ByteBuffer[] getRecordBuffers() {
+		int count = countChanges;
+		int countChunks = (count + CHUNK_RECORDS - 1) >>> CHUNK_SHIFT;
+		ByteBuffer[] buffers = new ByteBuffer[countChunks];
+		if ( toggles != null ) return buffers;
+		for ( int i = 0; i < countChunks; ++i ) {
+			if ( codeChunks[i] != null ) continue;
+			int records = Math.min( CHUNK_RECORDS, count - (i << CHUNK_SHIFT) );
+			buffers[i] = chunks[i].duplicate();
+			buffers[i].limit( records * recordLength );
+			buffers[i].position( 0 );
+		}
+		return buffers;
+	}
+
+	/**
+	 * Return the buffers with the dictionary codes of the records. The
+	 * returned buffers can be read without changing the dump
+	 * 
+	 * @return the buffers with one code for every record, null for the chunks
+	 *         without codes
+	 */
+	public ByteBuffer[] getCodeBuffers() {
+		int count = countChanges;
+		int countChunks = (count + CHUNK_RECORDS - 1) >>> CHUNK_SHIFT;
+		ByteBuffer[] buffers = new ByteBuffer[countChunks];
+		if ( toggles != null ) return buffers;
+		for ( int i = 0; i < countChunks; ++i ) {
+			if ( codeChunks[i] == null ) continue;
+			int records = Math.min( CHUNK_RECORDS, count - (i << CHUNK_SHIFT) );
+			buffers[i] = codeChunks[i].duplicate();
+			buffers[i].limit( records );
+			buffers[i].position( 0 );
+		}
+		return buffers;
+	}
+
+	/**
+	 * Return the values of the dictionary
+	 * 
+	 * @return buffer with one record length for every code, null if the dump
+	 *         has no dictionary
+	 */
+	public ByteBuffer getDictionary() {
+		if ( dictionary == null ) return null;
+		ByteBuffer buffer = dictionary.duplicate();
+		buffer.limit( countCodes * recordLength );
+		buffer.position( 0 );
+		return buffer;
+	}
+
+	/**
+	 * Return the exceptions of a scalar dump storing the toggles
+	 * 
+	 * @return the exceptions as <code>index << 8 | value</code> or null if the
+	 *         values are stored
+	 */
+	public long[] getExceptions() {
+		ToggleDump t = toggles;
+		return (t != null) ? t.getExceptions() : null;
+	}
+
+	/**
+	 * Return the buffers with the encoded time differences of the stored
+	 * records, one for every CHUNK_RECORDS stored records. The returned
+	 * buffers can be read without changing the dump
+	 * 
+	 * @return the buffers with the time differences
+	 */
+	public ByteBuffer[] getTimeBuffers() {
+		return timeIndex.getTimeBuffers();
+	}
+
+	/**
+	 * Return the block index
+	 * 
+	 * @return time of the first stored record of every time block
+	 */
+	public long[] getBlockTimes() {
+		return timeIndex.getBlockTimes();
+	}
+
+	/**
+	 * Return the positions of the time blocks
+	 * 
+	 * @return position of every time block in its time buffer
+	 */
+	public int[] getBlockPositions() {
+		return timeIndex.getBlockPositions();
+	}
+
+	/**
+	 * Return the runs
+	 * 
+	 * @return index of the first record, time of the first record, period and
+	 *         count of records of every run
+	 */
+	public long[] getRuns() {
+		return runs.toArray();
+	}
+
+	/**
+	 * Return the count of the stored records
+	 * 
+	 * @param countRecords
+	 *        count of all records
+	 * @param runs
+	 *        the runs as returned by getRuns
+	 * @return count of the records, which are not in a run
+	 */
+	public static int getCountStored( int countRecords, long[] runs ) {
+		return DumpRuns.getCountStored( countRecords, runs );
+	}
+
+	/**
+	 * Return the valueLength
+	 * 
+	 * @return count of characters of the signal value
+	 */
+	public int getValueLength() {
+		return valueLength;
+	}
+
+	/**
+	 * Return the recordLength
+	 * 
+	 * @return count of bytes for the value of one record
+	 */
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	/**
+	 * Return the count of bytes for the value of one record
+	 * 
+	 * @param valueLength
+	 *        count of characters of the signal value
+	 * @param packed
+	 *        true for four-state values, false for values stored as text
+	 * @return count of bytes for the value of one record
+	 */
+	public static int getRecordLength( int valueLength, boolean packed ) {
+		return Math.max( 1, packed ? (2 * valueLength + 7) / 8 : valueLength );
+	}
+
+	/**
+	 * Return the storage
+	 * 
+	 * @return storage for the chunks
+	 */
+	public DumpStorage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Return the encoding of the values
+	 * 
+	 * @return true for packed four-state values, false for ASCII text
+	 */
+	public boolean isPacked() {
+		return packed;
+	}
+
+	/**
+	 * Set the scale for the stored timestamps. A stored timestamp is returned
+	 * as <code>timestamp / divide * ratio</code>
+	 * 
+	 * @param divide
+	 *        divide for the stored timestamps
+	 * @param ratio
+	 *        multiply for the stored timestamps
+	 */
+	public void setTimeScale( long divide, int ratio ) {
+		this.timeDivide = divide;
+		this.timeRatio = ratio;
+	}
+
+	/**
+	 * Return true if the dump is sealed
+	 */
+	public boolean isSealed() {
+		return sealed;
+	}
+
+	/**
+	 * Set the window of a dump with the values of a time range only. The
+	 * dump starts with the last change before the window
+	 * 
+	 * @param start
+	 *        scaled start time of the window
+	 * @param end
+	 *        scaled end time of the window
+	 */
+	public void setWindow( long start, long end ) {
+		this.windowStart = start;
+		this.windowEnd = end;
+	}
+
+	/**
+	 * Getter for windowStart
+	 */
+	public long getWindowStart() {
+		return windowStart;
+	}
+
+	/**
+	 * Getter for windowEnd
+	 */
+	public long getWindowEnd() {
+		return windowEnd;
+	}
+
+	/**
+	 * Return true if the values of a time range are in the dump
+	 * 
+	 * @param time1
+	 *        - start of the range
+	 * @param time2
+	 *        - end of the range
+	 */
+	public boolean isLoaded( long time1, long time2 ) {
+		return time1 >= windowStart && time2 <= windowEnd;
+	}
+
+	/*
+	 * ============================= Methods =================================
+	 */
+	/**
+	 * Constructor for a dump of four-state values
+	 * 
+	 * @param valueLength
+	 *        bit width of the signal
+	 */
+	public SignalValueDump( int valueLength ) {
+		this( valueLength, true );
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param valueLength
+	 *        count of characters of the signal value
+	 * @param packed
+	 *        true for four-state values, false for values stored as text
+	 */
+	public SignalValueDump( int valueLength, boolean packed ) {
+		this( valueLength, packed, DumpStorage.HEAP );
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param valueLength
+	 *        count of characters of the signal value
+	 * @param packed
+	 *        true for four-state values, false for values stored as text
+	 * @param storage
+	 *        storage for the chunks
+	 */
+	public SignalValueDump( int valueLength, boolean packed,
+			DumpStorage storage ) {
+		this.valueLength = valueLength;
+		this.packed = packed;
+		this.storage = storage;
+		this.recordLength = getRecordLength( valueLength, packed );
+		this.encodeBuffer = new byte[recordLength];
+		// a code is not shorter than a value of one byte
+		this.coding = recordLength > 1;
+		if ( packed && valueLength == 1 ) this.toggles = new ToggleDump();
+		this.timeIndex = new DumpTimeIndex( storage );
+	}
+
+	/**
+	 * Constructor for a dump with existing records, e.g. mapped from a cache
+	 * 
+	 * @param valueLength
+	 *        count of characters of the signal value
+	 * @param packed
+	 *        true for four-state values, false for values stored as text
+	 * @param chunks
+	 *        buffers with the values as returned by getRecordBuffers, every
+	 *        buffer except the last one contains a full chunk of records
+	 * @param codeChunks
+	 *        buffers with the codes as returned by getCodeBuffers
+	 * @param dictionary
+	 *        values of the codes, null without codes
+	 * @param exceptions
+	 *        exceptions of a dump storing the toggles, null if the values are
+	 *        stored
+	 * @param timeChunks
+	 *        buffers with the encoded time differences of the stored records
+	 * @param blockTimes
+	 *        time of the first stored record of every time block
+	 * @param blockPositions
+	 *        position of every time block in its time buffer
+	 * @param runs
+	 *        the runs as returned by getRuns
+	 * @param countRecords
+	 *        count of the records
+	 */
+	public SignalValueDump( int valueLength, boolean packed,
+			ByteBuffer[] chunks, ByteBuffer[] codeChunks, ByteBuffer dictionary,
+			long[] exceptions, ByteBuffer[] timeChunks, long[] blockTimes,
+			int[] blockPositions, long[] runs, int countRecords ) {
+		this( valueLength, packed );
+		this.coding = false;
+		this.toggles = null;
+		if ( countRecords == 0 ) return;
+		this.chunks = chunks;
+		this.codeChunks = codeChunks;
+		if ( dictionary != null ) {
+			this.dictionary = dictionary;
+			this.countCodes = dictionary.capacity() / recordLength;
+			this.dictionaryStrings = new String[countCodes];
+		}
+		if ( exceptions != null ) this.toggles = new ToggleDump( exceptions );
+		this.runs = new DumpRuns( runs );
+		this.timeIndex =
+				new DumpTimeIndex( storage, timeChunks, blockTimes,
+						blockPositions, getCountStored( countRecords, runs ) );
+		this.countChanges = countRecords;
+		this.lastTime = getRawTime( countRecords - 1 );
+	}
+
+	/**
+	 * Add a new record to the collection
+	 * 
+	 * @param time
+	 *        - a timestamp
+	 * @param value
+	 *        - value of the signal at the specified time
+	 */
+	public boolean addRecord( long time, String c ) {
+		byte[] bytes = c.getBytes();
+		return addRecord( time, bytes, 0, bytes.length );
+	}
+
+	/**
+	 * Add a new record to the collection. The value is given as ASCII bytes,
+	 * a shorter value is padded with zeros on the left, a longer value keeps
+	 * its rightmost characters
+	 * 
+	 * @param time
+	 *        - a timestamp
+	 * @param value
+	 *        - buffer with the value of the signal
+	 * @param offset
+	 *        - offset of the value in the buffer
+	 * @param length
+	 *        - length of the value
+	 */
+	public boolean addRecord( long time, byte[] value, int offset, int length ) {
+		if ( sealed ) return false;
+		growChunkArrays();
+		appendTime( countChanges, time );
+		encode( value, offset, length );
+		appendValue();
+		countChanges++;
+
+		return true;
+	}
+
+	/**
+	 * Store the value of the encode buffer for the next record
+	 */
+	private void appendValue() {
+		int recordIndex = countChanges & CHUNK_MASK;
+		if ( toggles != null ) {
+			if ( toggles.add( countChanges, encodeBuffer[0] ) ) return;
+			stopToggle();
+		}
+		if ( coding ) {
+			int code = intern();
+			if ( code >= 0 ) {
+				chunkForAppend( codeChunks, 1 ).put( recordIndex, (byte) code );
+				return;
+			}
+			stopCoding();
+		}
+		ByteBuffer chunk = chunkForAppend( chunks, recordLength );
+		chunk.position( recordIndex * recordLength );
+		chunk.put( encodeBuffer );
+	}
+
+	/**
+	 * Store the values of a scalar dump directly. The exceptions are kept for
+	 * the readers, which still use them
+	 */
+	private void stopToggle() {
+		ToggleDump t = toggles;
+		int countChunks = (countChanges + CHUNK_RECORDS - 1) >>> CHUNK_SHIFT;
+		for ( int i = 0; i < countChunks; ++i ) {
+			int first = i << CHUNK_SHIFT;
+			int records = Math.min( CHUNK_RECORDS, countChanges - first );
+			ByteBuffer chunk =
+					allocateChunk( (i == 0) ? Math.max( FIRST_CHUNK_RECORDS,
+							records ) : CHUNK_RECORDS, 1 );
+			for ( int j = 0; j < records; ++j ) {
+				chunk.put( j, (byte) t.getValue( first + j ) );
+			}
+			chunks[i] = chunk;
+		}
+		// the values are visible before the toggles are removed
+		toggles = null;
+	}
+
+	/**
+	 * Return the code of the value in the encode buffer. A new value is added
+	 * to the dictionary
+	 * 
+	 * @return the code or -1 if the dictionary is full
+	 */
+	private int intern() {
+		if ( dictionary == null ) {
+			dictionary = ByteBuffer.allocate( FIRST_CODES * recordLength );
+			dictionaryStrings = new String[FIRST_CODES];
+			dictionarySlots = new int[FIRST_CODES * 2];
+		}
+		else
+			if ( countCodes == dictionaryStrings.length && countCodes < MAX_CODES )
+				growDictionary();
+
+		byte[] values = dictionary.array();
+		int mask = dictionarySlots.length - 1;
+		int slot = hash( encodeBuffer, 0 ) & mask;
+		for ( ; dictionarySlots[slot] != 0; slot = (slot + 1) & mask ) {
+			int code = dictionarySlots[slot] - 1;
+			int position = code * recordLength;
+			int i = 0;
+			while ( i < recordLength && values[position + i] == encodeBuffer[i] ) {
+				++i;
+			}
+			if ( i == recordLength ) return code;
+		}
+		if ( countCodes == MAX_CODES ) return -1;
+
+		int code = countCodes++;
+		System.arraycopy( encodeBuffer, 0, values, code * recordLength,
+				recordLength );
+		dictionarySlots[slot] = code + 1;
+		return code;
+	}
+
+	/**
+	 * FNV-1a hash of a value
+	 * 
+	 * @param value
+	 *        buffer with the value
+	 * @param offset
+	 *        offset of the value in the buffer
+	 * @return the hash, the high bits are mixed into the low bits
+	 */
+	private int hash( byte[] value, int offset ) {
+		int hash = 0x811C9DC5;
+		for ( int i = offset; i < offset + recordLength; ++i ) {
+			hash = (hash ^ (value[i] & 0xFF)) * 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Double the size of the dictionary and its hash table
+	 */
+	private void growDictionary() {
+		int codes = dictionaryStrings.length * 2;
+		ByteBuffer newDictionary = ByteBuffer.allocate( codes * recordLength );
+		ByteBuffer oldDictionary = dictionary.duplicate();
+		oldDictionary.clear();
+		newDictionary.put( oldDictionary );
+		String[] newStrings = new String[codes];
+		System.arraycopy( dictionaryStrings, 0, newStrings, 0,
+				dictionaryStrings.length );
+		dictionary = newDictionary;
+		dictionaryStrings = newStrings;
+
+		// the slots are filled again with the new mask
+		dictionarySlots = new int[codes * 2];
+		int mask = dictionarySlots.length - 1;
+		for ( int code = 0; code < countCodes; ++code ) {
+			int slot = hash( dictionary.array(), code * recordLength ) & mask;
+			while ( dictionarySlots[slot] != 0 ) {
+				slot = (slot + 1) & mask;
+			}
+			dictionarySlots[slot] = code + 1;
+		}
+	}
+
+	/**
+	 * Store the values of the current chunk and of all new records directly.
+	 * The previous chunks keep their codes
+	 */
+	private void stopCoding() {
+		coding = false;
+		dictionarySlots = null;
+		int chunkIndex = countChanges >>> CHUNK_SHIFT;
+		ByteBuffer codes = codeChunks[chunkIndex];
+		if ( codes == null ) return;
+		ByteBuffer chunk = allocateChunk( codes.capacity(), recordLength );
+		decode( codes, countChanges & CHUNK_MASK, chunk );
+		// the values are visible before the codes are removed
+		chunks[chunkIndex] = chunk;
+		codeChunks[chunkIndex] = null;
+	}
+
+	/**
+	 * Copy the values of coded records into a buffer
+	 * 
+	 * @param codes
+	 *        chunk with the codes
+	 * @param records
+	 *        count of the records to copy
+	 * @param target
+	 *        buffer for the values, filled from its position
+	 */
+	private void decode( ByteBuffer codes, int records, ByteBuffer target ) {
+		ByteBuffer values = dictionary.duplicate();
+		for ( int i = 0; i < records; ++i ) {
+			int position = (codes.get( i ) & 0xFF) * recordLength;
+			values.limit( position + recordLength );
+			values.position( position );
+			target.put( values );
+		}
+	}
+
+	/**
+	 * Copy the stored value of a record
+	 * 
+	 * @param index
+	 *        index of the record
+	 * @param target
+	 *        buffer for the value
+	 */
+	private void readValue( int index, byte[] target ) {
+		ToggleDump t = toggles;
+		if ( t != null ) {
+			target[0] = (byte) t.getValue( index );
+			return;
+		}
+		int code = getCode( index );
+		ByteBuffer source =
+				(code >= 0) ? dictionary : chunks[index >>> CHUNK_SHIFT];
+		int position = ((code >= 0) ? code : index & CHUNK_MASK) * recordLength;
+		for ( int i = 0; i < recordLength; ++i ) {
+			target[i] = source.get( position + i );
+		}
+	}
+
+	/**
+	 * Return the dictionary code of a record
+	 * 
+	 * @param index
+	 *        index of the record
+	 * @return the code or -1 if the value of the record is stored directly
+	 */
+	private int getCode( int index ) {
+		ByteBuffer codes = codeChunks[index >>> CHUNK_SHIFT];
+		return (codes != null) ? codes.get( index & CHUNK_MASK ) & 0xFF : -1;
+	}
+
+	/**
+	 * Store the values of the new records directly, without a dictionary.
+	 * Used for dumps, which are appended to another dump
+	 */
+	public void disableDictionary() {
+		if ( coding ) stopCoding();
+	}
+
+	/**
+	 * Seal the dump after the last record. The buffers are replaced by
+	 * read-only views, later records are not accepted. The values and times
+	 * are read by absolute positions only, the indexes built by the queries
+	 * are extended under the lock of the dump, so a sealed dump is safe to
+	 * share across threads
+	 */
+	public void seal() {
+		if ( sealed ) return;
+		if ( storage != DumpStorage.HEAP ) {
+			// the growing chunks are moved from the heap at their final size
+			int records = Math.min( countChanges, CHUNK_RECORDS );
+			if ( chunks[0] != null
+				&& chunks[0].capacity() < CHUNK_RECORDS * recordLength )
+				chunks[0] = storage.store( chunks[0], records * recordLength );
+			if ( codeChunks[0] != null
+				&& codeChunks[0].capacity() < CHUNK_RECORDS )
+				codeChunks[0] = storage.store( codeChunks[0], records );
+		}
+		chunks = asReadOnly( chunks );
+		codeChunks = asReadOnly( codeChunks );
+		timeIndex.seal();
+		if ( dictionary != null ) dictionary = dictionary.asReadOnlyBuffer();
+		sealed = true;
+	}
+
+	/**
+	 * Return read-only views of buffers
+	 * 
+	 * @param buffers
+	 *        the buffers, some of them may be null
+	 * @return the views
+	 */
+	static ByteBuffer[] asReadOnly( ByteBuffer[] buffers ) {
+		ByteBuffer[] views = new ByteBuffer[buffers.length];
+		for ( int i = 0; i < buffers.length; ++i ) {
+			if ( buffers[i] != null ) views[i] = buffers[i].asReadOnlyBuffer();
+		}
+		return views;
+	}
+
+	/**
+	 * Pack an ASCII value into the encode buffer. Characters other than 0, 1
+	 * and z are stored as x. A value of a real var is copied
+	 * 
+	 * @param value
+	 *        - buffer with the value of the signal
+	 * @param offset
+	 *        - offset of the value in the buffer
+	 * @param length
+	 *        - length of the value
+	 */
+	private void encode( byte[] value, int offset, int length ) {
+		// a longer value keeps its rightmost characters
+		if ( length > valueLength ) {
+			offset += length - valueLength;
+			length = valueLength;
+		}
+		if ( !packed ) {
+			int padding = valueLength - length;
+			for ( int i = 0; i < padding; ++i ) {
+				encodeBuffer[i] = '0';
+			}
+			System.arraycopy( value, offset, encodeBuffer, padding, length );
+			return;
+		}
+		for ( int i = 0; i < recordLength; ++i ) {
+			encodeBuffer[i] = 0;
+		}
+		// characters before the first one are the padding zeros
+		int first = valueLength - length;
+		for ( int j = first; j < valueLength; ++j ) {
+			int bit = valueLength - 1 - j;
+			switch ( value[offset + j - first] ) {
+				case '0':
+					break;
+				case '1':
+					setBit( bit );
+					break;
+				case 'z':
+				case 'Z':
+					setBit( valueLength + bit );
+					break;
+				default:
+					setBit( bit );
+					setBit( valueLength + bit );
+			}
+		}
+	}
+
+	/**
+	 * Set a bit in the encode buffer
+	 */
+	private void setBit( int bit ) {
+		encodeBuffer[bit >>> 3] |= 1 << (bit & 7);
+	}
+
+	/**
+	 * Return a bit of a packed value
+	 * 
+	 * @param chunk
+	 *        chunk with the record
+	 * @param position
+	 *        position of the value in the chunk
+	 * @param bit
+	 *        number of the bit
+	 * @return true if the bit is set
+	 */
+	private static boolean getBit( ByteBuffer chunk, int position, int bit ) {
+		return (chunk.get( position + (bit >>> 3) ) & (1 << (bit & 7))) != 0;
+	}
+
+	/**
+	 * Append all records of another dump with the same value length and
+	 * encoding
+	 * 
+	 * @param dump
+	 *        - dump with the records to append, ignored for a sealed dump
+	 */
+	public void addRecords( SignalValueDump dump ) {
+		if ( sealed ) return;
+		int index = 0;
+		TimeReader times = dump.new TimeReader( 0 );
+		ToggleDump dumpToggles = dump.toggles;
+		if ( coding || toggles != null || dumpToggles != null
+			|| dump.codeChunks[0] != null ) {
+			// the values are copied one by one to get the codes or toggles
+			// of this dump
+			long[] exceptions =
+					(dumpToggles != null) ? dumpToggles.getExceptions() : null;
+			int exception = 0;
+			for ( ; index < dump.countChanges; ++index ) {
+				if ( index > 0 ) times.next();
+				growChunkArrays();
+				appendTime( countChanges, times.time );
+				if ( exceptions != null ) {
+					// the toggles are followed without searching the exceptions
+					if ( exception < exceptions.length
+						&& (exceptions[exception] >>> 8) == index )
+						encodeBuffer[0] = (byte) exceptions[exception++];
+					else
+						encodeBuffer[0] ^= 1;
+				}
+				else
+					dump.readValue( index, encodeBuffer );
+				appendValue();
+				countChanges++;
+			}
+			return;
+		}
+		while ( index < dump.countChanges ) {
+			growChunkArrays();
+			ByteBuffer chunk = chunkForAppend( chunks, recordLength );
+			int position = (countChanges & CHUNK_MASK) * recordLength;
+			int count =
+					Math.min( dump.countChanges - index, CHUNK_RECORDS
+						- (index & CHUNK_MASK) );
+			count =
+					Math.min( count, (chunk.capacity() - position)
+						/ recordLength );
+
+			ByteBuffer source = dump.chunks[index >>> CHUNK_SHIFT].duplicate();
+			source.limit( ((index & CHUNK_MASK) + count) * recordLength );
+			source.position( (index & CHUNK_MASK) * recordLength );
+			chunk.position( position );
+			chunk.put( source );
+			for ( int i = 0; i < count; ++i ) {
+				if ( index + i > 0 ) times.next();
+				appendTime( countChanges + i, times.time );
+			}
+
+			countChanges += count;
+			index += count;
+		}
+	}
+
+	/**
+	 * Add the time of a new record to the last run or store it
+	 * 
+	 * @param index
+	 *        index of the record
+	 * @param time
+	 *        timestamp of the record
+	 */
+	private void appendTime( int index, long time ) {
+		long period = time - lastTime;
+		lastTime = time;
+		if ( !runs.add( index, time, period ) ) timeIndex.append( time );
+	}
+
+	/**
+	 * Grow the arrays of the chunks, if the next record needs a new chunk
 	 */
-	private final int valueLength;
+	private void growChunkArrays() {
+		if ( (countChanges >>> CHUNK_SHIFT) < chunks.length ) return;
+		ByteBuffer[] newChunks = new ByteBuffer[chunks.length * 2];
+		System.arraycopy( chunks, 0, newChunks, 0, chunks.length );
+		ByteBuffer[] newCodeChunks = new ByteBuffer[newChunks.length];
+		System.arraycopy( codeChunks, 0, newCodeChunks, 0, codeChunks.length );
+		chunks = newChunks;
+		codeChunks = newCodeChunks;
+	}
+
 	/**
-	 * String buffer for value
+	 * Allocate a value or code chunk. A chunk smaller than a full chunk is
+	 * the first chunk, which still grows, so it is kept on the heap until it
+	 * is full or the dump is sealed
+	 * 
+	 * @param records
+	 *        count of the records of the chunk
+	 * @param length
+	 *        bytes of one record in the chunk
+	 * @return the chunk
 	 */
-	private StringBuffer sb = new StringBuffer( 64 );
+	private ByteBuffer allocateChunk( int records, int length ) {
+		if ( records < CHUNK_RECORDS )
+			return ByteBuffer.allocate( records * length );
+		return storage.allocate( records * length );
+	}
 
-	/*
-	 * ============================= Methods =================================
+	/**
+	 * Return the chunk for the next record. Allocate a new chunk or grow the
+	 * first one if it is full
+	 * 
+	 * @param buffers
+	 *        the value chunks or the code chunks
+	 * @param length
+	 *        bytes of one record in the chunks
+	 * @return a chunk with a free place for the record
 	 */
+	private ByteBuffer chunkForAppend( ByteBuffer[] buffers, int length ) {
+		int chunkIndex = countChanges >>> CHUNK_SHIFT;
+		int recordIndex = countChanges & CHUNK_MASK;
+
+		ByteBuffer chunk = buffers[chunkIndex];
+		if ( chunk == null ) {
+			int records =
+					(chunkIndex == 0) ? FIRST_CHUNK_RECORDS : CHUNK_RECORDS;
+			chunk = allocateChunk( records, length );
+			buffers[chunkIndex] = chunk;
+		}
+		else
+			if ( chunk.isReadOnly() || recordIndex * length == chunk.capacity() ) {
+				// only the first chunk can be full here, a mapped chunk is
+				// copied before the first change
+				int records =
+						chunk.isReadOnly() ? CHUNK_RECORDS : Math.min(
+								chunk.capacity() / length * 2, CHUNK_RECORDS );
+				ByteBuffer newChunk = allocateChunk( records, length );
+				ByteBuffer oldChunk = chunk.duplicate();
+				oldChunk.clear();
+				newChunk.put( oldChunk );
+				chunk = newChunk;
+				buffers[chunkIndex] = chunk;
+			}
+		return chunk;
+	}
+
 	/**
-	 * Constructor
+	 * Return the time of the record with the specified index
 	 * 
-	 * @param countChanges
-	 *        count of changes in the signal
+	 * @param index
+	 *        index of the record
+	 * @return the scaled time of the record
 	 */
-	public SignalValueDump( int countChanges, int valueLength ) {
-		this.countChanges = countChanges;
-		this.valueLength = valueLength;
-		this.recordLength = valueLength + 8;
-		buffer = ByteBuffer.allocate( countChanges * recordLength );
+	private long getTime( int index ) {
+		return scale( getRawTime( index ) );
 	}
 
 	/**
-	 * Add a new record to the collection
+	 * Return the stored timestamp of the record with the specified index
+	 * 
+	 * @param index
+	 *        index of the record
+	 * @return the timestamp as it was added
+	 */
+	private long getRawTime( int index ) {
+		int run = runs.find( index );
+		if ( runs.contains( run, index ) ) return runs.getTimeAt( run, index );
+		return timeIndex.getTime( runs.getStoredBefore( index ) );
+	}
+
+	/**
+	 * Return the largest stored timestamp, which is not scaled after a time
 	 * 
 	 * @param time
-	 *        - a timestamp
-	 * @param value
-	 *        - value of the signal at the specified time
+	 *        the scaled time
+	 * @return the largest timestamp t with <code>scale( t ) <= time</code>
 	 */
-	public boolean addRecord( long time, String c ) {
-		// getting a time
-		buffer.putLong( time );
-		while (c.length() < valueLength) {
-			c = "0"+c;
-		}
- 		buffer.put( c.getBytes() );
-		
-		return true;
+	private long getRawLimit( long time ) {
+		if ( time < 0 ) return -1;
+		long ratioTime = time / timeRatio;
+		if ( ratioTime >= Long.MAX_VALUE / timeDivide ) return Long.MAX_VALUE;
+		return (ratioTime + 1) * timeDivide - 1;
+	}
+
+	/**
+	 * Scale a stored timestamp
+	 * 
+	 * @param time
+	 *        the stored timestamp
+	 * @return the scaled time
+	 */
+	private long scale( long time ) {
+		if ( timeDivide != 1 ) time /= timeDivide;
+		return time * timeRatio;
 	}
 
 	/**
@@ -102,33 +1119,328 @@ public class SignalValueDump {
 	 */
 	public String getValueAt( long time ) {
 		if ( countChanges > 0 ) {
-			Borders b = searchBorders( time );
-			int pos = b.right * recordLength;
-			long timeRight = buffer.getLong( pos );
+			return getValueAtIndex( getIndexAt( time ) );
+		}
+		return "";
+	}
+
+	/**
+	 * Read the bits of the signal value at the specified time
+	 * 
+	 * @param time
+	 *        - time to get the value
+	 * @param value
+	 *        - buffer for the bits of the value. The characters of a real var
+	 *        are stored as bits, with x and z for the characters x and z
+	 * @return true if the bits are the value, false for a real var or an
+	 *         empty dump
+	 */
+	public boolean getValueAt( long time, BitVector value ) {
+		if ( countChanges > 0 ) {
+			readBits( getIndexAt( time ), value );
+			return packed;
+		}
+		value.clear( 0 );
+		return false;
+	}
+
+	/**
+	 * Return the state of one bit of the signal value at the specified time
+	 * 
+	 * @param time
+	 *        - time to get the value
+	 * @param bit
+	 *        - number of the bit
+	 * @return BitVector.BIT_0, BIT_1, BIT_Z, BIT_X or -1 for an empty dump
+	 */
+	public int getBitAt( long time, int bit ) {
+		if ( countChanges == 0 ) return -1;
+		return getBitAtIndex( getIndexAt( time ), bit );
+	}
+
+	/**
+	 * Return the state of one bit of a record
+	 * 
+	 * @param index
+	 *        - index of the record
+	 * @param bit
+	 *        - number of the bit
+	 * @return BitVector.BIT_0, BIT_1, BIT_Z or BIT_X
+	 */
+	private int getBitAtIndex( int index, int bit ) {
+		ToggleDump t = toggles;
+		if ( t != null ) return t.getValue( index );
+		int code = getCode( index );
+		ByteBuffer source =
+				(code >= 0) ? dictionary : chunks[index >>> CHUNK_SHIFT];
+		int position = ((code >= 0) ? code : index & CHUNK_MASK) * recordLength;
+		if ( !packed )
+			return getCharState( source.get( position + valueLength - 1 - bit ) );
+		int state = getBit( source, position, bit ) ? BitVector.BIT_1 : 0;
+		return getBit( source, position, valueLength + bit ) ? state
+			| BitVector.BIT_Z : state;
+	}
+
+	/**
+	 * Create a cursor for the changes of the dump
+	 * 
+	 * @return a new cursor before the first change, seek has to be called
+	 *         before reading
+	 */
+	public ChangeCursor createCursor() {
+		return new DumpCursor();
+	}
+
+	/**
+	 * Summarize the records in a time range. The range is widened to whole
+	 * buckets of the activity summary, which is built by the first query and
+	 * extended by the records added later
+	 * 
+	 * @param time1
+	 *        - start of the range
+	 * @param time2
+	 *        - end of the range, not included
+	 * @param activity
+	 *        - buffer for the summary
+	 * @return false if the dump is empty or the range is narrower than a
+	 *         bucket, then the changes have to be read
+	 */
+	public boolean getActivity( long time1, long time2, SignalActivity activity ) {
+		if ( countChanges == 0 ) return false;
+		ActivityPyramid p = updatePyramid();
+		int shift = p.getShift();
+		if ( time2 - time1 < (1L << shift) ) return false;
 
-			if ( timeRight <= time ) {
-				pos += 8;
+		long bucket1 = Math.max( time1, 0 ) >>> shift;
+		long bucket2 = ((time2 - 1) >>> shift) + 1;
+		int first = p.getStart( bucket1 );
+		int end = p.getStart( bucket2 );
+		int flags = p.getFlags( bucket1, bucket2 );
+		activity.count = end - first;
+		activity.x = (flags & ActivityPyramid.FLAG_X) != 0;
+		activity.z = (flags & ActivityPyramid.FLAG_Z) != 0;
+		if ( end > first ) {
+			readBits( first, activity.firstValue );
+			readBits( end - 1, activity.lastValue );
+		}
+		else
+			if ( first > 0 ) {
+				readBits( first - 1, activity.firstValue );
+				activity.lastValue.copy( activity.firstValue );
 			}
 			else {
-				pos -= valueLength;
+				activity.firstValue.clear( 0 );
+				activity.lastValue.clear( 0 );
 			}
+		return true;
+	}
 
-			return getValueAtPosition( pos );
+	/**
+	 * Add the new records to the activity summary. The summary is built
+	 * again, if the time scale has been changed
+	 * 
+	 * @return the summary of all records
+	 */
+	private synchronized ActivityPyramid updatePyramid() {
+		int count = countChanges;
+		ActivityPyramid p = pyramid;
+		if ( p == null || !p.hasScale( timeDivide, timeRatio ) ) {
+			p = new ActivityPyramid( timeDivide, timeRatio );
+			pyramid = p;
 		}
-		return "";
+		if ( p.getCountRecords() >= count ) return p;
+
+		// flags of the dictionary values, 0 until the code is read
+		int[] codeFlags = new int[MAX_CODES];
+		TimeReader times = new TimeReader( p.getCountRecords() );
+		do {
+			p.add( scale( times.time ), getRecordFlags( times.index, codeFlags ) );
+		}
+		while ( times.index + 1 < count && times.next() );
+		return p;
+	}
+
+	/**
+	 * Return the x and z flags of the value of a record
+	 * 
+	 * @param index
+	 *        index of the record
+	 * @param codeFlags
+	 *        flags + 1 of the dictionary codes read before
+	 * @return ActivityPyramid.FLAG_X and FLAG_Z
+	 */
+	private int getRecordFlags( int index, int[] codeFlags ) {
+		ToggleDump t = toggles;
+		if ( t != null ) return getStateFlags( t.getValue( index ) );
+		int code = getCode( index );
+		if ( code >= 0 && codeFlags[code] != 0 ) return codeFlags[code] - 1;
+		ByteBuffer source =
+				(code >= 0) ? dictionary : chunks[index >>> CHUNK_SHIFT];
+		int position = ((code >= 0) ? code : index & CHUNK_MASK) * recordLength;
+		int flags = 0;
+		for ( int bit = 0; bit < valueLength; ++bit ) {
+			if ( !packed )
+				flags |= getStateFlags( getCharState( source.get( position + bit ) ) );
+			else
+				if ( getBit( source, position, valueLength + bit ) )
+					flags |=
+							getBit( source, position, bit ) ? ActivityPyramid.FLAG_X
+								: ActivityPyramid.FLAG_Z;
+		}
+		if ( code >= 0 ) codeFlags[code] = flags + 1;
+		return flags;
+	}
+
+	/**
+	 * Return the activity flags of a bit state
+	 */
+	private static int getStateFlags( int state ) {
+		switch ( state ) {
+			case BitVector.BIT_X:
+				return ActivityPyramid.FLAG_X;
+			case BitVector.BIT_Z:
+				return ActivityPyramid.FLAG_Z;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Return the index of the record valid at the specified time
+	 * 
+	 * @param time
+	 *        - time of the value
+	 * @return index of the last record not after the time
+	 */
+	private int getIndexAt( long time ) {
+		Borders b = searchBorders( time );
+		return (b.timeRight > time) ? b.right - 1 : b.right;
+	}
+
+	/**
+	 * Copy the value of a record into a bit vector
+	 * 
+	 * @param index
+	 *        index of the record
+	 * @param target
+	 *        buffer for the bits
+	 */
+	private void readBits( int index, BitVector target ) {
+		target.clear( valueLength );
+		ToggleDump t = toggles;
+		if ( t != null ) {
+			target.setBit( 0, t.getValue( index ) );
+			return;
+		}
+		int code = getCode( index );
+		ByteBuffer source =
+				(code >= 0) ? dictionary : chunks[index >>> CHUNK_SHIFT];
+		int position = ((code >= 0) ? code : index & CHUNK_MASK) * recordLength;
+		if ( !packed ) {
+			for ( int i = 0; i < valueLength; ++i ) {
+				target.setBit( valueLength - 1 - i, getCharState( source
+						.get( position + i ) ) );
+			}
+			return;
+		}
+
+		// the set bits of every byte go to the value or to the mask plane
+		long[] values = target.values;
+		long[] masks = target.masks;
+		for ( int i = 0; i < recordLength; ++i ) {
+			int bits = source.get( position + i ) & 0xFF;
+			for ( ; bits != 0; bits &= bits - 1 ) {
+				int bit = (i << 3) + Integer.numberOfTrailingZeros( bits );
+				if ( bit < valueLength ) {
+					values[bit >>> 6] |= 1L << bit;
+				}
+				else {
+					bit -= valueLength;
+					masks[bit >>> 6] |= 1L << bit;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the bit state of a character of a real var
+	 */
+	private static int getCharState( byte c ) {
+		switch ( c ) {
+			case '1':
+				return BitVector.BIT_1;
+			case 'x':
+				return BitVector.BIT_X;
+			case 'z':
+				return BitVector.BIT_Z;
+			default:
+				return BitVector.BIT_0;
+		}
+	}
+
+	/**
+	 * Return the signal value of the record with the specified index
+	 * 
+	 * @param index
+	 *        index of the record
+	 * @return string with value
+	 */
+	private String getValueAtIndex( int index ) {
+		ToggleDump t = toggles;
+		if ( t != null ) {
+			switch ( t.getValue( index ) ) {
+				case 0:
+					return "0";
+				case 1:
+					return "1";
+				case 2:
+					return AbstractSignal.SIGNAL_VALUE_Z;
+				default:
+					return AbstractSignal.SIGNAL_VALUE_X;
+			}
+		}
+		int code = getCode( index );
+		if ( code >= 0 ) {
+			String[] strings = dictionaryStrings;
+			String value = strings[code];
+			// threads formatting the same code store equal strings
+			if ( value == null ) {
+				value = formatValue( dictionary, code * recordLength );
+				strings[code] = value;
+			}
+			return value;
+		}
+		return formatValue( chunks[index >>> CHUNK_SHIFT], (index & CHUNK_MASK)
+			* recordLength );
 	}
 
 	/**
-	 * Return the signal value at the specified position
+	 * Return a stored value as string
 	 * 
+	 * @param chunk
+	 *        chunk with the value
 	 * @param pos
-	 *        position in buffer
+	 *        position of the value in the chunk
 	 * @return string with value
 	 */
-	private String getValueAtPosition( int pos ) {
-		sb.setLength( 0 );
+	private String formatValue( ByteBuffer chunk, int pos ) {
+		if ( packed ) {
+			switch ( getState( chunk, pos ) ) {
+				case STATE_X:
+					return AbstractSignal.SIGNAL_VALUE_X;
+				case STATE_Z:
+					return AbstractSignal.SIGNAL_VALUE_Z;
+			}
+			StringBuilder sb = new StringBuilder( valueLength );
+			for ( int bit = valueLength - 1; bit >= 0; --bit ) {
+				sb.append( getBit( chunk, pos, bit ) ? '1' : '0' );
+			}
+			return sb.toString();
+		}
+
+		StringBuilder sb = new StringBuilder( valueLength );
 		for ( int i = 0; i < valueLength; ++i ) {
-			sb.append( (char) buffer.get( pos++ ) );
+			sb.append( (char) chunk.get( pos++ ) );
 		}
 		String value = sb.toString();
 
@@ -139,22 +1451,126 @@ public class SignalValueDump {
 		return value;
 	}
 
+	/**
+	 * Return the state of a packed value. A value with an x bit is x, a value
+	 * with z bits only is z
+	 * 
+	 * @param chunk
+	 *        chunk with the record
+	 * @param position
+	 *        position of the value in the chunk
+	 * @return STATE_X, STATE_Z or STATE_KNOWN if the value has 0 and 1 bits
+	 *         only
+	 */
+	private int getState( ByteBuffer chunk, int position ) {
+		int state = STATE_KNOWN;
+		for ( int bit = 0; bit < valueLength; ++bit ) {
+			if ( !getBit( chunk, position, valueLength + bit ) ) continue;
+			if ( getBit( chunk, position, bit ) ) return STATE_X;
+			state = STATE_Z;
+		}
+		return state;
+	}
+
+	/**
+	 * Return the state of the text of a real var like formatValue
+	 * 
+	 * @param chunk
+	 *        chunk with the record
+	 * @param position
+	 *        position of the value in the chunk
+	 * @return STATE_X, STATE_Z or STATE_KNOWN
+	 */
+	private int getTextState( ByteBuffer chunk, int position ) {
+		int state = STATE_KNOWN;
+		for ( int i = 0; i < valueLength; ++i ) {
+			byte c = chunk.get( position + i );
+			if ( c == 'x' ) return STATE_X;
+			if ( c == 'z' ) state = STATE_Z;
+		}
+		return state;
+	}
+
+	/**
+	 * Return the count of bits changed by a range of records
+	 * 
+	 * @param first
+	 *        index of the first record of the range, compared with the record
+	 *        before
+	 * @param last
+	 *        index of the last record of the range
+	 * @return count of changed bits
+	 */
+	private long sumChangedBits( int first, int last ) {
+		long count = 0;
+		for ( int index = first; index <= last; ++index ) {
+			count += countChangedBits( index - 1, index );
+		}
+		return count;
+	}
+
+	/**
+	 * Return the count of bits changed between two records. A change from or
+	 * to an x or z value changes all bits
+	 * 
+	 * @param index1
+	 *        index of the first record
+	 * @param index2
+	 *        index of the second record
+	 * @return count of changed bits
+	 */
+	private int countChangedBits( int index1, int index2 ) {
+		ToggleDump t = toggles;
+		if ( t != null )
+			return (t.getValue( index1 ) != t.getValue( index2 )) ? 1 : 0;
+		int code1 = getCode( index1 );
+		int code2 = getCode( index2 );
+		if ( code1 >= 0 && code1 == code2 ) return 0;
+		ByteBuffer chunk1 =
+				(code1 >= 0) ? dictionary : chunks[index1 >>> CHUNK_SHIFT];
+		int pos1 = ((code1 >= 0) ? code1 : index1 & CHUNK_MASK) * recordLength;
+		ByteBuffer chunk2 =
+				(code2 >= 0) ? dictionary : chunks[index2 >>> CHUNK_SHIFT];
+		int pos2 = ((code2 >= 0) ? code2 : index2 & CHUNK_MASK) * recordLength;
+		int state1 =
+				packed ? getState( chunk1, pos1 ) : getTextState( chunk1, pos1 );
+		int state2 =
+				packed ? getState( chunk2, pos2 ) : getTextState( chunk2, pos2 );
+		if ( state1 != state2 ) return valueLength;
+		if ( state1 != STATE_KNOWN ) return 0;
+
+		// both mask planes are empty, so the different bits are value bits,
+		// the characters of a real var are compared
+		int count = 0;
+		if ( !packed ) {
+			for ( int i = 0; i < valueLength; ++i ) {
+				if ( chunk1.get( pos1 + i ) != chunk2.get( pos2 + i ) ) count++;
+			}
+			return count;
+		}
+		for ( int i = 0; i < recordLength; ++i ) {
+			count +=
+					Integer.bitCount( (chunk1.get( pos1 + i ) ^ chunk2
+							.get( pos2 + i )) & 0xFF );
+		}
+		return count;
+	}
+
 	/**
 	 * Return time, when the signal next time changed
 	 * 
 	 * @param time
 	 *        - time of the change
 	 * @return a time of the next change or -1 if the time is the last time of
-	 *         dumping
+	 *         dumping or out of the window
 	 */
 	public long getNextChangeTime( long time ) {
-		if ( countChanges > 0 ) {
+		if ( countChanges > 0 && isLoaded( time, time ) ) {
 			Borders b = searchBorders( time );
-			long timeLeft = buffer.getLong( b.left * recordLength );
-			long timeRight = buffer.getLong( b.right * recordLength );
+			long timeLeft = b.timeLeft;
+			long timeRight = b.timeRight;
 			if ( (time >= timeLeft) && (time < timeRight) ) { return timeRight; }
-			if ( b.right < countChanges - 1 ) { return buffer
-					.getLong( (b.right + 1) * recordLength ); }
+			if ( b.right < countChanges - 1 ) { return getTime( b.right + 1 ); }
 		}
 		return -1;
 	}
@@ -178,19 +1594,20 @@ public class SignalValueDump {
 	 * 
 	 * @param time
 	 *        - time of the previous change
-	 * @return a time of the previous change or -1 if signal has no changes. If
-	 *         the signal has a change at <code>time</code> it will be ignored
+	 * @return a time of the previous change or -1 if signal has no changes or
+	 *         the time is out of the window. If the signal has a change at
+	 *         <code>time</code> it will be ignored
 	 */
 	public long getPreviousChangeTime( long time ) {
-		if ( countChanges > 0 ) {
+		if ( countChanges > 0 && isLoaded( time, time ) ) {
 			Borders b = searchBorders( time );
-			long timeLeft = buffer.getLong( b.left * recordLength );
-			long timeRight = buffer.getLong( b.right * recordLength );
+			long timeLeft = b.timeLeft;
+			long timeRight = b.timeRight;
 			if ( (time > timeLeft) && (time <= timeRight) ) { return timeLeft; }
 			if ( time > timeRight ) { return timeRight; }
 			if ( time <= timeLeft ) {
 				if ( b.left > 1 ) {
-					return buffer.getLong( (b.left - 1) * recordLength );
+					return getTime( b.left - 1 );
 				}
 				else {
 					return 0;
@@ -211,8 +1628,8 @@ public class SignalValueDump {
 	public long getNearestPreviousChangeTime( long time ) {
 		if ( countChanges > 0 ) {
 			Borders b = searchBorders( time );
-			long timeLeft = buffer.getLong( b.left * recordLength );
-			long timeRight = buffer.getLong( b.right * recordLength );
+			long timeLeft = b.timeLeft;
+			long timeRight = b.timeRight;
 			if ( (time >= timeLeft) && (time < timeRight) ) {
 				return timeLeft;
 			}
@@ -231,10 +1648,10 @@ public class SignalValueDump {
 	 *        first time
 	 * @param time2
 	 *        second time
-	 * @return count if changes
+	 * @return count if changes or -1 if the times are out of the window
 	 */
 	public int getCountChanges( long time1, long time2 ) {
-		if ( countChanges > 0 ) {
+		if ( countChanges > 0 && isLoaded( time1, time2 ) ) {
 			int index2 = 0;
 			int index1 = 0;
 
@@ -243,8 +1660,8 @@ public class SignalValueDump {
 
 			// Get borders for time 2
 			Borders b = searchBorders( time2 );
-			long timeLeft = buffer.getLong( b.left * recordLength );
-			long timeRight = buffer.getLong( b.right * recordLength );
+			long timeLeft = b.timeLeft;
+			long timeRight = b.timeRight;
 			if ( time2 >= timeRight ) {
 				index2 = b.right;
 			}
@@ -258,8 +1675,8 @@ public class SignalValueDump {
 
 			// Get borders for time 1
 			b = searchBorders( time1 );
-			timeLeft = buffer.getLong( b.left * recordLength );
-			timeRight = buffer.getLong( b.right * recordLength );
+			timeLeft = b.timeLeft;
+			timeRight = b.timeRight;
 			if ( time1 >= timeRight ) {
 				index1 = b.right;
 			}
@@ -277,11 +1694,9 @@ public class SignalValueDump {
 	}
 
 	public int getSumCountChanges( long time1, long time2 ) {
-		if ( countChanges > 0 ) {
+		if ( countChanges > 0 && isLoaded( time1, time2 ) ) {
 			int countChanges = 0;
-			int pos = 0;
-			String value;
-			String lastValue;
+			int index = 0;
 
 			// exclude change on time == 0
 			time1 = (time1 == 0) ? 1 : time1;
@@ -291,46 +1706,93 @@ public class SignalValueDump {
 			Borders b2 = searchBorders( time2 );
 
 			if ( b1.left == b2.left && b1.right == b2.right ) {
-				if ( buffer.getLong( b1.right * recordLength ) < time1 )
+				if ( b1.timeRight < time1 )
 					return 0;
-				if ( buffer.getLong( b1.left * recordLength ) == time1 )
+				if ( b1.timeLeft == time1 )
 					countChanges++;
-				if ( buffer.getLong( b1.right * recordLength ) <= time2 )
+				if ( b1.timeRight <= time2 )
 					countChanges++;
 				return countChanges;
 			}
 
-			if ( buffer.getLong( b1.right * recordLength ) <= time1 ) {
-				pos = b1.right * recordLength;
+			if ( b1.timeRight <= time1 ) {
+				index = b1.right;
 			}
 			else
-				if ( buffer.getLong( b1.left * recordLength ) == time1 ) {
-					pos = b1.left * recordLength;
+				if ( b1.timeLeft == time1 ) {
+					index = b1.left;
 				}
 				else {
-					pos = b1.right * recordLength;
+					index = b1.right;
 				}
 
-			lastValue = getValueAtPosition( pos - valueLength );
-			while ( pos < buffer.capacity() && buffer.getLong( pos ) <= time2 ) {
-				value = getValueAtPosition( pos + 8 );
-				if ( value.length() != lastValue.length() ) {
-					countChanges += valueLength;
-				}
-				else {
-					for ( int i = 0; i < valueLength; ++i ) {
-						if ( lastValue.charAt( i ) != value.charAt( i ) )
-							countChanges++;
-					}
-				}
-				pos += recordLength;
-				lastValue = value;
-			}
-			return countChanges;
+			// changed bits of the records from index to the last record not
+			// after time2
+			int last = getIndexAt( time2 );
+			if ( last < index ) return 0;
+			return (int) (getCountToggles( last ) - getCountToggles( index - 1 ));
 		}
 		return -1;
 	}
 
+	/**
+	 * Return the count of the bits changed by the records up to the specified
+	 * time. The difference for two times is the switching activity between
+	 * them
+	 * 
+	 * @param time
+	 *        - the time
+	 * @return count of the changed bits or -1 for an empty dump or a window,
+	 *         which does not start with the first record
+	 */
+	public long getCountToggles( long time ) {
+		if ( countChanges == 0 || !isLoaded( 0, time ) ) return -1;
+		return getCountToggles( getIndexAt( time ) );
+	}
+
+	/**
+	 * Return the count of the bits changed by the records up to a record. The
+	 * counts of the blocks are computed up to the block of the record, the
+	 * records of the block are compared
+	 * 
+	 * @param index
+	 *        index of the record
+	 * @return count of the changed bits, 0 before the second record
+	 */
+	private long getCountToggles( int index ) {
+		if ( index <= 0 ) return 0;
+		int block = index >>> DumpTimeIndex.BLOCK_SHIFT;
+		long[] counts = getBlockToggles( block );
+		return counts[block]
+			+ sumChangedBits( (block << DumpTimeIndex.BLOCK_SHIFT) + 1, index );
+	}
+
+	/**
+	 * Extend the count of the changed bits up to a block
+	 * 
+	 * @param block
+	 *        index of the block
+	 * @return the counts of the blocks, including the block
+	 */
+	private synchronized long[] getBlockToggles( int block ) {
+		while ( countToggleBlocks <= block ) {
+			if ( countToggleBlocks == blockToggles.length ) {
+				long[] newToggles = new long[blockToggles.length * 2];
+				System.arraycopy( blockToggles, 0, newToggles, 0,
+						countToggleBlocks );
+				blockToggles = newToggles;
+			}
+			int first = countToggleBlocks << DumpTimeIndex.BLOCK_SHIFT;
+			blockToggles[countToggleBlocks] =
+					(countToggleBlocks == 0) ? 0
+						: blockToggles[countToggleBlocks - 1]
+							+ sumChangedBits( first - DumpTimeIndex.BLOCK_RECORDS
+								+ 1, first );
+			countToggleBlocks++;
+		}
+		return blockToggles;
+	}
+
 	/**
 	 * Binary search the element in the dump to get a Value of the signal at
 	 * selected
@@ -341,22 +1803,62 @@ public class SignalValueDump {
 	 * @return Borders-Object with indexes
 	 */
 	Borders searchBorders( long time ) {
+		return searchBorders( time, new Borders() );
+	}
 
-		Borders b = new Borders();
+	/**
+	 * Binary search the element in the dump
+	 * 
+	 * @param time
+	 *        - time to be found
+	 * @param b
+	 *        - object for the indexes
+	 * @return the object with the indexes
+	 */
+	private Borders searchBorders( long time, Borders b ) {
+		int count = countChanges;
 
 		b.left = 0;
-		b.right = countChanges - 1;
+		b.right = count - 1;
 		b.center = (b.left + b.right) / 2;
+		if ( count < 2 ) {
+			if ( count == 1 ) b.timeLeft = b.timeRight = getTime( 0 );
+			return b;
+		}
+		long limit = getRawLimit( time );
 
-		while ( b.right - b.left > 1 ) {
-			if ( buffer.getLong( b.center * recordLength ) > time ) {
-				b.right = b.center;
-			}
-			else {
-				b.left = b.center;
-			}
-			b.center = (b.left + b.right) / 2;
+		// Last stored record not after the time
+		int stored = runs.getStoredBefore( count );
+		int after = 0;
+		// times of the stored records before and at the index after
+		long timeBefore = 0;
+		long timeAfter = 0;
+		if ( stored > 0 && timeIndex.getFirstTime() <= limit ) {
+			DumpTimeIndex.Reader times = timeIndex.findLast( limit, stored );
+			after = times.getIndex() + 1;
+			timeBefore = times.getTime();
+			if ( after < stored ) timeAfter = times.getNextTime();
 		}
+		else
+			if ( stored > 0 ) timeAfter = timeIndex.getFirstTime();
+		int before = (after > 0) ? runs.getRecordIndex( after - 1 ) : -1;
+		int next = (after < stored) ? runs.getRecordIndex( after ) : -1;
+
+		// First record of the runs after the time
+		int index = runs.getIndexAfter( limit, (next >= 0) ? next : count );
+		index = Math.min( index, count );
+
+		// The borders are the records around the first one after the time
+		b.right = Math.min( Math.max( index, 1 ), count - 1 );
+		b.left = b.right - 1;
+		b.center = (b.left + b.right) / 2;
+		// the times of the stored records around the time are known
+		b.timeLeft =
+				scale( (b.left == before) ? timeBefore : (b.left == next)
+					? timeAfter : getRawTime( b.left ) );
+		b.timeRight =
+				scale( (b.right == before) ? timeBefore : (b.right == next)
+					? timeAfter : getRawTime( b.right ) );
 		return b;
 	}
 
@@ -372,5 +1874,273 @@ public class SignalValueDump {
 		public int left;
 		public int right;
 		public int center;
+		public long timeLeft;
+		public long timeRight;
+	}
+
+	/**
+	 * Reader for the timestamps of the records in their order. The times of
+	 * a run are computed from its period
+	 */
+	private class TimeReader {
+
+		/**
+		 * Index of the current record
+		 */
+		private int index;
+		/**
+		 * Stored timestamp of the current record
+		 */
+		private long time;
+		/**
+		 * Run of the current record or the next run, if the current record is
+		 * stored
+		 */
+		private int run;
+		/**
+		 * Flag for the current record being in the run
+		 */
+		private boolean inRun;
+		/**
+		 * Count of the stored records before the current record
+		 */
+		private int storedBefore;
+		/**
+		 * Reader of the stored records, null until a stored record is read
+		 */
+		private DumpTimeIndex.Reader stored = null;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param index
+		 *        index of the first record to read
+		 */
+		public TimeReader( int index ) {
+			this.index = index;
+			this.storedBefore = runs.getStoredBefore( index );
+			this.run = runs.find( index );
+			this.inRun = runs.contains( run, index );
+			if ( inRun )
+				time = runs.getTimeAt( run, index );
+			else {
+				run++;
+				readStored();
+			}
+		}
+
+		/**
+		 * Move to the next record
+		 * 
+		 * @return false if the current record is the last one
+		 */
+		public boolean next() {
+			if ( index + 1 >= countChanges ) return false;
+			index++;
+			if ( inRun ) {
+				if ( runs.contains( run, index ) ) {
+					time += runs.getPeriod( run );
+					return true;
+				}
+				inRun = false;
+				run++;
+			}
+			else
+				storedBefore++;
+			if ( run < runs.getCount() && runs.getFirst( run ) == index ) {
+				inRun = true;
+				time = runs.getTimeAt( run, index );
+			}
+			else
+				readStored();
+			return true;
+		}
+
+		/**
+		 * Read the time of the current record from the stored records
+		 */
+		private void readStored() {
+			if ( stored != null && stored.getIndex() == storedBefore - 1 )
+				stored.next();
+			else
+				stored = timeIndex.createReader( storedBefore );
+			time = stored.getTime();
+		}
+	}
+
+	/**
+	 * Cursor over the records of the dump. The cursor stands on the last
+	 * record of the records with the same scaled time and steps through the
+	 * runs and the decoded time blocks in both directions
+	 */
+	private class DumpCursor extends ChangeCursor {
+
+		/**
+		 * Index of the current record
+		 */
+		private int index = -1;
+		/**
+		 * Stored timestamp of the current record
+		 */
+		private long rawTime;
+		/**
+		 * Scaled time of the current record
+		 */
+		private long time = -1;
+		/**
+		 * Scaled time of the next record with another time, -1 if there is
+		 * no such record
+		 */
+		private long nextTime = -1;
+		/**
+		 * Last run starting not after the current record, -1 if there is none
+		 */
+		private int run;
+		/**
+		 * Flag for the current record being in the run
+		 */
+		private boolean inRun;
+		/**
+		 * Count of the stored records before the current record
+		 */
+		private int storedBefore;
+		/**
+		 * Decoded times of a time block
+		 */
+		private final long[] blockBuffer = new long[DumpTimeIndex.BLOCK_RECORDS];
+		/**
+		 * Index of the decoded block
+		 */
+		private int bufferBlock = -1;
+		/**
+		 * Count of the decoded times in the buffer
+		 */
+		private int bufferCount = 0;
+
+		@Override
+		public void seek( long time ) {
+			if ( countChanges == 0 ) return;
+			int index = Math.max( getIndexAt( time ), 0 );
+			this.index = index;
+			run = runs.find( index );
+			inRun = runs.contains( run, index );
+			storedBefore = runs.getStoredBefore( index );
+			readTime();
+			this.time = scale( rawTime );
+			findNext();
+		}
+
+		@Override
+		public long getTime() {
+			return time;
+		}
+
+		@Override
+		public long getNextTime() {
+			return nextTime;
+		}
+
+		@Override
+		public boolean next() {
+			if ( nextTime == -1 ) return false;
+			forward();
+			time = nextTime;
+			findNext();
+			return true;
+		}
+
+		@Override
+		public boolean previous() {
+			if ( index < 0 ) return false;
+			int steps = 0;
+			while ( index > 0 ) {
+				backward();
+				steps++;
+				long previousTime = scale( rawTime );
+				if ( previousTime != time ) {
+					nextTime = time;
+					time = previousTime;
+					return true;
+				}
+			}
+			// the current change is the first one
+			for ( ; steps > 0; --steps ) {
+				forward();
+			}
+			return false;
+		}
+
+		@Override
+		public boolean getValue( BitVector value ) {
+			if ( index < 0 ) {
+				value.clear( 0 );
+				return false;
+			}
+			readBits( index, value );
+			return packed;
+		}
+
+		@Override
+		public int getBit( int bit ) {
+			if ( index < 0 ) return -1;
+			return getBitAtIndex( index, bit );
+		}
+
+		/**
+		 * Move to the last record of the current time and read the time of
+		 * the record after it
+		 */
+		private void findNext() {
+			while ( index + 1 < countChanges ) {
+				forward();
+				long recordTime = scale( rawTime );
+				if ( recordTime != time ) {
+					backward();
+					nextTime = recordTime;
+					return;
+				}
+			}
+			nextTime = -1;
+		}
+
+		/**
+		 * Move to the next record
+		 */
+		private void forward() {
+			if ( !inRun ) storedBefore++;
+			index++;
+			if ( run + 1 < runs.getCount() && runs.getFirst( run + 1 ) <= index )
+				run++;
+			inRun = runs.contains( run, index );
+			readTime();
+		}
+
+		/**
+		 * Move to the previous record
+		 */
+		private void backward() {
+			index--;
+			if ( run >= 0 && runs.getFirst( run ) > index ) run--;
+			inRun = runs.contains( run, index );
+			if ( !inRun ) storedBefore--;
+			readTime();
+		}
+
+		/**
+		 * Read the stored timestamp of the current record
+		 */
+		private void readTime() {
+			if ( inRun ) {
+				rawTime = runs.getTimeAt( run, index );
+				return;
+			}
+			int block = storedBefore >>> DumpTimeIndex.BLOCK_SHIFT;
+			int offset = storedBefore & (DumpTimeIndex.BLOCK_RECORDS - 1);
+			if ( block != bufferBlock || offset >= bufferCount ) {
+				bufferCount = timeIndex.readBlock( block, blockBuffer );
+				bufferBlock = block;
+			}
+			rawTime = blockBuffer[offset];
+		}
 	}
 }
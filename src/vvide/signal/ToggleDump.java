@@ -0,0 +1,147 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+/**
+ * Values of a scalar dump stored as toggles. A record toggles the 0 or 1 of
+ * the previous record, only the first record and the records breaking this
+ * rule are stored in a sorted table of exceptions. The exceptions are
+ * appended by one thread and read by others, an exception is visible after
+ * the count of records of the dump is updated
+ */
+class ToggleDump {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Count of exceptions a scalar dump keeps in any case
+	 */
+	private static final int MIN_EXCEPTIONS = 16;
+	/**
+	 * Bytes of one exception
+	 */
+	private static final int EXCEPTION_BYTES = 8;
+	/**
+	 * Records, which are no toggle of the previous record. Every entry is
+	 * <code>index << 8 | value</code> with the packed value of the record,
+	 * the entries are sorted by the index
+	 */
+	private long[] exceptions;
+	/**
+	 * Count of the exceptions
+	 */
+	private int countExceptions;
+	/**
+	 * Packed value of the last record. Used by the writer only
+	 */
+	private int lastValue = 0;
+
+	/*
+	 * ======================= Getters / Setters =============================
+	 */
+	/**
+	 * Return the exceptions
+	 *
+	 * @return the exceptions as <code>index << 8 | value</code>
+	 */
+	public long[] getExceptions() {
+		long[] entries = new long[countExceptions];
+		System.arraycopy( exceptions, 0, entries, 0, countExceptions );
+		return entries;
+	}
+
+	/*
+	 * ============================= Methods =================================
+	 */
+	/**
+	 * Constructor for a dump without records
+	 */
+	public ToggleDump() {
+		this.exceptions = new long[4];
+		this.countExceptions = 0;
+	}
+
+	/**
+	 * Constructor for a dump with existing records, e.g. mapped from a cache
+	 *
+	 * @param exceptions
+	 *        the exceptions as returned by getExceptions
+	 */
+	public ToggleDump( long[] exceptions ) {
+		this.exceptions = exceptions;
+		this.countExceptions = exceptions.length;
+	}
+
+	/**
+	 * Add the value of a new record. A toggle of the previous 0 or 1 is not
+	 * stored, x and z (mask bit set) are never toggled
+	 *
+	 * @param index
+	 *        index of the record
+	 * @param value
+	 *        packed value of the record
+	 * @return false if the exceptions would need more bytes than the values,
+	 *         the record is not added then
+	 */
+	public boolean add( int index, int value ) {
+		if ( index > 0 && lastValue <= 1 && value == (lastValue ^ 1) ) {
+			lastValue = value;
+			return true;
+		}
+		if ( countExceptions >= MIN_EXCEPTIONS
+			&& countExceptions * EXCEPTION_BYTES > index ) return false;
+		if ( countExceptions == exceptions.length ) {
+			long[] newExceptions = new long[exceptions.length * 2];
+			System.arraycopy( exceptions, 0, newExceptions, 0, countExceptions );
+			exceptions = newExceptions;
+		}
+		exceptions[countExceptions] = ((long) index << 8) | value;
+		countExceptions++;
+		lastValue = value;
+		return true;
+	}
+
+	/**
+	 * Return the value of a record. The value is taken from the last
+	 * exception up to the record and toggled for every record after the
+	 * exception
+	 *
+	 * @param index
+	 *        index of the record
+	 * @return the packed value of the record
+	 */
+	public int getValue( int index ) {
+		long[] entries = exceptions;
+		int low = 0;
+		int high = Math.min( countExceptions, entries.length ) - 1;
+		while ( low < high ) {
+			int center = (low + high + 1) >>> 1;
+			if ( (entries[center] >>> 8) > index ) {
+				high = center - 1;
+			}
+			else {
+				low = center;
+			}
+		}
+		int value = (int) (entries[low] & 0xFF);
+		return value ^ ((index - (int) (entries[low] >>> 8)) & 1);
+	}
+}
@@ -21,6 +21,7 @@ package vvide.signal;
 
 import java.lang.reflect.Method;
 
+import vvide.Application;
 import vvide.logger.Logger;
 import vvide.signal.visitors.AbstractVisitor;
 
@@ -33,7 +34,8 @@ public class VectorSignal extends AbstractSignal {
 	 * =========================== Attributes ================================
 	 */
 	/**
-	 * Collection of the Signalvalue's changes
+	 * Collection of the Signalvalue's changes. Null while the values are not
+	 * loaded, the signal has no changes then
 	 */
 	private SignalValueDump signalValueDump;
 
@@ -48,10 +50,12 @@ public class VectorSignal extends AbstractSignal {
 	}
 
 	/**
-	 * Setter for a signalValueDump
+	 * Setter for a signalValueDump. The merged buses with the signal are
+	 * built again
 	 */
 	public void setSignalDump( SignalValueDump value ) {
 		this.signalValueDump = value;
+		Application.signalManager.dumpReplaced();
 	}
 
 	@Override
@@ -61,41 +65,92 @@ public class VectorSignal extends AbstractSignal {
 
 	@Override
 	public boolean setValueAt( long time, String value ) {
+		if ( signalValueDump == null ) return false;
 		return signalValueDump.addRecord( time, value );
 	}
 
 	@Override
 	public String getValueAt( long time ) {
+		if ( signalValueDump == null ) return "";
 		return signalValueDump.getValueAt( time );
 	}
 
+	@Override
+	public boolean getValueAt( long time, BitVector value ) {
+		if ( signalValueDump == null ) {
+			value.clear( 0 );
+			return false;
+		}
+		return signalValueDump.getValueAt( time, value );
+	}
+
+	@Override
+	public ChangeCursor createCursor() {
+		if ( signalValueDump == null ) return ChangeCursor.EMPTY;
+		return signalValueDump.createCursor();
+	}
+
+	@Override
+	public boolean getActivity( long time1, long time2,
+		SignalActivity activity ) {
+		if ( signalValueDump == null ) return false;
+		return signalValueDump.getActivity( time1, time2, activity );
+	}
+
+	/**
+	 * Return the state of one bit of the value at the specified time
+	 * 
+	 * @param time
+	 *        - time to get the value
+	 * @param bit
+	 *        - number of the bit
+	 * @return BitVector.BIT_0, BIT_1, BIT_Z, BIT_X or -1 without values
+	 */
+	public int getBitAt( long time, int bit ) {
+		if ( signalValueDump == null ) return -1;
+		return signalValueDump.getBitAt( time, bit );
+	}
+
 	@Override
 	public long getNextChangeTime( long time ) {
+		if ( signalValueDump == null ) return -1;
 		return signalValueDump.getNextChangeTime( time );
 	}
 
 	@Override
 	public int getCountChanges( long time1, long time2 ) {
+		if ( signalValueDump == null ) return -1;
 		return signalValueDump.getCountChanges( time1, time2 );
 	}
 
 	@Override
 	public int getSumCountChanges( long time1, long time2 ) {
+		if ( signalValueDump == null ) return -1;
 		return signalValueDump.getSumCountChanges( time1, time2 );
 	}
 
+	@Override
+	public long getCountToggles( long time ) {
+		if ( signalValueDump == null ) return -1;
+		return signalValueDump.getCountToggles( time );
+	}
+
 	@Override
 	public long getPreviousChangeTime( long time ) {
+		if ( signalValueDump == null ) return -1;
 		return signalValueDump.getPreviousChangeTime( time );
 	}
 
 	@Override
 	public long getLastChangeTime( long time ) {
+		if ( signalValueDump == null )
+			return Application.signalManager.getSignalLength();
 		return signalValueDump.getLastChangeTime( time );
 	}
 
 	@Override
 	public long getNearestPreviousChangeTime( long time ) {
+		if ( signalValueDump == null ) return -1;
 		return signalValueDump.getNearestPreviousChangeTime( time );
 	}
 	
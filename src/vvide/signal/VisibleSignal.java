@@ -25,6 +25,8 @@
 
 package vvide.signal;
 
+import java.math.BigInteger;
+
 import vvide.Application;
 
 /**
@@ -43,6 +45,27 @@ public class VisibleSignal {
 	 * Signal
 	 */
 	private AbstractSignal signal = null;
+	/**
+	 * Digits of the hexadecimal values
+	 */
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+	/**
+	 * Buffer for the values read by getFormattedValueAt( time )
+	 */
+	private final BitVector buffer = new BitVector();
+	/**
+	 * Bits of the last formatted value
+	 */
+	private final BitVector formattedBits = new BitVector();
+	/**
+	 * The last formatted value, reused while the bits and the numeral system
+	 * stay the same
+	 */
+	private String formattedValue = null;
+	/**
+	 * Numeral system of the last formatted value
+	 */
+	private NumeralSystem formattedSystem = null;
 
 	/*
 	 * ======================== Getters / Setters ============================
@@ -90,7 +113,141 @@ public class VisibleSignal {
 	 * @return A char with the value of the Signal
 	 */
 	public String getFormattedValueAt( long time ) {
-		String strValue = signal.getValueAt( time );
+		return getFormattedValueAt( time, buffer );
+	}
+
+	/**
+	 * Return a value of the Signal at the specified time
+	 * 
+	 * @param time
+	 *        - time to get the Sinal's value
+	 * @param value
+	 *        - buffer for the bits of the value, holds the bits afterwards
+	 * @return the value in the numeral system of the signal
+	 */
+	public String getFormattedValueAt( long time, BitVector value ) {
+		if ( !signal.getValueAt( time, value ) )
+			return format( signal.getValueAt( time ) );
+		return getFormattedValue( value );
+	}
+
+	/**
+	 * Return the value of the current change of a cursor
+	 * 
+	 * @param cursor
+	 *        - cursor of the signal
+	 * @param value
+	 *        - buffer for the bits of the value, holds the bits afterwards
+	 * @return the value in the numeral system of the signal
+	 */
+	public String getFormattedValue( ChangeCursor cursor, BitVector value ) {
+		if ( !cursor.getValue( value ) )
+			return format( signal.getValueAt( cursor.getTime() ) );
+		return getFormattedValue( value );
+	}
+
+	/**
+	 * Return the formatted bits, reusing the last string for the same bits
+	 * 
+	 * @param value
+	 *        the bits
+	 * @return the value in the numeral system of the signal
+	 */
+	private String getFormattedValue( BitVector value ) {
+		if ( formattedValue == null || formattedSystem != numeralSystem
+			|| !value.sameBits( formattedBits ) ) {
+			formattedValue = format( value );
+			formattedBits.copy( value );
+			formattedSystem = numeralSystem;
+		}
+		return formattedValue;
+	}
+
+	/**
+	 * Format the bits of a value
+	 * 
+	 * @param value
+	 *        the bits
+	 * @return the value in the numeral system of the signal
+	 */
+	private String format( BitVector value ) {
+		switch ( value.getState() ) {
+		case BitVector.BIT_0:
+			return "0";
+		case BitVector.BIT_1:
+			return "1";
+		case BitVector.BIT_Z:
+			return AbstractSignal.SIGNAL_VALUE_Z;
+		case BitVector.BIT_X:
+			return AbstractSignal.SIGNAL_VALUE_X;
+		}
+
+		int width = value.getWidth();
+		switch ( numeralSystem ) {
+		case BINARY:
+			char[] bits = new char[width];
+			for ( int bit = 0; bit < width; ++bit ) {
+				bits[width - 1 - bit] =
+						((value.getValueWord( bit >>> 6 ) >>> bit & 1) != 0) ? '1'
+							: '0';
+			}
+			return new String( bits );
+		case UNSIGNED_DECIMAL:
+			if ( width < 64 ) return Long.toString( value.getValueWord( 0 ) );
+			return toBigInteger( value, false ).toString();
+		case SIGNED_DECIMAL:
+			if ( width <= 64 ) {
+				int shift = 64 - width;
+				return Long.toString( value.getValueWord( 0 ) << shift >> shift );
+			}
+			return toBigInteger( value, true ).toString();
+		case HEXADECIMAL:
+			char[] digits = new char[Math.max( 1, (width + 3) >>> 2 )];
+			int length = 0;
+			for ( int digit = digits.length - 1; digit >= 0; --digit ) {
+				int bit = digit << 2;
+				int nibble = (int) (value.getValueWord( bit >>> 6 ) >>> bit) & 0xF;
+				if ( nibble == 0 && length == 0 && digit > 0 ) continue;
+				digits[length++] = HEX_DIGITS[nibble];
+			}
+			return new String( digits, 0, length );
+		}
+		return "No Value";
+	}
+
+	/**
+	 * Convert the bits of a value wider than a long
+	 * 
+	 * @param value
+	 *        the bits
+	 * @param signed
+	 *        true for a value in two's complement
+	 * @return the number
+	 */
+	private static BigInteger toBigInteger( BitVector value, boolean signed ) {
+		int count = value.getCountWords();
+		// the leading zero byte keeps the number positive
+		byte[] bytes = new byte[count * 8 + 1];
+		for ( int word = 0; word < count; ++word ) {
+			long bits = value.getValueWord( word );
+			for ( int i = 0; i < 8; ++i ) {
+				bytes[bytes.length - 1 - word * 8 - i] = (byte) (bits >>> (i * 8));
+			}
+		}
+		BigInteger number = new BigInteger( bytes );
+		if ( signed && number.testBit( value.getWidth() - 1 ) )
+			number = number.subtract( BigInteger.ONE.shiftLeft( value.getWidth() ) );
+		return number;
+	}
+
+	/**
+	 * Format a value given as string
+	 * 
+	 * @param strValue
+	 *        the value
+	 * @return the value in the numeral system of the signal
+	 */
+	private String format( String strValue ) {
 		if ( strValue.length() == 1) return strValue;
 		if (numeralSystem == NumeralSystem.BINARY) return strValue;
 		
@@ -46,6 +46,11 @@ public abstract class AbstractSimulator {
 	 * Property to notify about the finishing the simulation
 	 */
 	public final static String SIMULATION_FINISHED = "SimulationFinshed";
+	/**
+	 * Property to notify about the start of the simulation. Fired before the
+	 * simulator process is created
+	 */
+	public final static String SIMULATION_STARTED = "SimulationStarted";
 	/**
 	 * Property for top level entity
 	 */
@@ -260,6 +265,13 @@ public abstract class AbstractSimulator {
 		return getDescription();
 	}
 
+	/**
+	 * Notify listeners that the simulation is started
+	 */
+	void fireSimulationStarted() {
+		pcs.firePropertyChange( SIMULATION_STARTED, null, null );
+	}
+
 	/**
 	 * Notify listeners that the simulation was finished
 	 */
@@ -75,6 +75,7 @@ public class SimulationThread extends Thread {
 
 		// Starting a process
 		try {
+			simulator.fireSimulationStarted();
 			process = builder.start();
 
 			ReaderThread outputReader =
@@ -96,6 +97,7 @@ public class SimulationThread extends Thread {
 		}
 		catch ( IOException e ) {
 			Logger.logError( this, e );
+			simulator.fireSimulationCanceled();
 		}
 
 		StopSimulationAction action =
@@ -41,6 +41,7 @@ import javax.swing.JPanel;
 import javax.swing.JScrollBar;
 
 import vvide.Application;
+import vvide.SignalManager;
 import vvide.ui.AbstractView;
 import vvide.ui.views.wave.MarkerRender;
 import vvide.ui.views.wave.ScrollAlignment;
@@ -680,6 +681,8 @@ public class WaveView extends AbstractView {
 	 */
 	public void renderContent() {
 		calcSettings();
+		Application.signalManager.showTimes( getStartVisibleTime(),
+				getEndVisibleTime() );
 		signalRender.drawSignals( signalPanel.getSignalGraphics(), signalPanel
 				.getWidth(), signalPanel.getHeight(), instance );
 		markerRender.drawMarkers( signalPanel.getOverlayGraphics(), signalPanel
@@ -706,6 +709,28 @@ public class WaveView extends AbstractView {
 		}
 	}
 
+	/**
+	 * Adjust the view to a grown simulation length. A completely zoomed out
+	 * view stays zoomed out and a view showing the end keeps showing it
+	 * 
+	 * @param oldLength
+	 *        the previous simulation length
+	 * @param newLength
+	 *        the new simulation length
+	 */
+	private void signalLengthChanged( long oldLength, long newLength ) {
+		boolean zoomedOut = getZoom() == minimalZoom;
+		boolean showEnd = horizontalRegion.end >= oldLength;
+
+		changeMinimalZoom();
+		if ( zoomedOut ) setZoom( minimalZoom );
+		calcSettings();
+		if ( showEnd ) {
+			horizontalRegion.moveTo( newLength, ScrollAlignment.RIGHT );
+			scrollHorizontal.setValue( horizontalRegion.value );
+		}
+	}
+
 	/**
 	 * Increase a zoom
 	 */
@@ -768,6 +793,11 @@ public class WaveView extends AbstractView {
 
 		@Override
 		public void propertyChange( PropertyChangeEvent evt ) {
+			if ( SignalManager.SIGNAL_LENGTH_CHANGED.equals( evt
+					.getPropertyName() ) ) {
+				signalLengthChanged( (Long) evt.getOldValue(), (Long) evt
+						.getNewValue() );
+			}
 			renderContent();
 		}
 
@@ -43,8 +43,11 @@ import vvide.Application;
 import vvide.SignalManager;
 import vvide.logger.Logger;
 import vvide.signal.AbstractSignal;
+import vvide.signal.BitVector;
+import vvide.signal.ChangeCursor;
 import vvide.signal.Marker;
 import vvide.signal.NumeralSystem;
+import vvide.signal.SignalActivity;
 import vvide.signal.TimeMetric;
 import vvide.signal.VisibleSignal;
 import vvide.ui.views.WaveView;
@@ -218,6 +221,14 @@ public class SignalRender {
 	 * Width of the button delete
 	 */
 	private int deleteSignalImageSize;
+	/**
+	 * Buffer for the signal values
+	 */
+	private final BitVector bits = new BitVector();
+	/**
+	 * Buffer for the activity of the signals
+	 */
+	private final SignalActivity activity = new SignalActivity();
 	/* Help variables for draw a signal */
 	boolean isValue0;
 	boolean isValue1;
@@ -456,6 +467,17 @@ public class SignalRender {
 			time += 10 * view.getZoom();
 		}
 
+		// Mark the end of the values, while the values are parsed
+		long loadedTime = Application.signalManager.getSignalLength();
+		if ( Application.signalManager.isLoading()
+			&& loadedTime >= view.getStartVisibleTime()
+			&& loadedTime <= view.getEndVisibleTime() ) {
+			int x = (int) view.getCoordFromTime( loadedTime );
+			g.setColor( new Color( 255, 160, 0 ) );
+			g.fillRect( x - 1, 0, 3, timeLineHeight );
+			g.drawLine( x, timeLineHeight, x, imageHeight );
+		}
+
 		// Draw a start time value
 		TextLayout startTimeLayout =
 				new TextLayout( TimeMetric.toString(
@@ -583,14 +605,16 @@ public class SignalRender {
 				currentTime = view.getStartVisibleTime() - 10 * view.getZoom();
 			}
 			long nextChangeTime = 0;
-			String lastValue = signal.getValueAt( currentTime );
-			String value;
+			ChangeCursor cursor = signal.createCursor();
+			cursor.seek( currentTime );
+			int lastValue = getState( cursor );
+			int value;
 			boolean stop = false;
 			long lastChangeTime =
 					signal.getLastChangeTime( view.getEndVisibleTime() );
 
 			while ( (currentTime <= lastChangeTime && (!stop)) ) {
-				nextChangeTime = signal.getNextChangeTime( currentTime );
+				nextChangeTime = cursor.getNextTime();
 
 				// Correct a time of the next change
 				stop = (nextChangeTime == -1) || (nextChangeTime > view.getEndVisibleTime()); 
@@ -603,7 +627,9 @@ public class SignalRender {
 							- view.getCoordFromTime( currentTime );
 				if ( pxDelta >= signal.getNoChangeWidth() ) {
 
-					value = signal.getValueAt( currentTime );
+					String formattedValue =
+							visibleSignal.getFormattedValue( cursor, bits );
+					value = bits.getState();
 
 					// Draw a signal line
 					// Correct Values of X
@@ -614,56 +640,54 @@ public class SignalRender {
 						stopX = imageWidth + 10;
 					}
 
-					isLastValue0 = lastValue.equals( "0" );
-					isLastValue1 = lastValue.equals( "1" );
-					isLastValueZ =
-							lastValue.equals( AbstractSignal.SIGNAL_VALUE_Z );
-					isLastValueX =
-							lastValue.equals( AbstractSignal.SIGNAL_VALUE_X );
-					isValue0 = value.equals( "0" );
-					isValue1 = value.equals( "1" );
-					isValueZ = value.equals( AbstractSignal.SIGNAL_VALUE_Z );
-					isValueX = value.equals( AbstractSignal.SIGNAL_VALUE_X );
+					isLastValue0 = lastValue == BitVector.BIT_0;
+					isLastValue1 = lastValue == BitVector.BIT_1;
+					isLastValueZ = lastValue == BitVector.BIT_Z;
+					isLastValueX = lastValue == BitVector.BIT_X;
+					isValue0 = value == BitVector.BIT_0;
+					isValue1 = value == BitVector.BIT_1;
+					isValueZ = value == BitVector.BIT_Z;
+					isValueX = value == BitVector.BIT_X;
 
 					drawSignalLine( g, (int)startX, (int)stopX, lastValue, value,
-							signalStartY, signal, visibleSignal
-									.getFormattedValueAt( currentTime ) );
+							signalStartY, signal, formattedValue );
 
 					// Changing current pixel
 					currentTime = nextChangeTime;
+					cursor.moveTo( currentTime );
 					lastValue = value;
 				}
 				else {
-					// Have a more changes on some px
-					int countChanges = 10;
-					long startTime = currentTime;
-					long stopTime = currentTime;
-					while ( (countChanges != 0)
-						&& (stopTime <= view.getEndVisibleTime()) ) {
-						stopTime =
-								startTime
-									+ (long) ((signal.getNoChangeWidth() - 1) * view
-											.getZoom());
-						stopTime =
-								signal.getNearestPreviousChangeTime( stopTime );
-						if ( stopTime == startTime ) {
-							stopTime = signal.getNextChangeTime( stopTime );
-						}
-						if ( stopTime > Application.signalManager
-								.getSignalLength() ) {
-							break;
-						}
-						if ( stopTime == -1 ) {
-							stopTime = view.getEndVisibleTime();
-							break;
-						}
-						countChanges =
-								signal.getCountChanges( startTime, stopTime );
-						startTime = stopTime;
+					// Have a more changes on some px, searching a window
+					// without changes wider than the noChangeWidth
+					long searchDelta =
+							(long) ((signal.getNoChangeWidth() + 1) * view
+									.getZoom());
+					long endTime =
+							Math.min( view.getEndVisibleTime(),
+									Application.signalManager.getSignalLength() );
+					int state = BitVector.KNOWN;
+					long searchTime = nextChangeTime + 1;
+					while ( searchTime < endTime ) {
+						int windowState =
+								getWindowState( signal, cursor, searchTime,
+										searchTime + searchDelta );
+						if ( windowState < 0 ) break;
+						if ( windowState == BitVector.BIT_X
+							|| (windowState == BitVector.BIT_Z
+								&& state != BitVector.BIT_X) )
+							state = windowState;
+						searchTime += searchDelta;
+					}
+					long stopTime = endTime;
+					if ( searchTime < endTime ) {
+						cursor.moveTo( searchTime - 1 );
+						stopTime = Math.max( cursor.getTime(), nextChangeTime );
 					}
 
 					// Draw a many changes
-					g.setColor( Color.GREEN );
+					g.setColor( (state == BitVector.BIT_X) ? Color.RED
+						: (state == BitVector.BIT_Z) ? Color.BLUE : Color.GREEN );
 					g.fillRect( (int)view.getCoordFromTime( currentTime ),
 							signalStartY + highOffset, (int)(view
 									.getCoordFromTime( stopTime )
@@ -671,7 +695,8 @@ public class SignalRender {
 							lowOffset - highOffset );
 					// Changing current pixel
 					currentTime = stopTime;
-					lastValue = signal.getValueAt( stopTime );
+					cursor.moveTo( currentTime );
+					lastValue = getState( cursor );
 				}
 			}
 
@@ -680,6 +705,59 @@ public class SignalRender {
 		}
 	}
 
+	/**
+	 * Return the state of the current value of a cursor
+	 * 
+	 * @param cursor
+	 *        cursor of the signal
+	 * @return state of the value
+	 * @see BitVector#getState()
+	 */
+	private int getState( ChangeCursor cursor ) {
+		cursor.getValue( bits );
+		return bits.getState();
+	}
+
+	/**
+	 * Return the state of the changes in a search window. The activity of the
+	 * signal is used, if the window is not narrower than its summary,
+	 * otherwise the changes are read by the cursor
+	 * 
+	 * @param signal
+	 *        the signal
+	 * @param cursor
+	 *        cursor of the signal before the window
+	 * @param time1
+	 *        start of the window
+	 * @param time2
+	 *        end of the window, not included
+	 * @return -1 without changes, BitVector.BIT_X or BIT_Z for a change to an
+	 *         x or z value, otherwise BitVector.KNOWN
+	 */
+	private int getWindowState( AbstractSignal signal, ChangeCursor cursor,
+			long time1, long time2 ) {
+		if ( signal.getActivity( time1, time2, activity ) ) {
+			if ( activity.getCount() == 0 ) return -1;
+			return activity.hasX() ? BitVector.BIT_X : activity.hasZ()
+				? BitVector.BIT_Z : BitVector.KNOWN;
+		}
+
+		int state = -1;
+		cursor.moveTo( time1 - 1 );
+		long nextTime = cursor.getNextTime();
+		while ( nextTime != -1 && nextTime < time2 ) {
+			cursor.next();
+			int value = getState( cursor );
+			if ( value == BitVector.BIT_X
+				|| (value == BitVector.BIT_Z && state != BitVector.BIT_X) )
+				state = value;
+			else
+				if ( state < 0 ) state = BitVector.KNOWN;
+			nextTime = cursor.getNextTime();
+		}
+		return state;
+	}
+
 	/**
 	 * A Help Method to start a DrawMethod for a specified signal type
 	 * 
@@ -703,7 +781,7 @@ public class SignalRender {
 	 * @see SignalRender#drawOneBitSignalLine(int, int, long, long, int)
 	 */
 	private void drawSignalLine( Graphics2D g, int xSrart, int xEnd,
-			String lastValue, String value, int deltaY, AbstractSignal signal,
+			int lastValue, int value, int deltaY, AbstractSignal signal,
 			String formattedValue ) {
 
 		if ( signal.getBitWidth() == 1 ) {
@@ -728,7 +806,7 @@ public class SignalRender {
 	 *        value of signal
 	 */
 	private void drawOneBitSignalLine( Graphics2D g, int xSrart, int xEnd,
-			String lastValue, String value, int deltaY ) {
+			int lastValue, int value, int deltaY ) {
 
 		// Colors for draw a vertical line
 		if ( isLastValueX || isValueX ) {
@@ -797,7 +875,7 @@ public class SignalRender {
 	 *        value of signal
 	 */
 	private void drawManyBitSignalLine( Graphics2D g, int xSrart, int xEnd,
-			String lastValue, String value, int deltaY, String formattedValue ) {
+			int lastValue, int value, int deltaY, String formattedValue ) {
 
 		// Colors for draw a vertical line
 		if ( isLastValueX || isValueX ) {
@@ -158,24 +158,6 @@ public class CommonMethods {
 		}
 	}
 
-	/**
-	 * Convert an string ID of the signal to the int value
-	 * 
-	 * @param stringId
-	 *        a string with signal id
-	 * @return integer >= 0 if conversion was correct, -1 otherwise
-	 */
-	public static int getIDFormString( String stringId ) {
-		stringId = stringId.trim();
-		if ( stringId.length() == 0 ) return -1;
-		int value = 0;
-		for ( int i = 0; i < stringId.length(); i++ ) {
-			int digit = (int) stringId.charAt( i ) - 32;
-			value = value + digit * (int) Math.pow( 94, i );
-		}
-		return value;
-	}
-
 	/**
 	 * Send a keys with robot
 	 * 
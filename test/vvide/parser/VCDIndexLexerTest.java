@@ -0,0 +1,231 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Check of the index built by the VCDIndexLexer for a value section larger
+ * than one block and of the checkpoints of the index
+ */
+public class VCDIndexLexerTest {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Minimal size of a block, as used by the lexer
+	 */
+	private static final long BLOCK_SIZE = 1L << 20;
+	/**
+	 * Count of blocks between two checkpoints, as used by the lexer
+	 */
+	private static final int CHECKPOINT_BLOCKS = 16;
+	/**
+	 * Count of timestamps in the test file
+	 */
+	private static final int COUNT_TIMESTAMPS = 400000;
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Run the check
+	 * 
+	 * @param args
+	 *        not used
+	 * @throws IOException
+	 */
+	public static void main( String[] args ) throws IOException {
+		checkBlocks();
+		checkCheckpoints();
+		System.out.println( "VCDIndexLexerTest passed" );
+	}
+
+	/**
+	 * Check the blocks of a file with timestamps only
+	 */
+	private static void checkBlocks() throws IOException {
+		File file = File.createTempFile( "vvide", ".vcd" );
+		file.deleteOnExit();
+		OutputStream output = new FileOutputStream( file );
+		try {
+			for ( int i = 0; i < COUNT_TIMESTAMPS; ++i ) {
+				output.write( ("#" + (i * 10) + "\n").getBytes( "US-ASCII" ) );
+			}
+		}
+		finally {
+			output.close();
+		}
+
+		VCDIndexLexer lexer = new VCDIndexLexer() {
+
+			@Override
+			protected void updateProgress( long position ) {}
+		};
+		lexer.setFileSize( file.length() );
+		lexer.setStartOffset( 0 );
+		RandomAccessFile input = new RandomAccessFile( file, "r" );
+		try {
+			lexer.scan( input.getChannel(), 0 );
+
+			VCDBlockIndex index = lexer.getBlockIndex();
+			check( file.length() > 2 * BLOCK_SIZE, "file smaller than 2 blocks" );
+			check( index.getCountBlocks() >= file.length() / BLOCK_SIZE,
+					"blocks " + index.getCountBlocks() + " for "
+						+ file.length() + " bytes" );
+			check( index.getOffset( 0 ) == 0 && index.getTime( 0 ) == 0,
+					"first block does not start at the first timestamp" );
+			for ( int i = 1; i < index.getCountBlocks(); ++i ) {
+				long offset = index.getOffset( i );
+				check( offset - index.getOffset( i - 1 ) >= BLOCK_SIZE,
+						"block " + i + " is too small" );
+				check( index.getTime( i ) > index.getTime( i - 1 ),
+						"block " + i + " is not ordered by time" );
+				input.seek( offset );
+				check( input.read() == '#', "block " + i
+					+ " does not start at a timestamp" );
+				check( readNumber( input ) == index.getTime( i ), "block " + i
+					+ " has a wrong time" );
+			}
+		}
+		finally {
+			input.close();
+		}
+		file.delete();
+	}
+
+	/**
+	 * Check the checkpoints of a file with three signals. The signal ! changes
+	 * at the first timestamp only, # changes once in the first checkpoint
+	 * interval and " toggles at every timestamp, so the last checkpoint holds
+	 * " only and the other signals are found in the earlier checkpoints
+	 */
+	private static void checkCheckpoints() throws IOException {
+		File file = File.createTempFile( "vvide", ".vcd" );
+		file.deleteOnExit();
+		OutputStream output =
+				new BufferedOutputStream( new FileOutputStream( file ) );
+		long time = 0;
+		try {
+			output.write( "#0\nb101 !\n0\"\n".getBytes( "US-ASCII" ) );
+			long size = 0;
+			while ( size < (2 * CHECKPOINT_BLOCKS + 1) * BLOCK_SIZE ) {
+				time += 10;
+				String line =
+						"#" + time + "\n" + ((time / 10) % 2) + "\"\n"
+							+ ((time == 50) ? "1#\n" : "");
+				output.write( line.getBytes( "US-ASCII" ) );
+				size += line.length();
+			}
+		}
+		finally {
+			output.close();
+		}
+
+		VCDIdTable idTable = new VCDIdTable();
+		idTable.add( "!" );
+		idTable.add( "\"" );
+		idTable.add( "#" );
+		VCDIndexLexer lexer = new VCDIndexLexer() {
+
+			@Override
+			protected void updateProgress( long position ) {}
+		};
+		lexer.setCheckpoints( true );
+		lexer.setIdTable( idTable );
+		lexer.setFileSize( file.length() );
+		lexer.setStartOffset( 0 );
+		RandomAccessFile input = new RandomAccessFile( file, "r" );
+		try {
+			lexer.scan( input.getChannel(), 0 );
+		}
+		finally {
+			input.close();
+		}
+		file.delete();
+
+		VCDBlockIndex index = lexer.getBlockIndex();
+		check( index.hasCheckpoints(), "no checkpoints" );
+		VCDBlockIndex.Checkpoint last =
+				index.findCheckpoint( index.getCountBlocks() - 1 );
+		check( last.getBlock() == 2 * CHECKPOINT_BLOCKS, "last checkpoint at "
+			+ last.getBlock() );
+		check( last.findEntry( idTable.get( "!" ) ) < 0
+			&& last.findEntry( idTable.get( "#" ) ) < 0,
+				"last checkpoint holds unchanged signals" );
+		int entry = last.findEntry( idTable.get( "\"" ) );
+		long blockTime = index.getTime( last.getBlock() );
+		check( entry >= 0, "last checkpoint misses the changed signal" );
+		check( last.getChangeTime( entry ) == blockTime - 10,
+				"wrong change time " + last.getChangeTime( entry ) );
+		check( value( last, entry ).equals( "" + ((blockTime / 10 - 1) % 2) ),
+				"wrong value " + value( last, entry ) );
+
+		VCDBlockIndex.Checkpoint previous = last.getPrevious();
+		check( previous.getBlock() == CHECKPOINT_BLOCKS, "previous checkpoint at "
+			+ previous.getBlock() );
+		entry = previous.findEntry( idTable.get( "!" ) );
+		check( entry >= 0 && previous.getChangeTime( entry ) == 0
+			&& value( previous, entry ).equals( "101" ),
+				"signal ! is not in the previous checkpoint" );
+		entry = previous.findEntry( idTable.get( "#" ) );
+		check( entry >= 0 && previous.getChangeTime( entry ) == 50
+			&& value( previous, entry ).equals( "1" ),
+				"signal # is not in the previous checkpoint" );
+		check( previous.getPrevious().getBlock() == 0
+			&& previous.getPrevious().getPrevious() == null,
+				"wrong first checkpoint" );
+	}
+
+	/**
+	 * Return the value of a checkpoint entry as a string
+	 */
+	private static String value( VCDBlockIndex.Checkpoint checkpoint, int entry )
+			throws IOException {
+		byte[] bytes = new byte[checkpoint.getValueLength( entry )];
+		checkpoint.copyValue( entry, bytes );
+		return new String( bytes, "US-ASCII" );
+	}
+
+	/**
+	 * Read a decimal number ending with a line break
+	 */
+	private static long readNumber( RandomAccessFile input ) throws IOException {
+		long number = 0;
+		int c;
+		while ( (c = input.read()) >= '0' && c <= '9' ) {
+			number = number * 10 + (c - '0');
+		}
+		return number;
+	}
+
+	/**
+	 * Throw an error if the condition does not hold
+	 */
+	private static void check( boolean condition, String message ) {
+		if ( !condition ) throw new AssertionError( message );
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.parser;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * Check that the VCDValueLexer and the VCDMappedValueLexer decode the value
+ * section without allocating memory for every token, and that the
+ * VCDIndexLexer keeps the last values for the checkpoints without allocating
+ * memory for every change. The allocated bytes of the thread are counted
+ * around a scan, which decodes several hundred thousand value changes
+ */
+public class ValueLexerAllocationTest {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Count of timestamps in the value section, kept below the interval of
+	 * the progress updates
+	 */
+	private static final int COUNT_TIMESTAMPS = 4000;
+	/**
+	 * Count of signals, each one changes at every timestamp
+	 */
+	private static final int COUNT_SIGNALS = 100;
+	/**
+	 * Bytes a scan may allocate, independent of the count of changes
+	 */
+	private static final long ALLOWED_BYTES = 64 * 1024;
+	/**
+	 * Allocation counter of the JVM
+	 */
+	private static final com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Run the check
+	 *
+	 * @param args
+	 *        not used
+	 * @throws IOException
+	 */
+	public static void main( String[] args ) throws IOException {
+		if ( !threads.isThreadAllocatedMemorySupported() ) {
+			System.out.println( "ValueLexerAllocationTest skipped: "
+				+ "allocated memory is not measured by this JVM" );
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled( true );
+
+		VCDIdTable idTable = new VCDIdTable();
+		String[] codes = new String[COUNT_SIGNALS];
+		for ( int i = 0; i < COUNT_SIGNALS; ++i ) {
+			codes[i] = "" + (char) ('!' + i % 90) + (char) ('!' + i / 90);
+			idTable.add( codes[i] );
+		}
+		StringBuilder text = new StringBuilder();
+		for ( int t = 0; t < COUNT_TIMESTAMPS; ++t ) {
+			text.append( '#' ).append( t * 10 ).append( '\n' );
+			for ( int i = 0; i < COUNT_SIGNALS; ++i ) {
+				switch ( i % 3 ) {
+					case 0:
+						text.append( (t & 1) == 0 ? '0' : '1' );
+						break;
+					case 1:
+						text.append( 'b' ).append( Integer.toBinaryString( t ) )
+								.append( ' ' );
+						break;
+					default:
+						text.append( 'r' ).append( t ).append( ".5 " );
+				}
+				text.append( codes[i] ).append( '\n' );
+			}
+		}
+		char[] chars = text.toString().toCharArray();
+		byte[] bytes = text.toString().getBytes( "US-ASCII" );
+		long expectedChanges = (long) COUNT_TIMESTAMPS * COUNT_SIGNALS;
+
+		// the first rounds let the JIT compile the lexers
+		for ( int round = 0; round < 3; ++round ) {
+			CountingValueLexer lexer =
+					new CountingValueLexer( new CharArrayReader( chars ) );
+			lexer.setIdTable( idTable );
+			long before = threads.getThreadAllocatedBytes( Thread.currentThread()
+					.getId() );
+			while ( lexer.yylex() != null ) {}
+			long allocated =
+					threads.getThreadAllocatedBytes( Thread.currentThread()
+							.getId() ) - before;
+			check( lexer.changes == expectedChanges, "VCDValueLexer decoded "
+				+ lexer.changes + " changes instead of " + expectedChanges );
+			check( lexer.unknownIds == 0, "VCDValueLexer did not find "
+				+ lexer.unknownIds + " identifier codes" );
+			if ( round == 2 )
+				check( allocated < ALLOWED_BYTES, "VCDValueLexer allocated "
+					+ allocated + " bytes for " + expectedChanges + " changes" );
+		}
+
+		for ( int round = 0; round < 3; ++round ) {
+			CountingMappedValueLexer lexer = new CountingMappedValueLexer();
+			lexer.setIdTable( idTable );
+			ByteBuffer buffer = ByteBuffer.wrap( bytes );
+			long before = threads.getThreadAllocatedBytes( Thread.currentThread()
+					.getId() );
+			lexer.scan( buffer );
+			lexer.finish();
+			long allocated =
+					threads.getThreadAllocatedBytes( Thread.currentThread()
+							.getId() ) - before;
+			check( lexer.changes == expectedChanges, "VCDMappedValueLexer decoded "
+				+ lexer.changes + " changes instead of " + expectedChanges );
+			check( lexer.unknownIds == 0, "VCDMappedValueLexer did not find "
+				+ lexer.unknownIds + " identifier codes" );
+			check( lexer.getLastTimestamp() == (COUNT_TIMESTAMPS - 1) * 10,
+					"VCDMappedValueLexer ended at " + lexer.getLastTimestamp() );
+			if ( round == 2 )
+				check( allocated < ALLOWED_BYTES, "VCDMappedValueLexer allocated "
+					+ allocated + " bytes for " + expectedChanges + " changes" );
+		}
+
+		for ( int round = 0; round < 3; ++round ) {
+			CountingIndexLexer lexer = new CountingIndexLexer();
+			lexer.setIdTable( idTable );
+			lexer.setCheckpoints( true );
+			ByteBuffer buffer = ByteBuffer.wrap( bytes );
+			long before = threads.getThreadAllocatedBytes( Thread.currentThread()
+					.getId() );
+			lexer.scan( buffer );
+			lexer.finish();
+			long allocated =
+					threads.getThreadAllocatedBytes( Thread.currentThread()
+							.getId() ) - before;
+			check( lexer.changes == expectedChanges, "VCDIndexLexer decoded "
+				+ lexer.changes + " changes instead of " + expectedChanges );
+			if ( round == 2 )
+				check( allocated < ALLOWED_BYTES, "VCDIndexLexer allocated "
+					+ allocated + " bytes for " + expectedChanges + " changes" );
+		}
+		System.out.println( "ValueLexerAllocationTest passed" );
+	}
+
+	/**
+	 * Throw an error if the condition does not hold
+	 */
+	private static void check( boolean condition, String message ) {
+		if ( !condition ) throw new AssertionError( message );
+	}
+
+	/*
+	 * ========================= Internal Classes =============================
+	 */
+	/**
+	 * VCDValueLexer counting the decoded changes instead of storing them
+	 */
+	private static class CountingValueLexer extends VCDValueLexer {
+
+		private long changes = 0;
+		private long unknownIds = 0;
+
+		public CountingValueLexer( CharArrayReader in ) {
+			super( in );
+		}
+
+		@Override
+		protected void addVarChange( int varID, byte[] value, int length ) {
+			++changes;
+			if ( varID < 0 ) ++unknownIds;
+		}
+	}
+
+	/**
+	 * VCDMappedValueLexer counting the decoded changes instead of storing
+	 * them
+	 */
+	private static class CountingMappedValueLexer extends VCDMappedValueLexer {
+
+		private long changes = 0;
+		private long unknownIds = 0;
+
+		@Override
+		protected void addVarChange( int varID, byte[] value, int length ) {
+			++changes;
+			if ( varID < 0 ) ++unknownIds;
+		}
+
+		@Override
+		protected void updateProgress( long position ) {}
+	}
+
+	/**
+	 * VCDIndexLexer counting the changes kept for the checkpoints
+	 */
+	private static class CountingIndexLexer extends VCDIndexLexer {
+
+		private long changes = 0;
+
+		@Override
+		protected void addVarChange( int varID, byte[] value, int length ) {
+			super.addVarChange( varID, value, length );
+			++changes;
+		}
+
+		@Override
+		protected void updateProgress( long position ) {}
+	}
+}
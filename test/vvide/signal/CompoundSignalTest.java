@@ -0,0 +1,201 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import vvide.Application;
+import vvide.SettingsManager;
+import vvide.SignalManager;
+
+/**
+ * Check of the cursor of a compound signal against the changes of its bits,
+ * with the bits merged into a bus dump and with the merge cursor. The bits
+ * start at different times, so the cursor steps back to times before the
+ * first change of a bit
+ */
+public class CompoundSignalTest {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Characters of the bit states
+	 */
+	private static final String STATES = "01zx";
+	/**
+	 * Count of bits of the bus
+	 */
+	private static final int BIT_WIDTH = 6;
+	/**
+	 * Last time of a change
+	 */
+	private static final int MAX_TIME = 2000;
+	/**
+	 * Count of random cursor steps
+	 */
+	private static final int COUNT_STEPS = 20000;
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Run the check
+	 *
+	 * @param args
+	 *        not used
+	 */
+	public static void main( String[] args ) {
+		Application.settingsManager = new SettingsManager();
+		Application.signalManager = new SignalManager();
+
+		Random random = new Random( 22 );
+		int[][] times = new int[BIT_WIDTH][];
+		int[][] states = new int[BIT_WIDTH][];
+		CompoundSignal bus = new CompoundSignal( 0, "bus", -1, BIT_WIDTH );
+		TreeSet<Integer> changes = new TreeSet<Integer>();
+		for ( int bit = 0; bit < BIT_WIDTH; ++bit ) {
+			// the last bit starts late, after many changes of the others
+			int time = (bit == BIT_WIDTH - 1) ? MAX_TIME / 2 : bit * 7;
+			int count = 0;
+			int[] bitTimes = new int[MAX_TIME];
+			int[] bitStates = new int[MAX_TIME];
+			while ( time < MAX_TIME ) {
+				bitTimes[count] = time;
+				bitStates[count] = random.nextInt( STATES.length() );
+				changes.add( time );
+				count++;
+				time += 1 + random.nextInt( 40 );
+			}
+			times[bit] = new int[count];
+			states[bit] = new int[count];
+			System.arraycopy( bitTimes, 0, times[bit], 0, count );
+			System.arraycopy( bitStates, 0, states[bit], 0, count );
+
+			SignalValueDump dump = new SignalValueDump( 1, true );
+			for ( int i = 0; i < count; ++i ) {
+				dump.addRecord( times[bit][i], String.valueOf( STATES
+						.charAt( states[bit][i] ) ) );
+			}
+			dump.seal();
+			VectorSignal signal = new VectorSignal( bit + 1, "bus", bit, 1 );
+			signal.setSignalDump( dump );
+			bus.addChild( signal );
+		}
+		int[] changeTimes = new int[changes.size()];
+		int index = 0;
+		for ( int time : changes ) {
+			changeTimes[index++] = time;
+		}
+
+		Application.settingsManager.setMergedBuses( false );
+		check( bus.createCursor().getClass().getEnclosingClass()
+			== CompoundSignal.class, "merge cursor without bus dump" );
+		checkCursor( bus, changeTimes, times, states, new Random( 1 ) );
+		Application.settingsManager.setMergedBuses( true );
+		check( bus.createCursor().getClass().getEnclosingClass()
+			== SignalValueDump.class, "cursor of the bus dump" );
+		checkCursor( bus, changeTimes, times, states, new Random( 1 ) );
+
+		System.out.println( "CompoundSignalTest passed" );
+	}
+
+	/**
+	 * Walk the cursor of the bus with random seeks and steps and compare its
+	 * times and values with the changes of the bits
+	 */
+	private static void checkCursor( CompoundSignal bus, int[] changeTimes,
+		int[][] times, int[][] states, Random random ) {
+		ChangeCursor cursor = bus.createCursor();
+		BitVector value = new BitVector();
+		cursor.seek( 0 );
+		int index = 0;
+		for ( int step = 0; step < COUNT_STEPS; ++step ) {
+			int action = random.nextInt( 20 );
+			if ( action == 0 ) {
+				int time = random.nextInt( MAX_TIME + 100 ) - 50;
+				cursor.seek( time );
+				index = findChange( changeTimes, time );
+			}
+			else
+				if ( action < 10 ) {
+					boolean moved = cursor.next();
+					check( moved == (index < changeTimes.length - 1), "next at "
+						+ changeTimes[index] );
+					if ( moved ) index++;
+				}
+				else {
+					boolean moved = cursor.previous();
+					check( moved == (index > 0), "previous at "
+						+ changeTimes[index] );
+					if ( moved ) index--;
+				}
+			check( cursor.getTime() == changeTimes[index], "time "
+				+ cursor.getTime() + " instead of " + changeTimes[index] );
+			long nextTime =
+					(index < changeTimes.length - 1) ? changeTimes[index + 1]
+							: -1;
+			check( cursor.getNextTime() == nextTime, "next time at "
+				+ changeTimes[index] );
+			check( cursor.getValue( value ), "value at " + changeTimes[index] );
+			for ( int bit = 0; bit < times.length; ++bit ) {
+				int state = getState( times[bit], states[bit],
+						changeTimes[index] );
+				check( value.getBit( bit ) == state, "bit " + bit + " at "
+					+ changeTimes[index] );
+				check( cursor.getBit( bit ) == state, "cursor bit " + bit
+					+ " at " + changeTimes[index] );
+			}
+		}
+	}
+
+	/**
+	 * Return the index of the last change not after the time or 0, if the
+	 * time is before the first change
+	 */
+	private static int findChange( int[] changeTimes, int time ) {
+		int index = 0;
+		while ( index < changeTimes.length - 1
+			&& changeTimes[index + 1] <= time ) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Return the state of a bit at the time. Before its first change a bit
+	 * has the state of the first change
+	 */
+	private static int getState( int[] times, int[] states, int time ) {
+		int index = 0;
+		while ( index < times.length - 1 && times[index + 1] <= time ) {
+			index++;
+		}
+		return states[index];
+	}
+
+	/**
+	 * Throw an error if a condition does not hold
+	 */
+	private static void check( boolean condition, String message ) {
+		if ( !condition ) throw new AssertionError( message );
+	}
+}
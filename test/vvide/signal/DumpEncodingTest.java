@@ -0,0 +1,440 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Differential check of the encodings of a dump. Dumps with packed values,
+ * dictionary codes, toggles with exceptions, periodic runs and varint time
+ * blocks with a sampled index are queried at random times and compared with
+ * a plain dump, which keeps every time and value uncompressed in arrays.
+ * Every dump is checked while it grows, after the records are appended from
+ * another dump and after it is sealed
+ */
+public class DumpEncodingTest {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Characters of the bit states
+	 */
+	private static final String STATES = "01zx";
+	/**
+	 * Characters of the values of a real var
+	 */
+	private static final String DIGITS = "0123456789.";
+	/**
+	 * Count of random queries for every dump
+	 */
+	private static final int COUNT_QUERIES = 4000;
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Run the check
+	 *
+	 * @param args
+	 *        not used
+	 */
+	public static void main( String[] args ) {
+		Random random = new Random( 16 );
+
+		// few distinct values are stored as codes
+		checkEncoding( "dictionary", 8, true, createTimes( random, 20000, 50 ),
+				createValues( random, 20000, 8, STATES, 20 ), DumpStorage.HEAP,
+				random );
+		// the dictionary runs full in a later chunk
+		checkEncoding( "dictionary overflow", 10, true, createTimes( random,
+				20000, 50 ), createValues( random, 20000, 10, STATES, 300 ),
+				DumpStorage.HEAP, random );
+		// distinct values are stored packed
+		checkEncoding( "packed", 13, true, createTimes( random, 20000, 50 ),
+				createValues( random, 20000, 13, STATES, 0 ), DumpStorage.HEAP,
+				random );
+		checkEncoding( "toggles", 1, true, createTimes( random, 30000, 20 ),
+				createToggles( random, 30000, 0.001 ), DumpStorage.HEAP, random );
+		// the exceptions need more bytes than the values
+		checkEncoding( "toggle exceptions", 1, true, createTimes( random, 30000,
+				20 ), createToggles( random, 30000, 0.3 ), DumpStorage.HEAP,
+				random );
+		checkEncoding( "runs", 4, true, createPeriodicTimes( random, 30000 ),
+				createValues( random, 30000, 4, STATES, 0 ), DumpStorage.HEAP,
+				random );
+		checkEncoding( "periodic toggles", 1, true, createPeriodicTimes(
+				random, 30000 ), createToggles( random, 30000, 0.01 ),
+				DumpStorage.HEAP, random );
+		checkEncoding( "text", 6, false, createTimes( random, 20000, 50 ),
+				createValues( random, 20000, 6, DIGITS, 0 ), DumpStorage.HEAP,
+				random );
+
+		// a large dump with long differences in a mapped file
+		DumpStorage storage = DumpStorage.create( Long.MAX_VALUE );
+		checkEncoding( "large", 3, true, createLargeTimes( random, 300000 ),
+				createValues( random, 300000, 3, STATES, 0 ), storage, random );
+		storage.close();
+
+		System.out.println( "DumpEncodingTest passed" );
+	}
+
+	/**
+	 * Build the dumps of the records and compare them with the plain dump
+	 */
+	private static void checkEncoding( String name, int width, boolean packed,
+		long[] times, String[] values, DumpStorage storage, Random random ) {
+		SignalValueDump dump = new SignalValueDump( width, packed, storage );
+		for ( int i = 0; i < times.length; ++i ) {
+			dump.addRecord( times[i], values[i] );
+		}
+		// the second half is appended from another dump
+		int half = times.length / 2;
+		SignalValueDump appended = new SignalValueDump( width, packed, storage );
+		SignalValueDump second = new SignalValueDump( width, packed, storage );
+		for ( int i = 0; i < times.length; ++i ) {
+			(i < half ? appended : second).addRecord( times[i], values[i] );
+		}
+		appended.addRecords( second );
+
+		PlainDump plain = new PlainDump( width, packed, times, values );
+		compare( name, dump, plain, random );
+		compare( name + " appended", appended, plain, random );
+		dump.seal();
+		appended.seal();
+		compare( name + " sealed", dump, plain, random );
+		compare( name + " appended sealed", appended, plain, random );
+	}
+
+	/**
+	 * Query a dump and the plain dump at random times
+	 */
+	private static void compare( String name, SignalValueDump dump,
+		PlainDump plain, Random random ) {
+		long[] times = plain.times;
+		check( dump.getCountRecords() == times.length, name + ": count" );
+		long lastTime = times[times.length - 1];
+		compareAt( name, dump, plain, 0 );
+		compareAt( name, dump, plain, lastTime );
+		for ( int query = 0; query < COUNT_QUERIES; ++query ) {
+			long time = getQueryTime( times, random );
+			compareAt( name, dump, plain, time );
+
+			long time2 = time + (long) (random.nextDouble() * lastTime / 8);
+			check( dump.getCountChanges( time, time2 ) == plain.getCountChanges(
+					time, time2 ), name + ": count changes " + time + " "
+				+ time2 );
+		}
+	}
+
+	/**
+	 * Compare the queries of one time
+	 */
+	private static void compareAt( String name, SignalValueDump dump,
+		PlainDump plain, long time ) {
+		String at = name + " at " + time + ": ";
+		SignalValueDump.Borders b = dump.searchBorders( time );
+		int[] borders = plain.searchBorders( time );
+		check( b.left == borders[0] && b.right == borders[1], at + "borders "
+			+ b.left + " " + b.right + " instead of " + borders[0] + " "
+			+ borders[1] );
+		check( b.timeLeft == plain.times[borders[0]]
+			&& b.timeRight == plain.times[borders[1]], at + "border times" );
+		check( dump.getValueAt( time ).equals( plain.getValueAt( time ) ), at
+			+ "value " + dump.getValueAt( time ) + " instead of "
+			+ plain.getValueAt( time ) );
+		check( dump.getNextChangeTime( time ) == plain.getNextChangeTime( time ),
+				at + "next change" );
+		check( dump.getPreviousChangeTime( time ) == plain
+				.getPreviousChangeTime( time ), at + "previous change" );
+		check( dump.getCountToggles( time ) == plain.getCountToggles( time ), at
+			+ "count toggles " + dump.getCountToggles( time ) + " instead of "
+			+ plain.getCountToggles( time ) );
+	}
+
+	/**
+	 * Return a time at a record, next to a record or between the records
+	 */
+	private static long getQueryTime( long[] times, Random random ) {
+		long time = times[random.nextInt( times.length )];
+		switch ( random.nextInt( 4 ) ) {
+			case 0:
+				return time;
+			case 1:
+				return time + 1;
+			case 2:
+				return Math.max( 0, time - 1 );
+			default:
+				long lastTime = times[times.length - 1];
+				return (long) (random.nextDouble() * (lastTime + 100));
+		}
+	}
+
+	/**
+	 * Create irregular times starting at 0
+	 */
+	private static long[] createTimes( Random random, int count, int maxDelta ) {
+		long[] times = new long[count];
+		for ( int i = 1; i < count; ++i ) {
+			times[i] = times[i - 1] + 1 + random.nextInt( maxDelta );
+		}
+		return times;
+	}
+
+	/**
+	 * Create times with long periodic parts, which form runs, between
+	 * irregular parts
+	 */
+	private static long[] createPeriodicTimes( Random random, int count ) {
+		long[] times = new long[count];
+		int i = 1;
+		while ( i < count ) {
+			int period = 1 + random.nextInt( 8 );
+			int end = Math.min( count, i + 50 + random.nextInt( 500 ) );
+			for ( ; i < end; ++i ) {
+				times[i] = times[i - 1] + period;
+			}
+			end = Math.min( count, i + random.nextInt( 100 ) );
+			for ( ; i < end; ++i ) {
+				times[i] = times[i - 1] + 1 + random.nextInt( 20 );
+			}
+		}
+		return times;
+	}
+
+	/**
+	 * Create times with differences of one to six varint bytes
+	 */
+	private static long[] createLargeTimes( Random random, int count ) {
+		long[] times = new long[count];
+		for ( int i = 1; i < count; ++i ) {
+			int bits = 1 + random.nextInt( 40 );
+			times[i] = times[i - 1] + 1 + (random.nextLong() >>> (64 - bits));
+		}
+		return times;
+	}
+
+	/**
+	 * Create random values
+	 *
+	 * @param distinct
+	 *        count of distinct values, 0 for values without repetitions
+	 */
+	private static String[] createValues( Random random, int count, int width,
+		String characters, int distinct ) {
+		String[] pool = new String[distinct];
+		for ( int i = 0; i < distinct; ++i ) {
+			pool[i] = createValue( random, width, characters );
+		}
+		String[] values = new String[count];
+		for ( int i = 0; i < count; ++i ) {
+			values[i] =
+					(distinct > 0) ? pool[random.nextInt( distinct )]
+						: createValue( random, width, characters );
+		}
+		return values;
+	}
+
+	/**
+	 * Create a random value
+	 */
+	private static String createValue( Random random, int width,
+		String characters ) {
+		StringBuilder sb = new StringBuilder( width );
+		for ( int i = 0; i < width; ++i ) {
+			sb.append( characters.charAt( random.nextInt( characters.length() ) ) );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Create the values of a scalar signal, which toggles between 0 and 1
+	 * except for the random states with a rate
+	 */
+	private static String[] createToggles( Random random, int count,
+		double rate ) {
+		String[] values = new String[count];
+		char value = '0';
+		for ( int i = 0; i < count; ++i ) {
+			if ( random.nextDouble() < rate )
+				value = STATES.charAt( random.nextInt( STATES.length() ) );
+			else
+				value = (value == '0') ? '1' : '0';
+			values[i] = String.valueOf( value );
+		}
+		return values;
+	}
+
+	/**
+	 * Throw an error if a condition does not hold
+	 */
+	private static void check( boolean condition, String message ) {
+		if ( !condition ) throw new AssertionError( message );
+	}
+
+	/*
+	 * ======================== Internal Classes ==============================
+	 */
+	/**
+	 * Dump with the uncompressed times and values in arrays. The queries
+	 * follow the contract of SignalValueDump for times not before the first
+	 * record
+	 */
+	private static class PlainDump {
+
+		/**
+		 * Times of the records, strictly increasing
+		 */
+		private final long[] times;
+		/**
+		 * Formatted values of the records
+		 */
+		private final String[] values;
+		/**
+		 * Count of the bits changed by the records up to every record
+		 */
+		private final long[] toggles;
+
+		/**
+		 * Constructor
+		 */
+		public PlainDump( int width, boolean packed, long[] times,
+			String[] values ) {
+			this.times = times;
+			this.values = new String[values.length];
+			this.toggles = new long[values.length];
+			for ( int i = 0; i < values.length; ++i ) {
+				this.values[i] = format( values[i] );
+				if ( i > 0 )
+					toggles[i] =
+							toggles[i - 1]
+								+ countChangedBits( width, values[i - 1],
+										values[i] );
+			}
+		}
+
+		/**
+		 * Return the count of the records not after a time
+		 */
+		private int countUpTo( long time ) {
+			int index = Arrays.binarySearch( times, time );
+			return (index >= 0) ? index + 1 : -index - 1;
+		}
+
+		/**
+		 * Return the records around the first one after a time
+		 *
+		 * @return indexes of the left and the right record
+		 */
+		public int[] searchBorders( long time ) {
+			if ( times.length == 1 ) return new int[] { 0, 0 };
+			int right =
+					Math.min( Math.max( countUpTo( time ), 1 ), times.length - 1 );
+			return new int[] { right - 1, right };
+		}
+
+		/**
+		 * Return the value of the last record not after a time
+		 */
+		public String getValueAt( long time ) {
+			return values[Math.max( 0, countUpTo( time ) - 1 )];
+		}
+
+		/**
+		 * Return the time of the first record after a time or -1
+		 */
+		public long getNextChangeTime( long time ) {
+			int count = countUpTo( time );
+			return (count < times.length) ? times[count] : -1;
+		}
+
+		/**
+		 * Return the time of the last record before a time or 0
+		 */
+		public long getPreviousChangeTime( long time ) {
+			int count = countUpTo( time - 1 );
+			return (count > 0) ? times[count - 1] : 0;
+		}
+
+		/**
+		 * Return the count of the changes between two times. The indexes
+		 * are taken from the borders like in SignalValueDump
+		 */
+		public int getCountChanges( long time1, long time2 ) {
+			time1 = (time1 == 0) ? 1 : time1;
+			int[] b = searchBorders( time2 );
+			int index2 =
+					(time2 >= times[b[1]]) ? b[1] : (times[b[0]] == time2)
+						? b[0] + 1 : b[0];
+			b = searchBorders( time1 );
+			int index1 =
+					(time1 >= times[b[1]]) ? b[1] : (times[b[0]] == time1)
+						? b[0] - 1 : b[0];
+			return index2 - index1;
+		}
+
+		/**
+		 * Return the count of the bits changed up to a time
+		 */
+		public long getCountToggles( long time ) {
+			return toggles[Math.max( 0, countUpTo( time ) - 1 )];
+		}
+
+		/**
+		 * Return a value as it is formatted by the dump
+		 */
+		private static String format( String value ) {
+			switch ( getState( value ) ) {
+				case 'x':
+					return AbstractSignal.SIGNAL_VALUE_X;
+				case 'z':
+					return AbstractSignal.SIGNAL_VALUE_Z;
+				default:
+					return value;
+			}
+		}
+
+		/**
+		 * Return x for a value with an x, z for a value with a z and 0 for
+		 * a known value
+		 */
+		private static char getState( String value ) {
+			if ( value.indexOf( 'x' ) >= 0 ) return 'x';
+			return (value.indexOf( 'z' ) >= 0) ? 'z' : '0';
+		}
+
+		/**
+		 * Return the count of bits changed between two values. A change from
+		 * or to an x or z value changes all bits
+		 */
+		private static int countChangedBits( int width, String value1,
+			String value2 ) {
+			char state1 = getState( value1 );
+			if ( state1 != getState( value2 ) ) return width;
+			if ( state1 != '0' ) return 0;
+			int count = 0;
+			for ( int i = 0; i < width; ++i ) {
+				if ( value1.charAt( i ) != value2.charAt( i ) ) count++;
+			}
+			return count;
+		}
+	}
+}
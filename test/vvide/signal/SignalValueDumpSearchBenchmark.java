@@ -0,0 +1,110 @@
+/*
+ * This file is part of the VVIDE project.
+ *
+ * Copyright (C) 2011 Pavel Fischer rubbiroid@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+package vvide.signal;
+
+import java.util.Random;
+
+/**
+ * Benchmark of the time lookup of a SignalValueDump. A sealed scalar dump
+ * with random gaps between the records is queried at random times and the
+ * average time of a getValueAt call is printed. The benchmark uses the public
+ * methods of the dump only, so it can be run against the classes of an older
+ * revision to compare the search of the block times.
+ * <p>
+ * Arguments: the counts of records of the dumps, default 100000 and 10000000
+ */
+public class SignalValueDumpSearchBenchmark {
+
+	/*
+	 * =========================== Attributes ================================
+	 */
+	/**
+	 * Count of queries of one measurement
+	 */
+	private static final int COUNT_QUERIES = 2000000;
+	/**
+	 * Count of measurements before the measured one
+	 */
+	private static final int WARM_UP_ROUNDS = 3;
+	/**
+	 * Largest gap between two records
+	 */
+	private static final int MAX_GAP = 100;
+
+	/*
+	 * ============================ Methods ==================================
+	 */
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args
+	 *        counts of records of the dumps
+	 */
+	public static void main( String[] args ) {
+		String[] counts = args.length > 0 ? args
+			: new String[] { "100000", "10000000" };
+		System.out.println( "records      ns/query" );
+		for ( String count : counts ) {
+			int countRecords = Integer.parseInt( count );
+			long nanos = measure( countRecords );
+			System.out.println( String.format( "%-12d %d", countRecords,
+					nanos ) );
+		}
+	}
+
+	/**
+	 * Build a dump and measure the lookups
+	 *
+	 * @param countRecords
+	 *        count of records of the dump
+	 * @return average time of a query in ns
+	 */
+	private static long measure( int countRecords ) {
+		Random random = new Random( 1 );
+		SignalValueDump dump = new SignalValueDump( 1 );
+		byte[] value = new byte[1];
+		long time = 0;
+		for ( int i = 0; i < countRecords; ++i ) {
+			value[0] = (byte) ((i & 1) == 0 ? '0' : '1');
+			dump.addRecord( time, value, 0, 1 );
+			time += 1 + random.nextInt( MAX_GAP );
+		}
+		dump.seal();
+
+		long[] queries = new long[COUNT_QUERIES];
+		for ( int i = 0; i < COUNT_QUERIES; ++i ) {
+			queries[i] = (long) (random.nextDouble() * time);
+		}
+		BitVector bits = new BitVector();
+		long nanos = 0;
+		int ones = 0;
+		for ( int round = 0; round <= WARM_UP_ROUNDS; ++round ) {
+			long start = System.nanoTime();
+			for ( int i = 0; i < COUNT_QUERIES; ++i ) {
+				dump.getValueAt( queries[i], bits );
+				ones += bits.getBit( 0 );
+			}
+			nanos = System.nanoTime() - start;
+		}
+		// the sum keeps the lookups from being removed by the compiler
+		if ( ones == 0 ) System.out.println( "no value found" );
+		return nanos / COUNT_QUERIES;
+	}
+}